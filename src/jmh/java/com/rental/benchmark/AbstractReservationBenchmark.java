@@ -0,0 +1,92 @@
+package com.rental.benchmark;
+
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.validator.InvalidRequestException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the reservation workflow against a preloaded ReservationState. Subclasses pick the
+ * thread count and how many zip codes the requests hit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AbstractReservationBenchmark {
+
+    @State(Scope.Thread)
+    public static class Requests {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    // number of zip codes requests are spread over
+    protected abstract int zipCodes();
+
+    @Benchmark
+    public Long createReservation(ReservationState state, Requests requests) {
+        int customer = requests.random.nextInt(state.emails.length);
+        Customer bookingCustomer = Customer.builder().firstName(ReservationState.FIRST_NAME).lastName(ReservationState.LAST_NAME)
+                .phoneNo(ReservationState.PHONE_NO).email(state.emails[customer]).age(ReservationState.AGE).build();
+        try {
+            return state.rentalService.createReservation(bookingCustomer, state.randomVehicleType(requests.random),
+                    state.randomZipCode(requests.random, zipCodes()), state.randomPeriod(requests.random));
+        } catch (InvalidRequestException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public boolean isRentalAvailable(ReservationState state, Requests requests) throws InvalidRequestException {
+        return state.reservationSystem.isRentalAvailable(state.custIds[requests.random.nextInt(state.custIds.length)], state.randomVehicleType(requests.random),
+                state.randomZipCode(requests.random, zipCodes()), state.randomPeriod(requests.random));
+    }
+
+    @Benchmark
+    public Long returnCustomerId(ReservationState state, Requests requests) throws InvalidRequestException {
+        return state.reservationSystem.returnCustomerId(ReservationState.FIRST_NAME, ReservationState.LAST_NAME, ReservationState.PHONE_NO,
+                state.emails[requests.random.nextInt(state.emails.length)], ReservationState.AGE);
+    }
+
+    @Benchmark
+    public Reservation updateReservation(ReservationState state, Requests requests) {
+        long reservationId = state.reservationIds[requests.random.nextInt(state.reservationIds.length)];
+        try {
+            return state.rentalService.updateReservation(reservationId, ReservationState.FIRST_NAME, ReservationState.LAST_NAME, ReservationState.PHONE_NO,
+                    state.randomVehicleType(requests.random), state.randomZipCode(requests.random, zipCodes()), state.randomPeriod(requests.random));
+        } catch (InvalidRequestException e) {
+            return null;
+        }
+    }
+
+    // books directly in the domain first so there is always an active reservation to cancel
+    @Benchmark
+    public Reservation cancelReservation(ReservationState state, Requests requests) throws InvalidRequestException {
+        Long reservationId = state.reservationSystem.createNewReservation(state.custIds[requests.random.nextInt(state.custIds.length)],
+                state.randomVehicleType(requests.random), state.randomZipCode(requests.random, zipCodes()), state.randomPeriod(requests.random));
+        return state.rentalService.cancelReservation(reservationId);
+    }
+
+    // books a reservation that has already ended, then runs the expiry pass that retires it
+    @Benchmark
+    public void markReservationsExpired(ReservationState state, Requests requests) throws InvalidRequestException {
+        LocalDateTime end = LocalDateTime.now().minusMinutes(1);
+        state.reservationSystem.createNewReservation(state.custIds[requests.random.nextInt(state.custIds.length)],
+                state.randomVehicleType(requests.random), state.randomZipCode(requests.random, zipCodes()), new ReservationPeriod(end.minusDays(1), end));
+        state.rentalService.markReservationsExpired();
+    }
+}
@@ -0,0 +1,18 @@
+package com.rental.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Eight threads hammering the buckets of a few zip codes, so they contend for the same bucket locks.
+ * Override the thread count with -t.
+ */
+@Threads(8)
+public class ContendedReservationBenchmark extends AbstractReservationBenchmark {
+
+    private static final int HOT_ZIP_CODES = 4;
+
+    @Override
+    protected int zipCodes() {
+        return HOT_ZIP_CODES;
+    }
+}
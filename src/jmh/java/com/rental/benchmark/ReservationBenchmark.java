@@ -0,0 +1,15 @@
+package com.rental.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Single threaded latency of the reservation hot paths, requests spread over every zip code.
+ */
+@Threads(1)
+public class ReservationBenchmark extends AbstractReservationBenchmark {
+
+    @Override
+    protected int zipCodes() {
+        return ReservationState.ZIP_CODES;
+    }
+}
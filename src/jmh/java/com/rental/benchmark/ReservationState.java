@@ -0,0 +1,101 @@
+package com.rental.benchmark;
+
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.domain.store.ColumnarReservationStore;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.service.RentalService;
+import com.rental.validator.InvalidRequestException;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared ReservationSystem preloaded with reservations spread over ZIP_CODES x VehicleType buckets
+ * and the next BOOKING_DAYS days. Every bucket has about twice as many cars as its average number
+ * of overlapping bookings, so new bookings mostly succeed.
+ */
+@State(Scope.Benchmark)
+public class ReservationState {
+
+    static final int FIRST_ZIP_CODE = 10000;
+    static final int ZIP_CODES = 1000;
+    static final int BOOKING_DAYS = 170;
+    static final String FIRST_NAME = "Bench";
+    static final String LAST_NAME = "Customer";
+    static final long PHONE_NO = 6105550100L;
+    static final int AGE = 30;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int reservations;
+
+    @Param({"hash", "columnar"})
+    public String store;
+
+    ReservationSystem reservationSystem;
+    RentalService rentalService;
+    LocalDateTime origin;
+    String[] emails;
+    long[] custIds;
+    long[] reservationIds;
+
+    @Setup(Level.Trial)
+    public void populate() throws InvalidRequestException {
+        reservationSystem = ReservationSystem.getInstance();
+        rentalService = new RentalService();
+        origin = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(3);
+
+        Map<Long, Reservation> reservationMap = "columnar".equals(store) ? new ColumnarReservationStore() : new ConcurrentHashMap<>();
+        reservationSystem.setReservationMap(reservationMap);
+        reservationSystem.setCustomerMap(new ConcurrentHashMap<>());
+
+        int buckets = ZIP_CODES * VehicleType.values().length;
+        long overlapping = (long) reservations / buckets * 3 / BOOKING_DAYS + 1;
+        Inventory.Builder inventory = Inventory.builder();
+        for (int zip = FIRST_ZIP_CODE; zip < FIRST_ZIP_CODE + ZIP_CODES; zip++) {
+            for (VehicleType vehicleType : VehicleType.values()) {
+                inventory.add(vehicleType, zip, overlapping * 2);
+            }
+        }
+        reservationSystem.setInventory(inventory.build());
+
+        int customers = Math.max(1000, reservations / 5);
+        emails = new String[customers];
+        custIds = new long[customers];
+        for (int i = 0; i < customers; i++) {
+            emails[i] = "customer" + i + "@bench.rental";
+            custIds[i] = reservationSystem.returnCustomerId(FIRST_NAME, LAST_NAME, PHONE_NO, emails[i], AGE);
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        reservationIds = new long[reservations];
+        for (int i = 0; i < reservations; i++) {
+            reservationIds[i] = reservationSystem.createNewReservation(custIds[random.nextInt(customers)], randomVehicleType(random),
+                    randomZipCode(random, ZIP_CODES), randomPeriod(random));
+        }
+    }
+
+    VehicleType randomVehicleType(SplittableRandom random) {
+        return VehicleType.values()[random.nextInt(VehicleType.values().length)];
+    }
+
+    int randomZipCode(SplittableRandom random, int zipCodes) {
+        return FIRST_ZIP_CODE + random.nextInt(zipCodes);
+    }
+
+    // one to three days and an hour, so the period passes checkReservationPeriodWithSysDateTime
+    ReservationPeriod randomPeriod(SplittableRandom random) {
+        LocalDateTime start = origin.plusMinutes(random.nextInt(BOOKING_DAYS * 24 * 60));
+        return new ReservationPeriod(start, start.plusDays(1 + random.nextInt(3)).plusHours(1));
+    }
+}
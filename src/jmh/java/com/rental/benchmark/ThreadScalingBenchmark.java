@@ -0,0 +1,32 @@
+package com.rental.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * The reservation hot paths at 1, 2, 4 and 8 threads, requests spread over every zip code so the
+ * threads mostly take different bucket stripes. Comparing the variants shows how throughput scales
+ * as cores are added.
+ */
+public abstract class ThreadScalingBenchmark extends AbstractReservationBenchmark {
+
+    @Override
+    protected int zipCodes() {
+        return ReservationState.ZIP_CODES;
+    }
+
+    @Threads(1)
+    public static class OneThread extends ThreadScalingBenchmark {
+    }
+
+    @Threads(2)
+    public static class TwoThreads extends ThreadScalingBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends ThreadScalingBenchmark {
+    }
+
+    @Threads(8)
+    public static class EightThreads extends ThreadScalingBenchmark {
+    }
+}
@@ -0,0 +1,41 @@
+package com.rental.admission;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Limits of an AdmissionController. Every limit starts at its initial value and adapts between
+ * minLimit and its maximum: it grows by one while calls finish within targetLatencyMillis and the
+ * limit is in use, and shrinks by backoffRatio at most once per target interval when they do not.
+ */
+@Data
+@Builder
+public class AdmissionConfig {
+
+    // concurrent calls over all buckets
+    @Builder.Default private int globalInitialLimit = 256;
+    @Builder.Default private int globalMaxLimit = 4096;
+    // concurrent calls per (VehicleType, zip) bucket
+    @Builder.Default private int bucketInitialLimit = 16;
+    @Builder.Default private int bucketMaxLimit = 256;
+    // bucket limits kept at once; idle ones are dropped past this, then new buckets share one limit
+    @Builder.Default private int maxBuckets = 4096;
+    @Builder.Default private int minLimit = 1;
+    @Builder.Default private long targetLatencyMillis = 10;
+    @Builder.Default private double backoffRatio = 0.9;
+
+    // rental.admission.PROPERTY system properties, falling back to the defaults above
+    public static AdmissionConfig fromSystemProperties() {
+        AdmissionConfig defaults = builder().build();
+        return builder()
+                .globalInitialLimit(Integer.getInteger("rental.admission.globalInitialLimit", defaults.globalInitialLimit))
+                .globalMaxLimit(Integer.getInteger("rental.admission.globalMaxLimit", defaults.globalMaxLimit))
+                .bucketInitialLimit(Integer.getInteger("rental.admission.bucketInitialLimit", defaults.bucketInitialLimit))
+                .bucketMaxLimit(Integer.getInteger("rental.admission.bucketMaxLimit", defaults.bucketMaxLimit))
+                .maxBuckets(Integer.getInteger("rental.admission.maxBuckets", defaults.maxBuckets))
+                .minLimit(Integer.getInteger("rental.admission.minLimit", defaults.minLimit))
+                .targetLatencyMillis(Long.getLong("rental.admission.targetLatencyMillis", defaults.targetLatencyMillis))
+                .backoffRatio(Double.parseDouble(System.getProperty("rental.admission.backoffRatio", String.valueOf(defaults.backoffRatio))))
+                .build();
+    }
+}
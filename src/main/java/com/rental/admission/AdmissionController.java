@@ -0,0 +1,123 @@
+package com.rental.admission;
+
+import com.rental.metrics.MetricsRegistry;
+import com.rental.model.VehicleType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global and per (VehicleType, zip) bucket AimdLimits. A call is admitted when its bucket and the
+ * global limit both have room; otherwise it is rejected on the spot. Each bucket adapts to its own
+ * latency, so a surge on one zip code shrinks that zip's limit and leaves the others alone, while
+ * the global limit guards the shared threads and CPU. Rejections are counted in
+ * admission.rejected.bucket and admission.rejected.global.
+ *
+ * At most maxBuckets bucket limits are kept, so requests for made-up zip codes cannot grow the map
+ * without bound: a new bucket past that drops the idle limits (no call in flight) and, if none is
+ * idle, shares one overflow limit.
+ */
+public class AdmissionController {
+
+    private final AdmissionConfig config;
+    private final long targetNanos;
+    private final AimdLimit globalLimit;
+    private final ConcurrentHashMap<Long, AimdLimit> bucketLimits = new ConcurrentHashMap<>();
+    private final AimdLimit overflowLimit;
+    private final LongAdder bucketRejections = new LongAdder();
+    private final LongAdder globalRejections = new LongAdder();
+    private final LongAdder bucketRejectionsMetric;
+    private final LongAdder globalRejectionsMetric;
+
+    public AdmissionController() {
+        this(AdmissionConfig.fromSystemProperties());
+    }
+
+    public AdmissionController(AdmissionConfig config) {
+        this.config = config;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(config.getTargetLatencyMillis());
+        this.globalLimit = new AimdLimit(config.getGlobalInitialLimit(), config.getMinLimit(), config.getGlobalMaxLimit(), targetNanos, config.getBackoffRatio());
+        this.overflowLimit = newBucketLimit();
+        this.bucketRejectionsMetric = MetricsRegistry.getInstance().counter("admission.rejected.bucket");
+        this.globalRejectionsMetric = MetricsRegistry.getInstance().counter("admission.rejected.global");
+    }
+
+    public AimdLimit getGlobalLimit() {
+        return globalLimit;
+    }
+
+    public AimdLimit bucketLimit(VehicleType vehicleType, int zipCode) {
+        long bucket = ((long) vehicleType.ordinal() << 32) | (zipCode & 0xFFFFFFFFL);
+        AimdLimit bucketLimit = bucketLimits.get(bucket);
+        if (bucketLimit != null) {
+            return bucketLimit;
+        }
+        if (bucketLimits.size() >= config.getMaxBuckets()) {
+            //a caller still holding a dropped limit releases it as usual
+            bucketLimits.values().removeIf(limit -> limit.getInFlight() == 0);
+            if (bucketLimits.size() >= config.getMaxBuckets()) {
+                return overflowLimit;
+            }
+        }
+        return bucketLimits.computeIfAbsent(bucket, key -> newBucketLimit());
+    }
+
+    private AimdLimit newBucketLimit() {
+        return new AimdLimit(config.getBucketInitialLimit(), config.getMinLimit(), config.getBucketMaxLimit(), targetNanos, config.getBackoffRatio());
+    }
+
+    public int getBucketCount() {
+        return bucketLimits.size();
+    }
+
+    // takes a bucket permit, then a global one; false when either is full
+    public boolean tryAcquire(AimdLimit bucketLimit) {
+        if (!tryAcquireBucket(bucketLimit)) {
+            return false;
+        }
+        if (!tryAcquire()) {
+            bucketLimit.cancel();
+            return false;
+        }
+        return true;
+    }
+
+    // takes a bucket permit alone, for calls that hold a global permit already
+    public boolean tryAcquireBucket(AimdLimit bucketLimit) {
+        if (!bucketLimit.tryAcquire()) {
+            bucketRejections.increment();
+            bucketRejectionsMetric.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // takes a global permit for a call without a bucket
+    public boolean tryAcquire() {
+        if (!globalLimit.tryAcquire()) {
+            globalRejections.increment();
+            globalRejectionsMetric.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(AimdLimit bucketLimit, long startNanos) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        bucketLimit.release(latencyNanos);
+        globalLimit.release(latencyNanos);
+    }
+
+    public void release(long startNanos) {
+        globalLimit.release(System.nanoTime() - startNanos);
+    }
+
+    public long getBucketRejections() {
+        return bucketRejections.sum();
+    }
+
+    public long getGlobalRejections() {
+        return globalRejections.sum();
+    }
+}
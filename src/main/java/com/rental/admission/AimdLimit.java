@@ -0,0 +1,76 @@
+package com.rental.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit adapted by additive increase, multiplicative decrease on observed latency.
+ * tryAcquire never waits: a call over the limit is turned away. Every admitted call reports its
+ * latency on release. A call within the target that found the limit at least half used raises the
+ * limit by one; a slower call multiplies it by the backoff ratio, at most once per target interval,
+ * so the calls of one slow burst back off once.
+ */
+public class AimdLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetNanos;
+    private final double backoffRatio;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long lastDecreaseNanos;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, long targetNanos, double backoffRatio) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max: " + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio must be between 0 and 1: " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = targetNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(initialLimit);
+        this.lastDecreaseNanos = System.nanoTime() - targetNanos;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // ends an admitted call that took latencyNanos
+    public void release(long latencyNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        int current = limit.get();
+        if (latencyNanos > targetNanos) {
+            long now = System.nanoTime();
+            if (now - lastDecreaseNanos >= targetNanos) {
+                lastDecreaseNanos = now;
+                limit.compareAndSet(current, Math.max(minLimit, (int) (current * backoffRatio)));
+            }
+        } else if (current < maxLimit && inFlightBefore * 2 >= current) {
+            limit.compareAndSet(current, current + 1);
+        }
+    }
+
+    // ends an admitted call that never ran, without adapting the limit
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
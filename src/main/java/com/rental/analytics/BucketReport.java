@@ -0,0 +1,111 @@
+package com.rental.analytics;
+
+import com.rental.model.VehicleType;
+
+import java.time.LocalDate;
+
+/**
+ * Fleet figures of one (VehicleType, pickupZip) bucket over the days of a FleetReport. Bookings,
+ * cancellations and expirations count reservations by pickup day.
+ */
+public class BucketReport {
+
+    private final VehicleType vehicleType;
+    private final int zipCode;
+    private final long vehicleCount;
+    private final LocalDate fromDay;
+    private final long[] bookedHours;
+    private final int[] peakCars;
+    private final long[] hourlyDemand;
+    private final long bookings;
+    private final long cancellations;
+    private final long expirations;
+
+    BucketReport(VehicleType vehicleType, int zipCode, long vehicleCount, LocalDate fromDay, long[] bookedHours, int[] peakCars, long[] hourlyDemand,
+                 long bookings, long cancellations, long expirations) {
+        this.vehicleType = vehicleType;
+        this.zipCode = zipCode;
+        this.vehicleCount = vehicleCount;
+        this.fromDay = fromDay;
+        this.bookedHours = bookedHours;
+        this.peakCars = peakCars;
+        this.hourlyDemand = hourlyDemand;
+        this.bookings = bookings;
+        this.cancellations = cancellations;
+        this.expirations = expirations;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public int getZipCode() {
+        return zipCode;
+    }
+
+    public long getVehicleCount() {
+        return vehicleCount;
+    }
+
+    public LocalDate getFromDay() {
+        return fromDay;
+    }
+
+    public int getDays() {
+        return bookedHours.length;
+    }
+
+    // car hours booked per day
+    public long[] getBookedHours() {
+        return bookedHours;
+    }
+
+    // booked share of the bucket's car hours on a day, 0 without cars
+    public double getUtilization(int day) {
+        return vehicleCount <= 0 ? 0.0 : bookedHours[day] / (double) (vehicleCount * FleetAnalytics.HOURS_PER_DAY);
+    }
+
+    public double getUtilization() {
+        long total = 0;
+        for (long hours : bookedHours) {
+            total += hours;
+        }
+        return vehicleCount <= 0 ? 0.0 : total / (double) (vehicleCount * FleetAnalytics.HOURS_PER_DAY * bookedHours.length);
+    }
+
+    // most cars booked in any hour, per day
+    public int[] getPeakCars() {
+        return peakCars;
+    }
+
+    // car hours booked per hour of the day over all days
+    public long[] getHourlyDemand() {
+        return hourlyDemand;
+    }
+
+    public int getPeakHour() {
+        return FleetReport.peakHour(hourlyDemand);
+    }
+
+    public long getBookings() {
+        return bookings;
+    }
+
+    public long getCancellations() {
+        return cancellations;
+    }
+
+    public long getExpirations() {
+        return expirations;
+    }
+
+    public double getCancellationRate() {
+        return bookings == 0 ? 0.0 : cancellations / (double) bookings;
+    }
+
+    @Override
+    public String toString() {
+        return "BucketReport(vehicleType=" + vehicleType + ", zipCode=" + zipCode + ", utilization=" + getUtilization()
+                + ", peakHour=" + getPeakHour() + ", bookings=" + bookings + ", cancellations=" + cancellations + ")";
+    }
+}
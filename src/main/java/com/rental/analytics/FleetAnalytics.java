@@ -0,0 +1,137 @@
+package com.rental.analytics;
+
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Running fleet aggregates per (VehicleType, pickupZip) bucket and day, updated by ReservationSystem
+ * on every booking change so reports never scan reservations.
+ *
+ * Per day a bucket keeps 24 hourly occupancy deltas (+1 in the hour a booking starts, -1 in the hour
+ * after it ends) and the bookings, cancellations and expirations of reservations picked up that day.
+ * Days are grouped in chunks of primitive counters that also hold the sum of their deltas, so the
+ * occupancy at the start of a report range is a sum over chunks. An update costs a handful of
+ * uncontended atomic adds on the bucket's own counters.
+ *
+ * Expired reservations keep their occupancy, so past days report the rentals that happened, while
+ * cancellations and changes remove it.
+ */
+public class FleetAnalytics {
+
+    static final int HOURS_PER_DAY = 24;
+    static final int BOOKINGS = 24;
+    static final int CANCELLATIONS = 25;
+    static final int EXPIRATIONS = 26;
+    static final int STRIDE = 27;
+    static final int CHUNK_DAYS = 32;
+    // last counter of a chunk, the sum of its occupancy deltas
+    static final int CHUNK_TOTAL = CHUNK_DAYS * STRIDE;
+    private static final long SECONDS_PER_HOUR = 3600L;
+
+    private final Map<VehicleType, ConcurrentHashMap<Integer, BucketCounters>> buckets = new EnumMap<>(VehicleType.class);
+
+    public FleetAnalytics() {
+        for (VehicleType vehicleType : VehicleType.values()) {
+            buckets.put(vehicleType, new ConcurrentHashMap<>());
+        }
+    }
+
+    // an active reservation was booked
+    public void add(Reservation reservation) {
+        occupy(reservation, 1);
+        count(reservation, BOOKINGS, 1);
+    }
+
+    // an active reservation was replaced by a new version or moved to another shard
+    public void remove(Reservation reservation) {
+        occupy(reservation, -1);
+        count(reservation, BOOKINGS, -1);
+    }
+
+    public void cancel(Reservation reservation) {
+        occupy(reservation, -1);
+        count(reservation, CANCELLATIONS, 1);
+    }
+
+    public void expire(Reservation reservation) {
+        count(reservation, EXPIRATIONS, 1);
+    }
+
+    public void clear() {
+        buckets.values().forEach(Map::clear);
+    }
+
+    // counters of a bucket, or null when nothing was booked there
+    BucketCounters getCounters(VehicleType vehicleType, int zipCode) {
+        return buckets.get(vehicleType).get(zipCode);
+    }
+
+    Map<VehicleType, ConcurrentHashMap<Integer, BucketCounters>> getBuckets() {
+        return buckets;
+    }
+
+    private void occupy(Reservation reservation, int delta) {
+        ReservationPeriod reservationPeriod = reservation.getReservationPeriod();
+        if (reservation.getVehicleType() == null || reservationPeriod == null) {
+            return;
+        }
+        BucketCounters counters = counters(reservation);
+        counters.addOccupancy(floorHour(reservationPeriod.getStartDateTime()), delta);
+        counters.addOccupancy(ceilHour(reservationPeriod.getEndDateTime()), -delta);
+    }
+
+    private void count(Reservation reservation, int field, int delta) {
+        if (reservation.getVehicleType() == null || reservation.getReservationPeriod() == null) {
+            return;
+        }
+        long day = Math.floorDiv(floorHour(reservation.getReservationPeriod().getStartDateTime()), HOURS_PER_DAY);
+        counters(reservation).add(day, field, delta);
+    }
+
+    private BucketCounters counters(Reservation reservation) {
+        return buckets.get(reservation.getVehicleType()).computeIfAbsent(reservation.getZipcode(), zip -> new BucketCounters());
+    }
+
+    // hours since the epoch in local wall time
+    static long floorHour(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_HOUR);
+    }
+
+    private static long ceilHour(LocalDateTime dateTime) {
+        long seconds = dateTime.toEpochSecond(ZoneOffset.UTC);
+        long hour = Math.floorDiv(seconds, SECONDS_PER_HOUR);
+        return Math.floorMod(seconds, SECONDS_PER_HOUR) == 0 && dateTime.getNano() == 0 ? hour : hour + 1;
+    }
+
+    static final class BucketCounters {
+        // chunk number (epoch day / CHUNK_DAYS) to CHUNK_DAYS days of STRIDE counters plus the chunk total
+        final ConcurrentHashMap<Long, AtomicLongArray> chunks = new ConcurrentHashMap<>();
+
+        void addOccupancy(long epochHour, int delta) {
+            long day = Math.floorDiv(epochHour, HOURS_PER_DAY);
+            AtomicLongArray chunk = chunk(day);
+            chunk.getAndAdd(offset(day) + (int) Math.floorMod(epochHour, HOURS_PER_DAY), delta);
+            chunk.getAndAdd(CHUNK_TOTAL, delta);
+        }
+
+        void add(long epochDay, int field, int delta) {
+            chunk(epochDay).getAndAdd(offset(epochDay) + field, delta);
+        }
+
+        private AtomicLongArray chunk(long epochDay) {
+            return chunks.computeIfAbsent(Math.floorDiv(epochDay, CHUNK_DAYS), number -> new AtomicLongArray(CHUNK_TOTAL + 1));
+        }
+
+        static int offset(long epochDay) {
+            return (int) Math.floorMod(epochDay, CHUNK_DAYS) * STRIDE;
+        }
+    }
+}
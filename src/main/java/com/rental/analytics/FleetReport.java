@@ -0,0 +1,108 @@
+package com.rental.analytics;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Fleet utilization, demand by hour of day and cancellation rate over a range of days, per bucket
+ * and in total. Buckets with cars but no bookings are included, so idle cars lower the totals.
+ */
+public class FleetReport {
+
+    private final LocalDate fromDay;
+    private final int days;
+    private final List<BucketReport> buckets;
+    private final long bookedHours;
+    private final long capacityHours;
+    private final long[] hourlyDemand;
+    private final long bookings;
+    private final long cancellations;
+
+    FleetReport(LocalDate fromDay, int days, List<BucketReport> buckets) {
+        this.fromDay = fromDay;
+        this.days = days;
+        this.buckets = buckets;
+        long booked = 0;
+        long capacity = 0;
+        long bookingCount = 0;
+        long cancellationCount = 0;
+        hourlyDemand = new long[FleetAnalytics.HOURS_PER_DAY];
+        for (BucketReport bucket : buckets) {
+            for (long hours : bucket.getBookedHours()) {
+                booked += hours;
+            }
+            capacity += bucket.getVehicleCount() * FleetAnalytics.HOURS_PER_DAY * days;
+            for (int hour = 0; hour < hourlyDemand.length; hour++) {
+                hourlyDemand[hour] += bucket.getHourlyDemand()[hour];
+            }
+            bookingCount += bucket.getBookings();
+            cancellationCount += bucket.getCancellations();
+        }
+        this.bookedHours = booked;
+        this.capacityHours = capacity;
+        this.bookings = bookingCount;
+        this.cancellations = cancellationCount;
+    }
+
+    public LocalDate getFromDay() {
+        return fromDay;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    // ordered by zip code, then vehicle type
+    public List<BucketReport> getBuckets() {
+        return buckets;
+    }
+
+    public long getBookedHours() {
+        return bookedHours;
+    }
+
+    public long getCapacityHours() {
+        return capacityHours;
+    }
+
+    public double getUtilization() {
+        return capacityHours == 0 ? 0.0 : bookedHours / (double) capacityHours;
+    }
+
+    public long[] getHourlyDemand() {
+        return hourlyDemand;
+    }
+
+    public int getPeakHour() {
+        return peakHour(hourlyDemand);
+    }
+
+    public long getBookings() {
+        return bookings;
+    }
+
+    public long getCancellations() {
+        return cancellations;
+    }
+
+    public double getCancellationRate() {
+        return bookings == 0 ? 0.0 : cancellations / (double) bookings;
+    }
+
+    // busiest hour of the day, the earliest on ties
+    static int peakHour(long[] hourlyDemand) {
+        int peak = 0;
+        for (int hour = 1; hour < hourlyDemand.length; hour++) {
+            if (hourlyDemand[hour] > hourlyDemand[peak]) {
+                peak = hour;
+            }
+        }
+        return peak;
+    }
+
+    @Override
+    public String toString() {
+        return "FleetReport(fromDay=" + fromDay + ", days=" + days + ", buckets=" + buckets.size() + ", utilization=" + getUtilization()
+                + ", peakHour=" + getPeakHour() + ", cancellationRate=" + getCancellationRate() + ")";
+    }
+}
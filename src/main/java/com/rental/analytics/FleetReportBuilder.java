@@ -0,0 +1,162 @@
+package com.rental.analytics;
+
+import com.rental.domain.Inventory;
+import com.rental.model.VehicleType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntPredicate;
+
+/**
+ * Builds a FleetReport from the aggregates of one or more FleetAnalytics (one per shard) and their
+ * inventories. Buckets are reported in parallel on the common fork-join pool; each costs one pass
+ * over its counters for the range, so a report is O(buckets x days) whatever the booking volume.
+ * Counters are read without locking, so a report taken under traffic may miss bookings in flight.
+ */
+public class FleetReportBuilder {
+
+    private static final int BUCKETS_PER_TASK = 32;
+
+    private final List<Source> sources = new ArrayList<>();
+
+    // every bucket with bookings in analytics or cars in inventory
+    public FleetReportBuilder add(FleetAnalytics analytics, Inventory inventory) {
+        return add(analytics, inventory, zipCode -> true);
+    }
+
+    // as above, for the zip codes a shard owns when every shard holds the whole inventory
+    public FleetReportBuilder add(FleetAnalytics analytics, Inventory inventory, IntPredicate ownsZipCode) {
+        inventory.forEach((vehicleType, zipCode, vehicleCount) -> {
+            if (ownsZipCode.test(zipCode)) {
+                sources.add(new Source(vehicleType, zipCode, vehicleCount, analytics.getCounters(vehicleType, zipCode)));
+            }
+        });
+        analytics.getBuckets().forEach((vehicleType, counters) -> counters.forEach((zipCode, bucketCounters) -> {
+            if (ownsZipCode.test(zipCode) && inventory.getVehicleCount(vehicleType, zipCode) <= 0) {
+                sources.add(new Source(vehicleType, zipCode, 0L, bucketCounters));
+            }
+        }));
+        return this;
+    }
+
+    public FleetReport build(LocalDate fromDay, int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("days must be positive: " + days);
+        }
+        List<BucketReport> buckets = ForkJoinPool.commonPool().invoke(new ReportTask(sources, 0, sources.size(), fromDay, days));
+        buckets.sort(Comparator.comparingInt(BucketReport::getZipCode).thenComparing(BucketReport::getVehicleType));
+        return new FleetReport(fromDay, days, buckets);
+    }
+
+    static BucketReport report(Source source, LocalDate fromDay, int days) {
+        long[] bookedHours = new long[days];
+        int[] peakCars = new int[days];
+        long[] hourlyDemand = new long[FleetAnalytics.HOURS_PER_DAY];
+        long bookings = 0;
+        long cancellations = 0;
+        long expirations = 0;
+        FleetAnalytics.BucketCounters counters = source.counters;
+        if (counters != null) {
+            long firstDay = fromDay.toEpochDay();
+            long firstChunk = Math.floorDiv(firstDay, FleetAnalytics.CHUNK_DAYS);
+            long occupied = 0;
+            //cars still out at the start of the range: deltas of the earlier chunks and days
+            for (Map.Entry<Long, AtomicLongArray> chunk : counters.chunks.entrySet()) {
+                if (chunk.getKey() < firstChunk) {
+                    occupied += chunk.getValue().get(FleetAnalytics.CHUNK_TOTAL);
+                }
+            }
+            AtomicLongArray chunk = counters.chunks.get(firstChunk);
+            if (chunk != null) {
+                for (long day = firstChunk * FleetAnalytics.CHUNK_DAYS; day < firstDay; day++) {
+                    int offset = FleetAnalytics.BucketCounters.offset(day);
+                    for (int hour = 0; hour < FleetAnalytics.HOURS_PER_DAY; hour++) {
+                        occupied += chunk.get(offset + hour);
+                    }
+                }
+            }
+            long chunkNumber = firstChunk;
+            for (int day = 0; day < days; day++) {
+                long epochDay = firstDay + day;
+                if (Math.floorDiv(epochDay, FleetAnalytics.CHUNK_DAYS) != chunkNumber) {
+                    chunkNumber = Math.floorDiv(epochDay, FleetAnalytics.CHUNK_DAYS);
+                    chunk = counters.chunks.get(chunkNumber);
+                }
+                if (chunk == null) {
+                    bookedHours[day] = occupied * FleetAnalytics.HOURS_PER_DAY;
+                    peakCars[day] = (int) occupied;
+                    for (int hour = 0; hour < FleetAnalytics.HOURS_PER_DAY; hour++) {
+                        hourlyDemand[hour] += occupied;
+                    }
+                    continue;
+                }
+                int offset = FleetAnalytics.BucketCounters.offset(epochDay);
+                for (int hour = 0; hour < FleetAnalytics.HOURS_PER_DAY; hour++) {
+                    occupied += chunk.get(offset + hour);
+                    bookedHours[day] += occupied;
+                    peakCars[day] = (int) Math.max(peakCars[day], occupied);
+                    hourlyDemand[hour] += occupied;
+                }
+                bookings += chunk.get(offset + FleetAnalytics.BOOKINGS);
+                cancellations += chunk.get(offset + FleetAnalytics.CANCELLATIONS);
+                expirations += chunk.get(offset + FleetAnalytics.EXPIRATIONS);
+            }
+        }
+        return new BucketReport(source.vehicleType, source.zipCode, source.vehicleCount, fromDay, bookedHours, peakCars, hourlyDemand, bookings, cancellations, expirations);
+    }
+
+    static final class Source {
+        final VehicleType vehicleType;
+        final int zipCode;
+        final long vehicleCount;
+        // null for a bucket without bookings
+        final FleetAnalytics.BucketCounters counters;
+
+        Source(VehicleType vehicleType, int zipCode, long vehicleCount, FleetAnalytics.BucketCounters counters) {
+            this.vehicleType = vehicleType;
+            this.zipCode = zipCode;
+            this.vehicleCount = vehicleCount;
+            this.counters = counters;
+        }
+    }
+
+    // splits the buckets in halves until a task has BUCKETS_PER_TASK or fewer
+    private static final class ReportTask extends RecursiveTask<List<BucketReport>> {
+        private final List<Source> sources;
+        private final int from;
+        private final int to;
+        private final LocalDate fromDay;
+        private final int days;
+
+        ReportTask(List<Source> sources, int from, int to, LocalDate fromDay, int days) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.fromDay = fromDay;
+            this.days = days;
+        }
+
+        @Override
+        protected List<BucketReport> compute() {
+            if (to - from <= BUCKETS_PER_TASK) {
+                List<BucketReport> reports = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    reports.add(report(sources.get(i), fromDay, days));
+                }
+                return reports;
+            }
+            int middle = (from + to) >>> 1;
+            ReportTask left = new ReportTask(sources, from, middle, fromDay, days);
+            left.fork();
+            List<BucketReport> reports = new ReportTask(sources, middle, to, fromDay, days).compute();
+            reports.addAll(left.join());
+            return reports;
+        }
+    }
+}
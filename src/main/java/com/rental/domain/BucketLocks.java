@@ -0,0 +1,55 @@
+package com.rental.domain;
+
+import com.rental.model.VehicleType;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks for (VehicleType, pickupZip) buckets and for customers. Bookings in unrelated
+ * buckets take different stripes and run in parallel.
+ *
+ * Lock order is bucket stripes in ascending index, then the customer stripe.
+ */
+public class BucketLocks {
+
+    private final ReentrantLock[] bucketStripes;
+    private final ReentrantLock[] customerStripes;
+    private final int mask;
+
+    public BucketLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        bucketStripes = new ReentrantLock[size];
+        customerStripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            bucketStripes[i] = new ReentrantLock();
+            customerStripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public int getBucketStripes() {
+        return bucketStripes.length;
+    }
+
+    public int bucketStripe(VehicleType vehicleType, int zipCode) {
+        return spread(zipCode * 31 + vehicleType.ordinal()) & mask;
+    }
+
+    public ReentrantLock bucketLock(int stripe) {
+        return bucketStripes[stripe];
+    }
+
+    public ReentrantLock bucketLock(VehicleType vehicleType, int zipCode) {
+        return bucketStripes[bucketStripe(vehicleType, zipCode)];
+    }
+
+    public ReentrantLock customerLock(Long custId) {
+        return customerStripes[spread(Long.hashCode(custId)) & mask];
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,22 @@
+package com.rental.domain;
+
+import com.rental.domain.index.CustomerReservationIndex;
+import com.rental.model.Customer;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Customers, their email lookup, their reservation intervals and their locks. ReservationSystem
+ * shards share one directory, so a customer keeps one id and can never hold overlapping
+ * reservations, whichever shards the bookings land in.
+ */
+@Getter
+public class CustomerDirectory {
+
+    private final Map<Long, Customer> customerMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> customerIdByEmail = new ConcurrentHashMap<>();
+    private final CustomerReservationIndex customerReservationIndex = new CustomerReservationIndex();
+    private final BucketLocks customerLocks = new BucketLocks(Integer.getInteger("rental.lock.stripes", 1024));
+}
@@ -0,0 +1,141 @@
+package com.rental.domain;
+
+import com.rental.util.TimeKeyUtil;
+
+import java.time.LocalDateTime;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Min-heap of reservation end times. A tick drains only the entries that are due, so expiring
+ * reservations costs O(k log n) for k due reservations instead of a scan of reservationMap.
+ *
+ * Entries are never removed eagerly: cancelled or rescheduled reservations are skipped by the
+ * expirer when their entry comes due.
+ */
+public class ExpiryEngine {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong totalDrained = new AtomicLong();
+    private final AtomicLong lastTickDrained = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    @FunctionalInterface
+    public interface Expirer {
+        // returns true if the reservation was still active with this end time and is now expired
+        boolean expire(long reservationId, long endKey);
+    }
+
+    public void schedule(Long reservationId, LocalDateTime endDateTime) {
+        Entry entry = new Entry(TimeKeyUtil.toKey(endDateTime), reservationId);
+        synchronized (queue) {
+            queue.add(entry);
+        }
+    }
+
+    public int drainDue(LocalDateTime now, Expirer expirer) {
+        long nowKey = TimeKeyUtil.toKey(now);
+        int drained = 0;
+        while (true) {
+            Entry entry;
+            synchronized (queue) {
+                entry = queue.peek();
+                if (entry == null || entry.endKey >= nowKey) {
+                    break;
+                }
+                queue.poll();
+            }
+            if (expirer.expire(entry.reservationId, entry.endKey)) {
+                drained++;
+                long lagMillis = (nowKey - entry.endKey) / NANOS_PER_MILLI;
+                lastLagMillis.set(lagMillis);
+                maxLagMillis.accumulateAndGet(lagMillis, Math::max);
+            }
+        }
+        ticks.incrementAndGet();
+        lastTickDrained.set(drained);
+        totalDrained.addAndGet(drained);
+        return drained;
+    }
+
+    public synchronized void start(long tickMillis, Runnable tick) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // waits for a running tick, so it is not interrupted halfway through journal or cold store writes
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    public void clear() {
+        synchronized (queue) {
+            queue.clear();
+        }
+    }
+
+    public int getPending() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    public long getTotalDrained() {
+        return totalDrained.get();
+    }
+
+    public long getLastTickDrained() {
+        return lastTickDrained.get();
+    }
+
+    public long getLastLagMillis() {
+        return lastLagMillis.get();
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final long endKey;
+        final long reservationId;
+
+        Entry(long endKey, long reservationId) {
+            this.endKey = endKey;
+            this.reservationId = reservationId;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int c = Long.compare(endKey, other.endKey);
+            return c != 0 ? c : Long.compare(reservationId, other.reservationId);
+        }
+    }
+}
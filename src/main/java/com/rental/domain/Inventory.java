@@ -0,0 +1,222 @@
+package com.rental.domain;
+
+import com.rental.model.AvailableCars;
+import com.rental.model.VehicleType;
+import com.rental.util.IntLongHashMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rental car counts indexed by VehicleType then pickup zip. Lookups do not allocate.
+ *
+ * An Inventory is immutable once built; reloading builds a new instance.
+ *
+ * The inventory file is CSV with one row per bucket, an optional header and # comments:
+ * <pre>
+ * VehicleType,VehicleCount,PickupZipCode
+ * SEDANS,3,19701
+ * </pre>
+ * Rows repeating a (VehicleType, zip) bucket are summed.
+ */
+public class Inventory {
+
+    private static final byte[][] VEHICLE_TYPE_NAMES = new byte[VehicleType.values().length][];
+
+    static {
+        for (VehicleType vehicleType : VehicleType.values()) {
+            VEHICLE_TYPE_NAMES[vehicleType.ordinal()] = vehicleType.getValue().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Map<VehicleType, IntLongHashMap> countsByZip;
+
+    private Inventory(Map<VehicleType, IntLongHashMap> countsByZip) {
+        this.countsByZip = countsByZip;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long getVehicleCount(VehicleType vehicleType, int zipCode) {
+        return countsByZip.get(vehicleType).get(zipCode, 0L);
+    }
+
+    public int size() {
+        int size = 0;
+        for (IntLongHashMap counts : countsByZip.values()) {
+            size += counts.size();
+        }
+        return size;
+    }
+
+    public void forEach(InventoryConsumer consumer) {
+        countsByZip.forEach((vehicleType, counts) -> counts.forEach((zipCode, vehicleCount) -> consumer.accept(vehicleType, zipCode, vehicleCount)));
+    }
+
+    public Set<AvailableCars> getAvailableCars() {
+        Set<AvailableCars> availableCars = new HashSet<>();
+        forEach((vehicleType, zipCode, vehicleCount) -> availableCars.add(AvailableCars.builder().vehicleType(vehicleType).vehicleCount(vehicleCount).pickupZip(zipCode).build()));
+        return availableCars;
+    }
+
+    @FunctionalInterface
+    public interface InventoryConsumer {
+        void accept(VehicleType vehicleType, int zipCode, long vehicleCount);
+    }
+
+    public static Inventory load(Path inventoryFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(inventoryFile, StandardOpenOption.READ)) {
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static Inventory load(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return parse(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    // single pass over the bytes, no String per row
+    static Inventory parse(ByteBuffer buffer) throws IOException {
+        Builder builder = builder();
+        int lineNumber = 0;
+        while (buffer.hasRemaining()) {
+            lineNumber++;
+            int lineStart = buffer.position();
+            int lineEnd = lineStart;
+            while (lineEnd < buffer.limit() && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            buffer.position(Math.min(lineEnd + 1, buffer.limit()));
+            int end = lineEnd;
+            while (end > lineStart && isBlank(buffer.get(end - 1))) {
+                end--;
+            }
+            int start = lineStart;
+            while (start < end && isBlank(buffer.get(start))) {
+                start++;
+            }
+            if (start == end || buffer.get(start) == '#') {
+                continue;
+            }
+            int firstComma = indexOf(buffer, start, end, (byte) ',');
+            int secondComma = firstComma < 0 ? -1 : indexOf(buffer, firstComma + 1, end, (byte) ',');
+            if (secondComma < 0) {
+                throw new IOException("Invalid inventory row at line " + lineNumber);
+            }
+            VehicleType vehicleType = parseVehicleType(buffer, start, firstComma);
+            if (vehicleType == null) {
+                if (lineNumber == 1) {
+                    continue;
+                }
+                throw new IOException("Invalid vehicle type at line " + lineNumber);
+            }
+            long vehicleCount = parseLong(buffer, firstComma + 1, secondComma, Long.MAX_VALUE, lineNumber);
+            int zipCode = (int) parseLong(buffer, secondComma + 1, end, Integer.MAX_VALUE, lineNumber);
+            builder.add(vehicleType, zipCode, vehicleCount);
+        }
+        return builder.build();
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static VehicleType parseVehicleType(ByteBuffer buffer, int from, int to) {
+        while (from < to && isBlank(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(buffer.get(to - 1))) {
+            to--;
+        }
+        for (VehicleType vehicleType : VehicleType.values()) {
+            byte[] name = VEHICLE_TYPE_NAMES[vehicleType.ordinal()];
+            if (name.length == to - from) {
+                int i = 0;
+                while (i < name.length && name[i] == buffer.get(from + i)) {
+                    i++;
+                }
+                if (i == name.length) {
+                    return vehicleType;
+                }
+            }
+        }
+        return null;
+    }
+
+    // digits with optional surrounding blanks, rejecting values above max
+    private static long parseLong(ByteBuffer buffer, int from, int to, long max, int lineNumber) throws IOException {
+        while (from < to && isBlank(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(buffer.get(to - 1))) {
+            to--;
+        }
+        if (from == to) {
+            throw new IOException("Missing number at line " + lineNumber);
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                throw new IOException("Invalid number at line " + lineNumber);
+            }
+            if (value > (max - (b - '0')) / 10) {
+                throw new IOException("Number out of range at line " + lineNumber);
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    public static class Builder {
+
+        private final Map<VehicleType, IntLongHashMap> countsByZip = new EnumMap<>(VehicleType.class);
+
+        private Builder() {
+            for (VehicleType vehicleType : VehicleType.values()) {
+                countsByZip.put(vehicleType, new IntLongHashMap());
+            }
+        }
+
+        public Builder add(VehicleType vehicleType, int zipCode, long vehicleCount) {
+            countsByZip.get(vehicleType).addTo(zipCode, vehicleCount);
+            return this;
+        }
+
+        public Builder add(AvailableCars availableCars) {
+            return add(availableCars.getVehicleType(), availableCars.getPickupZip(), availableCars.getVehicleCount());
+        }
+
+        public Inventory build() {
+            Map<VehicleType, IntLongHashMap> counts = new EnumMap<>(VehicleType.class);
+            countsByZip.forEach((vehicleType, zipCounts) -> counts.put(vehicleType, zipCounts.copy()));
+            return new Inventory(counts);
+        }
+    }
+}
@@ -1,37 +1,320 @@
 package com.rental.domain;
 
+import com.rental.analytics.FleetAnalytics;
+import com.rental.analytics.FleetReport;
+import com.rental.analytics.FleetReportBuilder;
+import com.rental.domain.index.AvailabilityCache;
+import com.rental.domain.index.AvailabilityCalendar;
+import com.rental.domain.index.CustomerReservationIndex;
+import com.rental.domain.index.ReservationIndex;
+import com.rental.domain.store.ColdReservationStore;
+import com.rental.domain.store.ColumnarReservationStore;
+import com.rental.events.ReservationEvent;
+import com.rental.events.ReservationEventBus;
+import com.rental.metrics.LatencyHistogram;
+import com.rental.metrics.MetricsRegistry;
 import com.rental.model.*;
+import com.rental.persistence.JournalRecord;
+import com.rental.persistence.ReservationJournal;
+import com.rental.persistence.SnapshotFile;
+import com.rental.replication.ReplicationLog;
+import com.rental.util.TimeKeyUtil;
 import com.rental.validator.ErrorCode;
 import com.rental.validator.InvalidRequestException;
 import lombok.Data;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Data
-public class ReservationSystem {
+public class ReservationSystem implements Closeable {
 
     private static AtomicLong reservationNumberGen = new AtomicLong(910000000000L);
     private static AtomicLong customerNumberGen = new AtomicLong(70000000000L);
-    private static ReservationSystem instance;
+    private static AtomicLong moveSequenceGen = new AtomicLong();
+    private static volatile ReservationSystem instance;
+    private static final LatencyHistogram EXPIRY_SWEEP_TIMER = MetricsRegistry.getInstance().timer("reservationSystem.expirySweep");
+    private static final LatencyHistogram CUSTOMER_OVERLAP_TIMER = MetricsRegistry.getInstance().timer("reservationSystem.customerOverlap");
+    private static final LatencyHistogram BUCKET_OVERLAP_TIMER = MetricsRegistry.getInstance().timer("reservationSystem.bucketOverlap");
+    private static final LatencyHistogram LOCK_WAIT_TIMER = MetricsRegistry.getInstance().timer("reservationSystem.lockWait");
+    private static final LatencyHistogram JOURNAL_SYNC_TIMER = MetricsRegistry.getInstance().timer("reservationSystem.journalSync");
+    private static final LatencyHistogram ARCHIVE_TIMER = MetricsRegistry.getInstance().timer("reservationSystem.archive");
+    private static final LongAdder SNAPSHOT_ERRORS = MetricsRegistry.getInstance().counter("reservationSystem.snapshotErrors");
+    private static final LongAdder ARCHIVE_ERRORS = MetricsRegistry.getInstance().counter("reservationSystem.archiveErrors");
+    private static final int ARCHIVE_BATCH = 4096;
     private Map<Long, Reservation> reservationMap;
     private Map<Long, Customer> customerMap;
-    private Set<AvailableCars> availableCars;
+    private volatile Inventory inventory;
+    private final ReservationIndex reservationIndex;
+    private final CustomerReservationIndex customerReservationIndex;
+    private final ConcurrentHashMap<String, Long> customerIdByEmail;
+    private final ExpiryEngine expiryEngine;
+    private final AvailabilityCalendar availabilityCalendar;
+    private final AvailabilityCache availabilityCache;
+    private final FleetAnalytics fleetAnalytics = new FleetAnalytics();
+    private final BucketLocks bucketLocks;
+    private final BucketLocks customerLocks;
+    private final boolean sharedCustomers;
+    private final int shardIndex;
+    private final Path journalDirectory;
+    private final ReservationJournal journal;
+    // set by a ReplicationPrimary streaming this system's mutations
+    private volatile ReplicationLog replicationLog;
+    private final ReservationEventBus eventBus;
+    private final ColdReservationStore coldStore;
+    // cancelled and expired reservations waiting to move to the cold store
+    private final Queue<Long> archiveQueue = new ConcurrentLinkedQueue<>();
+    private long snapshotLoadMillis;
+    private long replayedRecords;
+    private long replayMillis;
+    private long startupMillis;
+    private ScheduledExecutorService snapshotScheduler;
+    // reservation id to move sequence of the MOVE records replayed at startup whose reservation is still here
+    private final Map<Long, Long> replayedMoves = new HashMap<>();
+    // last failure of a background snapshot or archive run, null after a successful one
+    private volatile Exception backgroundFailure;
 
     private ReservationSystem() {
-        reservationMap = new ConcurrentHashMap<>();
-        customerMap = new ConcurrentHashMap<>();
-        availableCars = new HashSet<>();
+        this(new CustomerDirectory(), 0, System.getProperty("rental.journal.dir") == null ? null : Paths.get(System.getProperty("rental.journal.dir")), new ReservationEventBus(),
+                System.getProperty("rental.cold.dir") == null ? null : Paths.get(System.getProperty("rental.cold.dir")), false);
+    }
+
+    // one shard of ShardedRentalService: own reservations, indexes, expiry and journal (null disables it), customers shared through the directory
+    public ReservationSystem(CustomerDirectory customers, int shardIndex, Path journalDirectory, ReservationEventBus eventBus) {
+        this(customers, shardIndex, journalDirectory, eventBus, null);
+    }
+
+    // as above, archiving inactive reservations to a cold store in coldDirectory (null keeps them in reservationMap)
+    public ReservationSystem(CustomerDirectory customers, int shardIndex, Path journalDirectory, ReservationEventBus eventBus, Path coldDirectory) {
+        this(customers, shardIndex, journalDirectory, eventBus, coldDirectory, true);
+    }
+
+    private ReservationSystem(CustomerDirectory customers, int shardIndex, Path journalDirectory, ReservationEventBus eventBus, Path coldDirectory, boolean sharedCustomers) {
+        long startupStarted = System.nanoTime();
+        reservationMap = newReservationMap();
+        customerMap = customers.getCustomerMap();
+        reservationIndex = new ReservationIndex();
+        customerReservationIndex = customers.getCustomerReservationIndex();
+        customerIdByEmail = customers.getCustomerIdByEmail();
+        customerLocks = customers.getCustomerLocks();
+        this.sharedCustomers = sharedCustomers;
+        this.shardIndex = shardIndex;
+        this.journalDirectory = journalDirectory;
+        this.eventBus = eventBus;
+        expiryEngine = new ExpiryEngine();
+        availabilityCalendar = new AvailabilityCalendar();
+        bucketLocks = new BucketLocks(Integer.getInteger("rental.lock.stripes", 1024));
+        availabilityCache = newAvailabilityCache(bucketLocks);
         initializeRentalCars();
+        coldStore = openColdStore(coldDirectory);
+        journal = openJournal();
+        expiryEngine.start(Long.getLong("rental.expiry.tickMillis", 1000L), coldStore == null ? this::markReservationsExpired : this::expireAndArchiveReservations);
+        startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startupStarted);
+        if (journal != null) {
+            startSnapshots(Long.getLong("rental.snapshot.intervalSeconds", 600L));
+        }
+    }
+
+    // restores the latest snapshot in the journal directory, replays the journal segments written after it, then appends to the last segment
+    private ReservationJournal openJournal() {
+        if (journalDirectory == null) {
+            return null;
+        }
+        try {
+            Path directory = journalDirectory;
+            Files.createDirectories(directory);
+            long fromSegment = loadLatestSnapshot(directory);
+            long replayStarted = System.nanoTime();
+            ReservationJournal opened = ReservationJournal.open(directory, fromSegment, record -> {
+                replayedRecords++;
+                applyJournalRecord(record);
+                if (record.getType() == JournalRecord.Type.MOVE) {
+                    replayedMoves.put(record.getReservationId(), record.getMoveSequence());
+                    moveSequenceGen.accumulateAndGet(record.getMoveSequence(), Math::max);
+                } else if (record.getType() == JournalRecord.Type.REMOVE || record.getType() == JournalRecord.Type.ARCHIVE) {
+                    replayedMoves.remove(record.getReservationId());
+                }
+            });
+            replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replayStarted);
+            return opened;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open reservation journal", e);
+        }
+    }
+
+    // without a journal the archived ids are the only record of ids already issued
+    private static ColdReservationStore openColdStore(Path coldDirectory) {
+        if (coldDirectory == null) {
+            return null;
+        }
+        try {
+            ColdReservationStore store = new ColdReservationStore(coldDirectory);
+            reservationNumberGen.accumulateAndGet(store.getMaxReservationId() + 1, Math::max);
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open cold reservation store", e);
+        }
+    }
+
+    // returns the first journal segment to replay on top of the snapshot
+    private long loadLatestSnapshot(Path directory) throws IOException {
+        List<Long> snapshots = SnapshotFile.list(directory);
+        if (snapshots.isEmpty()) {
+            return 1L;
+        }
+        long loadStarted = System.nanoTime();
+        long[] fromSegment = new long[1];
+        Inventory.Builder inventoryBuilder = Inventory.builder();
+        SnapshotFile.read(SnapshotFile.path(directory, snapshots.get(snapshots.size() - 1)), new SnapshotFile.Handler() {
+            @Override
+            public void header(long segment, long nextReservationId, long nextCustomerId) {
+                fromSegment[0] = segment;
+                reservationNumberGen.accumulateAndGet(nextReservationId, Math::max);
+                customerNumberGen.accumulateAndGet(nextCustomerId, Math::max);
+            }
+
+            @Override
+            public void inventory(VehicleType vehicleType, int zipCode, long vehicleCount) {
+                inventoryBuilder.add(vehicleType, zipCode, vehicleCount);
+            }
+
+            @Override
+            public void customer(Customer customer) {
+                customerMap.put(customer.getCustomerId(), customer);
+                customerIdByEmail.putIfAbsent(customer.getEmail(), customer.getCustomerId());
+            }
+
+            @Override
+            public void reservation(Reservation reservation) {
+                reservationMap.put(reservation.getReservationId(), reservation);
+            }
+        });
+        inventory = inventoryBuilder.build();
+        rebuildIndexes();
+        snapshotLoadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStarted);
+        return fromSegment[0];
+    }
+
+    /**
+     * Fuzzy checkpoint: rolls the journal, writes the current state without pausing bookings and then drops
+     * the segments and snapshots it covers. Mutations racing with the snapshot are also in the new segment,
+     * and replaying them on top of the snapshot is idempotent.
+     */
+    public synchronized Path writeSnapshot() throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("Reservation journal is not enabled");
+        }
+        Path directory = journalDirectory;
+        long segment = journal.roll();
+        Path snapshot;
+        try (SnapshotFile.Writer writer = SnapshotFile.writer(directory, segment, reservationNumberGen.get(), customerNumberGen.get())) {
+            for (AvailableCars availableCars : inventory.getAvailableCars()) {
+                writer.inventory(availableCars.getVehicleType(), availableCars.getPickupZip(), availableCars.getVehicleCount());
+            }
+            for (Customer customer : customerMap.values()) {
+                synchronized (customer) {
+                    writer.customer(customer);
+                }
+            }
+            for (Reservation reservation : reservationMap.values()) {
+                writer.reservation(reservation);
+            }
+            snapshot = writer.commit();
+        }
+        journal.deleteSegmentsBefore(segment);
+        for (long older : SnapshotFile.list(directory)) {
+            if (older < segment) {
+                Files.deleteIfExists(SnapshotFile.path(directory, older));
+            }
+        }
+        return snapshot;
+    }
+
+    private void startSnapshots(long intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                writeSnapshot();
+                backgroundFailure = null;
+            } catch (IOException | RuntimeException e) {
+                // retried on the next interval; the journal still holds everything since the last snapshot
+                SNAPSHOT_ERRORS.increment();
+                backgroundFailure = e;
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the expiry tick and the snapshot scheduler, waiting for a running snapshot, then flushes and
+     * closes the journal and the cold store. The system must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        expiryEngine.stop();
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = snapshotScheduler;
+            snapshotScheduler = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (coldStore != null) {
+            coldStore.close();
+        }
+    }
+
+    // rental.store=columnar keeps reservations in primitive columns instead of an object graph per booking
+    private static Map<Long, Reservation> newReservationMap() {
+        return "columnar".equals(System.getProperty("rental.store")) ? new ColumnarReservationStore() : new ConcurrentHashMap<>();
+    }
+
+    // rental.availabilityCache.size overlap counts (default 65536), 0 disables the cache
+    private static AvailabilityCache newAvailabilityCache(BucketLocks bucketLocks) {
+        int size = Integer.getInteger("rental.availabilityCache.size", 65536);
+        return size <= 0 ? null : new AvailabilityCache(size, bucketLocks.getBucketStripes());
     }
 
     public static ReservationSystem getInstance() {
         if (instance == null) {
-            instance = new ReservationSystem();
+            synchronized (ReservationSystem.class) {
+                if (instance == null) {
+                    instance = new ReservationSystem();
+                }
+            }
         }
         return instance;
     }
@@ -45,61 +328,352 @@ public class ReservationSystem {
     }
 
 
-    public Long createNewReservation(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) throws InvalidRequestException {
+    public Long createNewReservation(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
         Long reservationId = generateReservationId();
         Reservation reservation = new Reservation(reservationId, custId, vehicleType, zipCode, reservationPeriod, true);
         reservationMap.putIfAbsent(reservationId, reservation);
+        indexReservation(reservation);
+        fleetAnalytics.add(reservation);
+        journal(JournalRecord.ofReservation(JournalRecord.Type.CREATE, reservation));
+        eventBus.publish(ReservationEvent.Type.CREATED, reservation);
         return reservationId;
     }
 
+    // checks availability and creates the reservation atomically under the bucket and customer locks
+    public Long reserveIfAvailable(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        ReentrantLock bucketLock = bucketLocks.bucketLock(vehicleType, zipCode);
+        ReentrantLock customerLock = customerLocks.customerLock(custId);
+        Long reservationId;
+        long lockStarted = System.nanoTime();
+        bucketLock.lock();
+        customerLock.lock();
+        LOCK_WAIT_TIMER.recordSince(lockStarted);
+        try {
+            if (!isRentalAvailable(custId, vehicleType, zipCode, reservationPeriod)) {
+                return null;
+            }
+            reservationId = createNewReservation(custId, vehicleType, zipCode, reservationPeriod);
+        } finally {
+            customerLock.unlock();
+            bucketLock.unlock();
+        }
+        syncJournal();
+        return reservationId;
+    }
+
+    // reserves a group of requests for one bucket under a single bucket lock; rejected entries are left null
+    public Long[] reserveAllIfAvailable(VehicleType vehicleType, int zipCode, List<Long> custIds, List<ReservationPeriod> reservationPeriods) {
+        Long[] reservationIds = new Long[custIds.size()];
+        long vehicleCount = inventory.getVehicleCount(vehicleType, zipCode);
+        if (vehicleCount <= 0) {
+            return reservationIds;
+        }
+        ReentrantLock bucketLock = bucketLocks.bucketLock(vehicleType, zipCode);
+        long lockStarted = System.nanoTime();
+        bucketLock.lock();
+        LOCK_WAIT_TIMER.recordSince(lockStarted);
+        try {
+            for (int i = 0; i < reservationIds.length; i++) {
+                Long custId = custIds.get(i);
+                ReservationPeriod reservationPeriod = reservationPeriods.get(i);
+                ReentrantLock customerLock = customerLocks.customerLock(custId);
+                customerLock.lock();
+                try {
+                    if (!isIntervalReservationExistsForCustomerId(custId, reservationPeriod)
+                            && vehicleCount > getIntervalReservationsByVehicleTypeZipCode(vehicleType, zipCode, reservationPeriod)) {
+                        reservationIds[i] = createNewReservation(custId, vehicleType, zipCode, reservationPeriod);
+                    }
+                } finally {
+                    customerLock.unlock();
+                }
+            }
+        } finally {
+            bucketLock.unlock();
+        }
+        syncJournal();
+        return reservationIds;
+    }
+
     public Reservation cancelReservation(Long reservationId) throws InvalidRequestException{
+        return tryCancelReservation(reservationId).getOrThrow();
+    }
+
+    // cancelReservation reporting a missing or already cancelled reservation as ERR09 instead of throwing
+    public OperationResult<Reservation> tryCancelReservation(Long reservationId) {
         Reservation cancelRes = reservationMap.get(reservationId);
-        if(cancelRes!=null && cancelRes.isReserved()==true){
-            cancelRes.setReserved(false);
-        }else{
-            throw new InvalidRequestException("Reservation already expired");
+        if(cancelRes==null){
+            return OperationResult.rejected(ErrorCode.ERR09);
+        }
+        ReentrantLock bucketLock = lockBucketOf(cancelRes);
+        Reservation cancelled;
+        try {
+            Reservation current = reservationMap.get(reservationId);
+            if(current!=null && current.isReserved()==true){
+                cancelled = newVersion(current).isReserved(false).build();
+                reservationMap.put(reservationId, cancelled);
+                unindexReservation(current);
+                fleetAnalytics.cancel(current);
+                queueForArchive(reservationId);
+                journal(JournalRecord.ofCancel(reservationId));
+                eventBus.publish(ReservationEvent.Type.CANCELLED, cancelled);
+            }else{
+                return OperationResult.rejected(ErrorCode.ERR09);
+            }
+        } finally {
+            bucketLock.unlock();
         }
-        return cancelRes;
+        syncJournal();
+        return OperationResult.ok(cancelled);
     }
 
-    private AvailableCars getAvailableCar(VehicleType vehicleType, int zipCode){
-        AvailableCars searchCriteria = AvailableCars.builder().vehicleType(vehicleType).vehicleCount(0).pickupZip(zipCode).build();
-        return availableCars.stream().filter(car -> car.equals(searchCriteria)).findFirst().orElse(null);
+    // the bucket of a reservation only changes under its bucket lock, so re-check the latest version after locking;
+    // callers re-read the reservation once the lock is held
+    private ReentrantLock lockBucketOf(Reservation reservation) {
+        long lockStarted = System.nanoTime();
+        while (true) {
+            ReentrantLock bucketLock = bucketLocks.bucketLock(reservation.getVehicleType(), reservation.getZipcode());
+            bucketLock.lock();
+            Reservation current = reservationMap.get(reservation.getReservationId());
+            if (current == null || bucketLock == bucketLocks.bucketLock(current.getVehicleType(), current.getZipcode())) {
+                LOCK_WAIT_TIMER.recordSince(lockStarted);
+                return bucketLock;
+            }
+            bucketLock.unlock();
+            reservation = current;
+        }
     }
 
+    // a car of the bucket free for the whole period, whoever books it; for a reservation that keeps its period and changes bucket
+    private boolean hasFreeVehicle(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        return inventory.getVehicleCount(vehicleType, zipCode) > getIntervalReservationsByVehicleTypeZipCode(vehicleType, zipCode, reservationPeriod);
+    }
 
-    public boolean isRentalAvailable(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) throws InvalidRequestException{
-        boolean isAvailable = false;
-        AvailableCars returnedCar = getAvailableCar(vehicleType,zipCode);
-        boolean isIntervalReservationExistsForCustId = isIntervalReservationExistsForCustomerId(custId,reservationPeriod);
-        long existingReservationCountForPeriod = getIntervalReservationsByVehicleTypeZipCode(vehicleType,zipCode,reservationPeriod);
-        if(!isIntervalReservationExistsForCustId && returnedCar != null && returnedCar.getVehicleCount() > 0 && returnedCar.getVehicleCount()>existingReservationCountForPeriod){
-             isAvailable = true;
+    public boolean isRentalAvailable(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        long vehicleCount = inventory.getVehicleCount(vehicleType, zipCode);
+        if (vehicleCount <= 0) {
+            return false;
         }
-
-        return isAvailable;
+        boolean isIntervalReservationExistsForCustId = isIntervalReservationExistsForCustomerId(custId,reservationPeriod);
+        return !isIntervalReservationExistsForCustId && vehicleCount > getIntervalReservationsByVehicleTypeZipCode(vehicleType,zipCode,reservationPeriod);
     }
 
     public Reservation findExistingReservation(Long reservationId) throws InvalidRequestException {
-        Reservation existingReservation = Optional.ofNullable(reservationMap.get(reservationId)).orElseThrow(() -> new InvalidRequestException(ErrorCode.ERR02.getValue() + " "));
+        Reservation existingReservation = reservationMap.get(reservationId);
+        if (existingReservation == null) {
+            existingReservation = findArchivedReservation(reservationId);
+        }
+        if (existingReservation == null) {
+            throw new InvalidRequestException(ErrorCode.ERR02.getValue() + " ");
+        }
         return existingReservation;
     }
 
+    // the reservation from the cold store, or null; archived reservations are read only
+    public Reservation findArchivedReservation(Long reservationId) {
+        if (coldStore == null) {
+            return null;
+        }
+        try {
+            return coldStore.get(reservationId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read cold reservation store", e);
+        }
+    }
+
+    public boolean isArchived(Long reservationId) {
+        return coldStore != null && !reservationMap.containsKey(reservationId) && coldStore.contains(reservationId);
+    }
+
     public Reservation updateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) throws InvalidRequestException {
-        Reservation reservationTobeUpdated = findExistingReservation(reservationId);
+        return tryUpdateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, zipCode, reservationPeriod).getOrThrow();
+    }
+
+    // updateReservation reporting a missing reservation as ERR02 and a taken period as ERR08 instead of throwing
+    public OperationResult<Reservation> tryUpdateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        Reservation reservationTobeUpdated = reservationMap.get(reservationId);
+        if (reservationTobeUpdated == null) {
+            return OperationResult.rejected(ErrorCode.ERR02);
+        }
+        Reservation updated;
+        int newStripe = bucketLocks.bucketStripe(vehicleType, zipCode);
+        while (true) {
+            int oldStripe = bucketLocks.bucketStripe(reservationTobeUpdated.getVehicleType(), reservationTobeUpdated.getZipcode());
+            ReentrantLock firstLock = bucketLocks.bucketLock(Math.min(oldStripe, newStripe));
+            ReentrantLock secondLock = bucketLocks.bucketLock(Math.max(oldStripe, newStripe));
+            long lockStarted = System.nanoTime();
+            firstLock.lock();
+            secondLock.lock();
+            LOCK_WAIT_TIMER.recordSince(lockStarted);
+            try {
+                reservationTobeUpdated = reservationMap.get(reservationId);
+                if (reservationTobeUpdated == null) {
+                    return OperationResult.rejected(ErrorCode.ERR02);
+                }
+                if (oldStripe == bucketLocks.bucketStripe(reservationTobeUpdated.getVehicleType(), reservationTobeUpdated.getZipcode())) {
+                    ReentrantLock customerLock = customerLocks.customerLock(reservationTobeUpdated.getCustId());
+                    customerLock.lock();
+                    try {
+                        updated = updateLockedReservation(reservationTobeUpdated, firstName, lastName, phoneNo, vehicleType, zipCode, reservationPeriod);
+                        if (updated == null) {
+                            return OperationResult.rejected(ErrorCode.ERR08);
+                        }
+                        break;
+                    } finally {
+                        customerLock.unlock();
+                    }
+                }
+            } finally {
+                secondLock.unlock();
+                firstLock.unlock();
+            }
+        }
+        syncJournal();
+        return OperationResult.ok(updated);
+    }
+
+    /**
+     * updateReservation for a new zip code owned by another shard sharing this shard's CustomerDirectory.
+     * Both bucket locks are taken in (shardIndex, stripe) order before the customer lock, so moves in
+     * opposite directions cannot deadlock.
+     */
+    public Reservation moveReservation(Long reservationId, ReservationSystem target, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        return tryMoveReservation(reservationId, target, firstName, lastName, phoneNo, vehicleType, zipCode, reservationPeriod).getOrThrow();
+    }
+
+    // moveReservation reporting a missing reservation as ERR02 and a taken period as ERR08 instead of throwing
+    public OperationResult<Reservation> tryMoveReservation(Long reservationId, ReservationSystem target, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        Reservation reservationTobeMoved = reservationMap.get(reservationId);
+        if (reservationTobeMoved == null) {
+            return OperationResult.rejected(ErrorCode.ERR02);
+        }
+        ReentrantLock targetLock = target.bucketLocks.bucketLock(vehicleType, zipCode);
+        Reservation moved;
+        while (true) {
+            ReentrantLock sourceLock = bucketLocks.bucketLock(reservationTobeMoved.getVehicleType(), reservationTobeMoved.getZipcode());
+            boolean sourceFirst = shardIndex < target.shardIndex;
+            ReentrantLock firstLock = sourceFirst ? sourceLock : targetLock;
+            ReentrantLock secondLock = sourceFirst ? targetLock : sourceLock;
+            long lockStarted = System.nanoTime();
+            firstLock.lock();
+            secondLock.lock();
+            LOCK_WAIT_TIMER.recordSince(lockStarted);
+            try {
+                reservationTobeMoved = reservationMap.get(reservationId);
+                if (reservationTobeMoved == null) {
+                    return OperationResult.rejected(ErrorCode.ERR02);
+                }
+                if (sourceLock == bucketLocks.bucketLock(reservationTobeMoved.getVehicleType(), reservationTobeMoved.getZipcode())) {
+                    ReentrantLock customerLock = customerLocks.customerLock(reservationTobeMoved.getCustId());
+                    customerLock.lock();
+                    try {
+                        moved = moveLockedReservation(reservationTobeMoved, target, firstName, lastName, phoneNo, vehicleType, zipCode, reservationPeriod);
+                        if (moved == null) {
+                            return OperationResult.rejected(ErrorCode.ERR08);
+                        }
+                        break;
+                    } finally {
+                        customerLock.unlock();
+                    }
+                }
+            } finally {
+                secondLock.unlock();
+                firstLock.unlock();
+            }
+        }
+        syncJournal();
+        return OperationResult.ok(moved);
+    }
+
+    /**
+     * Null when the target bucket has no room. The target's MOVE record is forced before the REMOVE is
+     * journaled here, so a crash in between replays the reservation in both shards, never in neither;
+     * ShardedRentalService keeps the copy with the latest move sequence. The REMOVE is written before
+     * the locks are released, so it cannot land after a later move back into this shard.
+     */
+    private Reservation moveLockedReservation(Reservation reservationTobeMoved, ReservationSystem target, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        Long reservationId = reservationTobeMoved.getReservationId();
+        Customer returnedCustomer = customerMap.get(reservationTobeMoved.getCustId());
+        ReservationPeriod newReservationPeriod = reservationTobeMoved.getReservationPeriod();
+        if (!newReservationPeriod.equals(reservationPeriod)) {
+            if (target.isRentalAvailable(returnedCustomer.getCustomerId(), vehicleType, zipCode, reservationPeriod)) {
+                newReservationPeriod = reservationPeriod;
+            } else {
+                return null;
+            }
+        } else if (!target.hasFreeVehicle(vehicleType, zipCode, reservationPeriod)) {
+            //always another bucket
+            return null;
+        }
+        returnedCustomer.setFirstName(firstName);
+        returnedCustomer.setLastName(lastName);
+        returnedCustomer.setPhoneNo(phoneNo);
+
+        Reservation moved = newVersion(reservationTobeMoved).vehicleType(vehicleType).zipcode(zipCode).reservationPeriod(newReservationPeriod).build();
+        if (reservationTobeMoved.isReserved()) {
+            unindexReservation(reservationTobeMoved);
+            fleetAnalytics.remove(reservationTobeMoved);
+        }
+        reservationMap.remove(reservationId);
+        target.reservationMap.put(reservationId, moved);
+        if (moved.isReserved()) {
+            target.indexReservation(moved);
+            target.fleetAnalytics.add(moved);
+        } else {
+            target.queueForArchive(reservationId);
+        }
+        target.journal(JournalRecord.ofCustomer(returnedCustomer));
+        target.journal(JournalRecord.ofMove(moved, moveSequenceGen.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()))));
+        target.syncJournal();
+        journal(JournalRecord.ofRemove(reservationId));
+        target.eventBus.publish(ReservationEvent.Type.UPDATED, moved);
+        return moved;
+    }
+
+    /**
+     * Drops the copy of a reservation this shard replayed although another shard replayed a later move
+     * of it, left by a crash between the two journal writes of moveLockedReservation.
+     */
+    public void removeStaleMovedReservation(Long reservationId) {
+        Reservation stale = reservationMap.get(reservationId);
+        if (stale == null) {
+            return;
+        }
+        ReentrantLock bucketLock = lockBucketOf(stale);
+        try {
+            stale = reservationMap.get(reservationId);
+            if (stale == null) {
+                return;
+            }
+            if (stale.isReserved()) {
+                unindexReservation(stale);
+                fleetAnalytics.remove(stale);
+            }
+            reservationMap.remove(reservationId);
+            journal(JournalRecord.ofRemove(reservationId));
+        } finally {
+            bucketLock.unlock();
+        }
+        syncJournal();
+    }
+
+    // null when the new period is not available
+    private Reservation updateLockedReservation(Reservation reservationTobeUpdated, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        Long reservationId = reservationTobeUpdated.getReservationId();
         if(reservationTobeUpdated!=null){
 
             Customer returnedCustomer = customerMap.get(reservationTobeUpdated.getCustId());
+            ReservationPeriod newReservationPeriod = reservationTobeUpdated.getReservationPeriod();
 
-            if(reservationTobeUpdated.getReservationPeriod().getStartDateTime()!=reservationPeriod.getStartDateTime()
-                    || reservationTobeUpdated.getReservationPeriod().getEndDateTime()!=reservationPeriod.getEndDateTime()){
+            if(!reservationTobeUpdated.getReservationPeriod().equals(reservationPeriod)){
                 if(isRentalAvailable(returnedCustomer.getCustomerId(),vehicleType,zipCode,reservationPeriod)){
-                    reservationTobeUpdated.setReservationPeriod(reservationPeriod);
-                    reservationMap.put(reservationId,reservationTobeUpdated);
+                    newReservationPeriod = reservationPeriod;
                 }else{
-                    throw new InvalidRequestException("Rental car is not available");
+                    return null;
                 }
 
+            }else if((reservationTobeUpdated.getVehicleType()!=vehicleType || reservationTobeUpdated.getZipcode()!=zipCode)
+                    && !hasFreeVehicle(vehicleType,zipCode,reservationPeriod)){
+                return null;
             }
 
 
@@ -114,13 +688,19 @@ public class ReservationSystem {
             }
 
             customerMap.put(returnedCustomer.getCustomerId(), returnedCustomer);
-            if(reservationTobeUpdated.getVehicleType()!= vehicleType){
-                reservationTobeUpdated.setVehicleType(vehicleType);
-            }
-            if(reservationTobeUpdated.getZipcode()!=zipCode){
-                reservationTobeUpdated.setZipcode(zipCode);
+            //publish a new version, readers keep whichever version they already hold
+            Reservation updated = newVersion(reservationTobeUpdated).vehicleType(vehicleType).zipcode(zipCode).reservationPeriod(newReservationPeriod).build();
+            reservationMap.put(reservationId, updated);
+            if(reservationTobeUpdated.isReserved()){
+                unindexReservation(reservationTobeUpdated);
+                indexReservation(updated);
+                fleetAnalytics.remove(reservationTobeUpdated);
+                fleetAnalytics.add(updated);
             }
-
+            journal(JournalRecord.ofCustomer(returnedCustomer));
+            journal(JournalRecord.ofReservation(JournalRecord.Type.UPDATE, updated));
+            eventBus.publish(ReservationEvent.Type.UPDATED, updated);
+            return updated;
         }
         return reservationTobeUpdated;
     }
@@ -128,12 +708,23 @@ public class ReservationSystem {
 
 
     public Long returnCustomerId(String firstName, String lastName, Long phoneNo, String email, int age) throws InvalidRequestException {
-        //Optional<Long> customerId = customerMap.entrySet().stream().filter(custMap->custMap.getKey().equals(email)).map(custMap->custMap.getValue().getCustomerId()).findAny();
-        List<Customer> customerList = customerMap.entrySet().stream()
-                .map(custMap->custMap.getValue())
-                .filter(cust -> cust.getEmail().equals(email)).collect(Collectors.toList());
-        if (customerList != null && customerList.size() == 1) {
-            Customer existingCustomer = Optional.ofNullable(customerList.get(0)).orElseThrow(() -> new InvalidRequestException(ErrorCode.ERR02.getValue() + " "));
+        Long custId = customerIdByEmail.get(email);
+        Long customerIdLookedUp = custId;
+        if (custId == null) {
+            custId = customerIdByEmail.computeIfAbsent(email, newEmail -> {
+                Long newCustId = generateCustomerId();
+                customerMap.putIfAbsent(newCustId, Customer.builder().customerId(newCustId).firstName(firstName).lastName(lastName).email(newEmail).age(age).phoneNo(phoneNo).build());
+                return newCustId;
+            });
+        }
+        Customer existingCustomer = customerMap.get(custId);
+        if (existingCustomer == null) {
+            throw new InvalidRequestException(ErrorCode.ERR02.getValue() + " ");
+        }
+        boolean profileChanged = customerIdLookedUp == null;
+        synchronized (existingCustomer) {
+            profileChanged |= existingCustomer.getAge() != age || !Objects.equals(existingCustomer.getFirstName(), firstName)
+                    || !Objects.equals(existingCustomer.getLastName(), lastName) || !Objects.equals(existingCustomer.getPhoneNo(), phoneNo);
             if(existingCustomer.getAge()!=age){
                 existingCustomer.setAge(age);
             }
@@ -146,25 +737,187 @@ public class ReservationSystem {
             if(existingCustomer.getPhoneNo()!=phoneNo) {
                 existingCustomer.setPhoneNo(phoneNo);
             }
+            if (profileChanged) {
+                journal(JournalRecord.ofCustomer(existingCustomer));
+            }
+        }
+        syncJournal();
+        return custId;
+    }
 
-            return existingCustomer.getCustomerId();
-        } else {
-            Long newCustId = generateCustomerId();
-            customerMap.putIfAbsent(newCustId, Customer.builder().customerId(newCustId).firstName(firstName).lastName(lastName).email(email).age(age).phoneNo(phoneNo).build());
-            return newCustId;
+    /**
+     * Bulk import keeping the exported customer ids. Result entries are null for imported customers and
+     * ERR10 when the id or the email already belongs to a customer.
+     */
+    public ErrorCode[] importCustomers(List<Customer> customers) {
+        ErrorCode[] results = new ErrorCode[customers.size()];
+        for (int i = 0; i < results.length; i++) {
+            Customer customer = customers.get(i);
+            //keep generated ids clear of the imported ones
+            customerNumberGen.accumulateAndGet(customer.getCustomerId() + 1, Math::max);
+            ReentrantLock customerLock = customerLocks.customerLock(customer.getCustomerId());
+            customerLock.lock();
+            try {
+                if (customerMap.putIfAbsent(customer.getCustomerId(), customer) != null) {
+                    results[i] = ErrorCode.ERR10;
+                } else if (customerIdByEmail.putIfAbsent(customer.getEmail(), customer.getCustomerId()) != null) {
+                    customerMap.remove(customer.getCustomerId());
+                    results[i] = ErrorCode.ERR10;
+                } else {
+                    journal(JournalRecord.ofCustomer(customer));
+                }
+            } finally {
+                customerLock.unlock();
+            }
         }
+        syncJournal();
+        return results;
+    }
 
+    /**
+     * Bulk import keeping the exported reservation ids. Result entries are null for imported reservations,
+     * ERR10 for an id that is taken, archived ones included, ERR02 for an unknown customer and ERR08 when an active reservation
+     * does not fit the inventory.
+     */
+    public ErrorCode[] importReservations(List<Reservation> reservations) {
+        ErrorCode[] results = new ErrorCode[reservations.size()];
+        for (int i = 0; i < results.length; i++) {
+            Reservation reservation = reservations.get(i);
+            reservationNumberGen.accumulateAndGet(reservation.getReservationId() + 1, Math::max);
+            ReentrantLock bucketLock = bucketLocks.bucketLock(reservation.getVehicleType(), reservation.getZipcode());
+            ReentrantLock customerLock = customerLocks.customerLock(reservation.getCustId());
+            long lockStarted = System.nanoTime();
+            bucketLock.lock();
+            customerLock.lock();
+            LOCK_WAIT_TIMER.recordSince(lockStarted);
+            try {
+                if (reservationMap.containsKey(reservation.getReservationId()) || isArchived(reservation.getReservationId())) {
+                    results[i] = ErrorCode.ERR10;
+                } else if (!customerMap.containsKey(reservation.getCustId())) {
+                    results[i] = ErrorCode.ERR02;
+                } else if (reservation.isReserved() && !isRentalAvailable(reservation.getCustId(), reservation.getVehicleType(), reservation.getZipcode(), reservation.getReservationPeriod())) {
+                    results[i] = ErrorCode.ERR08;
+                } else {
+                    reservationMap.put(reservation.getReservationId(), reservation);
+                    if (reservation.isReserved()) {
+                        indexReservation(reservation);
+                        fleetAnalytics.add(reservation);
+                    } else {
+                        queueForArchive(reservation.getReservationId());
+                    }
+                    journal(JournalRecord.ofReservation(JournalRecord.Type.CREATE, reservation));
+                    eventBus.publish(ReservationEvent.Type.CREATED, reservation);
+                }
+            } finally {
+                customerLock.unlock();
+                bucketLock.unlock();
+            }
+        }
+        syncJournal();
+        return results;
+    }
+
+    // applies a journaled mutation without journaling it again, e.g. while replaying at startup
+    public void applyJournalRecord(JournalRecord record) {
+        switch (record.getType()) {
+            case CUSTOMER:
+                Customer customer = customerMap.get(record.getCustId());
+                if (customer == null) {
+                    customer = Customer.builder().customerId(record.getCustId()).email(record.getEmail()).build();
+                    customerMap.put(record.getCustId(), customer);
+                }
+                customer.setFirstName(record.getFirstName());
+                customer.setLastName(record.getLastName());
+                customer.setPhoneNo(record.getPhoneNo());
+                customer.setAge(record.getAge());
+                customerIdByEmail.putIfAbsent(record.getEmail(), record.getCustId());
+                customerNumberGen.accumulateAndGet(record.getCustId() + 1, Math::max);
+                break;
+            case CREATE:
+            case UPDATE:
+            case MOVE:
+                Reservation existing = reservationMap.get(record.getReservationId());
+                if (existing != null && existing.isReserved()) {
+                    unindexReservation(existing);
+                    fleetAnalytics.remove(existing);
+                }
+                ReservationPeriod reservationPeriod = new ReservationPeriod(TimeKeyUtil.fromKey(record.getStartKey()), TimeKeyUtil.fromKey(record.getEndKey()));
+                Reservation reservation = new Reservation(record.getReservationId(), record.getCustId(), record.getVehicleType(), record.getZipCode(), reservationPeriod, record.isReserved());
+                reservationMap.put(reservation.getReservationId(), reservation);
+                if (reservation.isReserved()) {
+                    indexReservation(reservation);
+                    fleetAnalytics.add(reservation);
+                } else {
+                    queueForArchive(reservation.getReservationId());
+                }
+                reservationNumberGen.accumulateAndGet(record.getReservationId() + 1, Math::max);
+                break;
+            case CANCEL:
+            case EXPIRE:
+                Reservation inactive = reservationMap.get(record.getReservationId());
+                if (inactive != null && inactive.isReserved()) {
+                    reservationMap.put(record.getReservationId(), newVersion(inactive).isReserved(false).build());
+                    unindexReservation(inactive);
+                    if (record.getType() == JournalRecord.Type.CANCEL) {
+                        fleetAnalytics.cancel(inactive);
+                    } else {
+                        fleetAnalytics.expire(inactive);
+                    }
+                    queueForArchive(record.getReservationId());
+                }
+                break;
+            case REMOVE:
+            case ARCHIVE:
+                Reservation moved = reservationMap.get(record.getReservationId());
+                if (moved != null) {
+                    if (moved.isReserved()) {
+                        unindexReservation(moved);
+                        if (record.getType() == JournalRecord.Type.REMOVE) {
+                            fleetAnalytics.remove(moved);
+                        }
+                    }
+                    reservationMap.remove(record.getReservationId());
+                }
+                break;
+        }
+    }
+
+    private void journal(JournalRecord record) {
+        if (journal != null) {
+            journal.append(record);
+        }
+        ReplicationLog log = replicationLog;
+        if (log != null) {
+            log.append(record);
+        }
+    }
+
+    private void syncJournal() {
+        if (journal != null) {
+            long syncStarted = System.nanoTime();
+            journal.sync();
+            JOURNAL_SYNC_TIMER.recordSince(syncStarted);
+        }
     }
 
+    // loads rental car inventory from rental.inventory.file if set, otherwise from inventory.csv on the classpath
     private void initializeRentalCars() {
-        AvailableCars availableCars1 = AvailableCars.builder().vehicleType(VehicleType.SEDANS).vehicleCount(3).pickupZip(19701).build();
-        AvailableCars availableCars2 = AvailableCars.builder().vehicleType(VehicleType.SUVS).vehicleCount(10).pickupZip(19701).build();
-        AvailableCars availableCars3 = AvailableCars.builder().vehicleType(VehicleType.TRUCKS).vehicleCount(30).pickupZip(19701).build();
-        AvailableCars availableCars4 = AvailableCars.builder().vehicleType(VehicleType.VANS).vehicleCount(40).pickupZip(19701).build();
-        availableCars.add(availableCars1);
-        availableCars.add(availableCars2);
-        availableCars.add(availableCars3);
-        availableCars.add(availableCars4);
+        String inventoryFile = System.getProperty("rental.inventory.file");
+        try {
+            if (inventoryFile != null) {
+                inventory = Inventory.load(Paths.get(inventoryFile));
+            } else {
+                try (InputStream inventoryStream = ReservationSystem.class.getResourceAsStream("/inventory.csv")) {
+                    inventory = inventoryStream == null ? Inventory.builder().build() : Inventory.load(inventoryStream);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load rental car inventory", e);
+        }
+    }
+
+    public Set<AvailableCars> getAvailableCars() {
+        return inventory.getAvailableCars();
     }
 
     public Map<Long, Customer> getCustomerMap() {
@@ -173,6 +926,8 @@ public class ReservationSystem {
 
     public void setCustomerMap(Map<Long, Customer> customerMap) {
         this.customerMap = customerMap;
+        customerIdByEmail.clear();
+        customerMap.values().forEach(customer -> customerIdByEmail.putIfAbsent(customer.getEmail(), customer.getCustomerId()));
     }
 
 
@@ -182,61 +937,237 @@ public class ReservationSystem {
 
     public void setReservationMap(Map<Long, Reservation> reservationMap) {
         this.reservationMap = reservationMap;
+        rebuildIndexes();
     }
 
-    public void markReservationsExpired(){
-        if(reservationMap!=null && reservationMap.size()>0) {
-            Map<Long, Reservation> reservations = reservationMap.entrySet().stream().filter(resMap -> (resMap.getValue().isReserved() == true &&
-                    resMap.getValue().getReservationPeriod() != null &&
-                    (resMap.getValue().getReservationPeriod().getEndDateTime()).isBefore(LocalDateTime.now()))).collect(Collectors.toMap(resMap -> resMap.getKey(), resMap -> resMap.getValue()));
+    public int getPeakReservations(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        return availabilityCalendar.getPeak(vehicleType, zipCode, reservationPeriod);
+    }
 
-            if(reservations !=null && reservations.size()>0) {
-                reservations.forEach((id, reservation) -> {
-                    reservation.setReserved(false);
-                    reservationMap.put(id, reservation);
-                });
+    public ReservationPeriod findEarliestAvailablePeriod(VehicleType vehicleType, int zipCode, LocalDateTime from, Duration length) {
+        LocalDateTime start = availabilityCalendar.findEarliestStart(vehicleType, zipCode, from, length, inventory.getVehicleCount(vehicleType, zipCode));
+        return start == null ? null : new ReservationPeriod(start, start.plus(length));
+    }
+
+    // free cars per day: vehicle count less the busiest hour of the day
+    public Map<VehicleType, long[]> getDailyAvailability(int zipCode, LocalDate fromDay, int days) {
+        Map<VehicleType, long[]> dailyAvailability = new EnumMap<>(VehicleType.class);
+        for (VehicleType vehicleType : VehicleType.values()) {
+            long vehicleCount = inventory.getVehicleCount(vehicleType, zipCode);
+            int[] dailyPeaks = availabilityCalendar.getDailyPeaks(vehicleType, zipCode, fromDay, days);
+            long[] freeCounts = new long[days];
+            for (int day = 0; day < days; day++) {
+                freeCounts[day] = Math.max(0, vehicleCount - dailyPeaks[day]);
             }
+            dailyAvailability.put(vehicleType, freeCounts);
         }
+        return dailyAvailability;
     }
 
-    public boolean isIntervalReservationExistsForCustomerId(Long custId, ReservationPeriod reservationPeriod) {
-        boolean reservationExists = reservationMap.entrySet().stream().filter(resMap -> (resMap.getValue().isReserved()==true &&
-                resMap.getValue().getCustId().equals(custId) && resMap.getValue().getReservationPeriod()!=null &&
-                overlapTimeFrame(reservationPeriod,resMap.getValue().getReservationPeriod())==true)).findFirst().isPresent();
+    // utilization, demand by hour and cancellations per bucket from the running aggregates, without scanning reservations
+    public FleetReport getFleetReport(LocalDate fromDay, int days) {
+        return new FleetReportBuilder().add(fleetAnalytics, inventory).build(fromDay, days);
+    }
 
-        return  reservationExists;
+    public List<Reservation> getReservationsForCustomer(Long custId) {
+        return customerReservationIndex.getReservationIds(custId).stream()
+                .map(reservationMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
-    public long getIntervalReservationsByVehicleTypeZipCode(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod){
-        long reservationCount = reservationMap.entrySet().stream().filter(resMap -> (resMap.getValue().isReserved()==true &&
-                resMap.getValue().getVehicleType().equals(vehicleType) && resMap.getValue().getZipcode()==zipCode && resMap.getValue().getReservationPeriod()!=null &&
-                overlapTimeFrame(reservationPeriod,resMap.getValue().getReservationPeriod())==true)).count();
-        return  reservationCount;
+    // builder seeded through the getters, so columnar store views are copied too
+    private static Reservation.ReservationBuilder newVersion(Reservation reservation) {
+        return Reservation.builder().reservationId(reservation.getReservationId()).custId(reservation.getCustId()).vehicleType(reservation.getVehicleType())
+                .zipcode(reservation.getZipcode()).reservationPeriod(reservation.getReservationPeriod()).isReserved(reservation.isReserved());
+    }
+
+    private void indexReservation(Reservation reservation) {
+        reservationIndex.add(reservation);
+        customerReservationIndex.add(reservation);
+        availabilityCalendar.add(reservation.getVehicleType(), reservation.getZipcode(), reservation.getReservationPeriod());
+        if (reservation.getReservationPeriod() != null) {
+            expiryEngine.schedule(reservation.getReservationId(), reservation.getReservationPeriod().getEndDateTime());
+        }
+        invalidateAvailability(reservation.getVehicleType(), reservation.getZipcode());
+    }
+
+    private void unindexReservation(Reservation reservation) {
+        unindexReservation(reservation.getReservationId(), reservation.getCustId(), reservation.getVehicleType(), reservation.getZipcode(), reservation.getReservationPeriod());
+    }
+
+    private void unindexReservation(Long reservationId, Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        reservationIndex.remove(reservationId, vehicleType, zipCode, reservationPeriod);
+        customerReservationIndex.remove(reservationId, custId, reservationPeriod);
+        availabilityCalendar.remove(vehicleType, zipCode, reservationPeriod);
+        invalidateAvailability(vehicleType, zipCode);
+    }
+
+    // after the bucket's index changed, so a count cached under the new version is never older than the change
+    private void invalidateAvailability(VehicleType vehicleType, int zipCode) {
+        if (availabilityCache != null) {
+            availabilityCache.invalidate(bucketLocks.bucketStripe(vehicleType, zipCode));
+        }
+    }
+
+    // shards leave the shared customer index alone, it also holds the other shards' reservations
+    private void rebuildIndexes() {
+        reservationIndex.clear();
+        if (!sharedCustomers) {
+            customerReservationIndex.clear();
+        }
+        availabilityCalendar.clear();
+        expiryEngine.clear();
+        if (availabilityCache != null) {
+            availabilityCache.clear();
+        }
+        fleetAnalytics.clear();
+        archiveQueue.clear();
+        for (Reservation reservation : reservationMap.values()) {
+            if (reservation.isReserved()) {
+                indexReservation(reservation);
+                fleetAnalytics.add(reservation);
+            } else {
+                queueForArchive(reservation.getReservationId());
+            }
+        }
+    }
+
+    public void markReservationsExpired(){
+        long sweepStarted = System.nanoTime();
+        expiryEngine.drainDue(LocalDateTime.now(), this::expireReservation);
+        EXPIRY_SWEEP_TIMER.recordSince(sweepStarted);
+    }
+
+    private boolean expireReservation(long reservationId, long endKey) {
+        Reservation reservation = reservationMap.get(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        ReentrantLock bucketLock = lockBucketOf(reservation);
+        try {
+            reservation = reservationMap.get(reservationId);
+            if (reservation == null || !reservation.isReserved() || reservation.getReservationPeriod() == null
+                    || TimeKeyUtil.toKey(reservation.getReservationPeriod().getEndDateTime()) != endKey) {
+                return false;
+            }
+            Reservation expired = newVersion(reservation).isReserved(false).build();
+            reservationMap.put(reservationId, expired);
+            unindexReservation(reservation);
+            fleetAnalytics.expire(reservation);
+            queueForArchive(reservationId);
+            journal(JournalRecord.ofExpire(reservationId));
+            eventBus.publish(ReservationEvent.Type.EXPIRED, expired);
+            return true;
+        } finally {
+            bucketLock.unlock();
+        }
     }
 
-    private boolean overlapTimeFrame(ReservationPeriod period1, ReservationPeriod period2){
-        boolean overlap =true;
-        LocalDateTime p1StartTime=period1.getStartDateTime();
-        LocalDateTime p1EndTime= period1.getEndDateTime();
-        LocalDateTime p2StartTime=period2.getStartDateTime();
-        LocalDateTime p2EndTime=period2.getEndDateTime();
+    private void queueForArchive(Long reservationId) {
+        if (coldStore != null) {
+            archiveQueue.add(reservationId);
+        }
+    }
 
-        if(((p1StartTime.isBefore(p2StartTime) && (p1EndTime.isBefore(p2StartTime) || p1EndTime.isEqual(p2StartTime)))
-           || (p1EndTime.isAfter(p2EndTime) && (p1StartTime.isEqual(p2EndTime) || p1StartTime.isAfter(p2EndTime))))
+    // expiry tick with a cold store
+    private void expireAndArchiveReservations() {
+        markReservationsExpired();
+        try {
+            while (archiveInactiveReservations() == ARCHIVE_BATCH) {
+                // keep draining a backlog, e.g. after startup
+            }
+            backgroundFailure = null;
+        } catch (IOException | RuntimeException e) {
+            // the batch stays hot and is queued again on the next tick
+            ARCHIVE_ERRORS.increment();
+            backgroundFailure = e;
+        }
+    }
 
-           || ((p2StartTime.isBefore(p1StartTime) && (p2EndTime.isBefore(p1StartTime) || p2EndTime.isEqual(p1StartTime)))
-                        || (p2EndTime.isAfter(p1EndTime) && (p2StartTime.isEqual(p1EndTime) || p2StartTime.isAfter(p1EndTime))))
-                ){
-            overlap=false;
+    /**
+     * Moves up to one batch of cancelled and expired reservations to the cold store and returns the size
+     * of the batch. The batch is forced to disk before any of it leaves reservationMap, and a reservation
+     * changed in between stays hot and is archived again later. ARCHIVE journal records make replay drop
+     * archived reservations; ids whose removal was not journaled before a crash are archived twice and
+     * the later copy wins.
+     */
+    public int archiveInactiveReservations() throws IOException {
+        if (coldStore == null) {
+            return 0;
+        }
+        long archiveStarted = System.nanoTime();
+        List<Reservation> batch = new ArrayList<>();
+        Long reservationId;
+        while (batch.size() < ARCHIVE_BATCH && (reservationId = archiveQueue.poll()) != null) {
+            Reservation inactive = reservationMap.get(reservationId);
+            if (inactive != null && !inactive.isReserved()) {
+                batch.add(newVersion(inactive).build());
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            coldStore.append(batch);
+        } catch (IOException e) {
+            batch.forEach(archived -> archiveQueue.add(archived.getReservationId()));
+            throw e;
         }
-        return overlap;
+        for (Reservation archived : batch) {
+            ReentrantLock bucketLock = lockBucketOf(archived);
+            try {
+                Reservation current = reservationMap.get(archived.getReservationId());
+                if (current == null) {
+                    continue;
+                }
+                if (!archived.equals(newVersion(current).build())) {
+                    queueForArchive(archived.getReservationId());
+                    continue;
+                }
+                reservationMap.remove(archived.getReservationId());
+                journal(JournalRecord.ofArchive(archived.getReservationId()));
+            } finally {
+                bucketLock.unlock();
+            }
+        }
+        syncJournal();
+        ARCHIVE_TIMER.recordSince(archiveStarted);
+        return batch.size();
+    }
 
+    public boolean isIntervalReservationExistsForCustomerId(Long custId, ReservationPeriod reservationPeriod) {
+        long scanStarted = System.nanoTime();
+        boolean overlapping = customerReservationIndex.hasOverlapping(custId, reservationPeriod);
+        CUSTOMER_OVERLAP_TIMER.recordSince(scanStarted);
+        return overlapping;
+    }
+
+    public long getIntervalReservationsByVehicleTypeZipCode(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod){
+        long countStarted = System.nanoTime();
+        long version = 0L;
+        if (availabilityCache != null) {
+            version = availabilityCache.version(bucketLocks.bucketStripe(vehicleType, zipCode));
+            long cached = availabilityCache.get(vehicleType, zipCode, reservationPeriod, version);
+            if (cached >= 0) {
+                BUCKET_OVERLAP_TIMER.recordSince(countStarted);
+                return cached;
+            }
+        }
+        long overlapping = reservationIndex.countOverlapping(vehicleType, zipCode, reservationPeriod);
+        if (availabilityCache != null) {
+            //tagged with the version read before counting, so a change racing with the count retires it
+            availabilityCache.put(vehicleType, zipCode, reservationPeriod, version, overlapping);
+        }
+        BUCKET_OVERLAP_TIMER.recordSince(countStarted);
+        return overlapping;
     }
 
     public boolean checkReservationPeriodWithSysDateTime(ReservationPeriod reservationPeriod){
         boolean isReservationValid = false;
         if((reservationPeriod.getStartDateTime().isAfter(LocalDateTime.now().minus(Duration.ofHours(2))))
-                && (reservationPeriod.getEndDateTime().isAfter(reservationPeriod.getStartDateTime().plus(Duration.ofDays(1))))){
+                && (reservationPeriod.getEndDateTime().isAfter(reservationPeriod.getStartDateTime().plus(Duration.ofDays(1))))
+                && TimeKeyUtil.isEncodable(reservationPeriod.getEndDateTime())){
             isReservationValid = true;
 
         }
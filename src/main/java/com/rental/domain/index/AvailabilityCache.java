@@ -0,0 +1,225 @@
+package com.rental.domain.index;
+
+import com.rental.metrics.MetricsRegistry;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.util.TimeKeyUtil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded LRU cache of bucket overlap counts keyed by (VehicleType, pickupZip, period).
+ *
+ * Every entry carries the version its bucket had when the count was computed. The owner bumps a
+ * bucket's version after each change to the bucket's reservations, so lookups skip the entries of a
+ * changed bucket and nothing is ever flushed globally. Versions are striped (by the bucket lock
+ * stripe), so a change can also retire entries of other buckets on its stripe.
+ *
+ * Entries are spread over segments, each an access-ordered LinkedHashMap behind its own lock.
+ * Hits, misses, stale entries and evictions are counted in availabilityCache.* as well.
+ */
+public class AvailabilityCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicLongArray versions;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hitsMetric;
+    private final LongAdder missesMetric;
+    private final LongAdder staleMetric;
+    private final LongAdder evictionsMetric;
+
+    public AvailabilityCache(int maximumSize, int versionStripes) {
+        int segmentSize = Math.max(1, maximumSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        versions = new AtomicLongArray(versionStripes);
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        hitsMetric = registry.counter("availabilityCache.hits");
+        missesMetric = registry.counter("availabilityCache.misses");
+        staleMetric = registry.counter("availabilityCache.stale");
+        evictionsMetric = registry.counter("availabilityCache.evictions");
+    }
+
+    public long version(int stripe) {
+        return versions.get(stripe);
+    }
+
+    // call after the bucket's reservations changed
+    public void invalidate(int stripe) {
+        versions.incrementAndGet(stripe);
+    }
+
+    // the cached count for the bucket version, or -1
+    public long get(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod, long version) {
+        Key key = new Key(vehicleType, zipCode, reservationPeriod);
+        Entry entry = segmentFor(key).get(key);
+        if (entry != null && entry.version == version) {
+            hits.increment();
+            hitsMetric.increment();
+            return entry.count;
+        }
+        if (entry != null) {
+            stale.increment();
+            staleMetric.increment();
+        }
+        misses.increment();
+        missesMetric.increment();
+        return -1L;
+    }
+
+    public void put(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod, long version, long count) {
+        Key key = new Key(vehicleType, zipCode, reservationPeriod);
+        segmentFor(key).put(key, new Entry(version, count));
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // misses that found an entry of an older bucket version
+    public long getStale() {
+        return stale.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<Key, Entry> entries;
+
+        Segment(int capacity) {
+            entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        evictionsMetric.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Entry get(Key key) {
+            lock.lock();
+            try {
+                return entries.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(Key key, Entry entry) {
+            lock.lock();
+            try {
+                entries.put(key, entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                entries.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // periods are copied as time keys, a ReservationPeriod can still change after the lookup
+    private static final class Key {
+
+        private final int vehicleType;
+        private final int zipCode;
+        private final long startKey;
+        private final long endKey;
+
+        Key(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+            this.vehicleType = vehicleType.ordinal();
+            this.zipCode = zipCode;
+            this.startKey = TimeKeyUtil.toKey(reservationPeriod.getStartDateTime());
+            this.endKey = TimeKeyUtil.toKey(reservationPeriod.getEndDateTime());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return zipCode == other.zipCode && vehicleType == other.vehicleType && startKey == other.startKey && endKey == other.endKey;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = zipCode * 31 + vehicleType;
+            hash = hash * 31 + Long.hashCode(startKey);
+            return hash * 31 + Long.hashCode(endKey);
+        }
+    }
+
+    private static final class Entry {
+
+        private final long version;
+        private final long count;
+
+        Entry(long version, long count) {
+            this.version = version;
+            this.count = count;
+        }
+    }
+}
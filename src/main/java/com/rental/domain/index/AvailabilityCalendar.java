@@ -0,0 +1,244 @@
+package com.rental.domain.index;
+
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * Hourly occupancy timeline per (VehicleType, pickupZip) bucket, counted in hours since 1970-01-01.
+ * The timeline is split into chunks of CHUNK_DAYS days that are allocated by the first reservation
+ * touching them and dropped when their last one is removed, so memory follows the booked days and
+ * there is no horizon to fall off. A reservation occupies every hour it touches.
+ *
+ * Each timeline has a StampedLock: writers take the write lock, readers run optimistically and
+ * only fall back to the read lock when a write overlapped them.
+ */
+public class AvailabilityCalendar {
+
+    static final int CHUNK_DAYS = 32;
+    private static final int CHUNK_SLOTS = CHUNK_DAYS * OccupancyTimeline.SLOTS_PER_DAY;
+    private static final long SECONDS_PER_SLOT = 3600L;
+    private static final LocalDateTime EPOCH = LocalDate.ofEpochDay(0).atStartOfDay();
+
+    private final Map<VehicleType, ConcurrentHashMap<Integer, Timeline>> buckets = new EnumMap<>(VehicleType.class);
+
+    public AvailabilityCalendar() {
+        for (VehicleType vehicleType : VehicleType.values()) {
+            buckets.put(vehicleType, new ConcurrentHashMap<>());
+        }
+    }
+
+    public void add(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        update(vehicleType, zipCode, reservationPeriod, 1);
+    }
+
+    public void remove(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        update(vehicleType, zipCode, reservationPeriod, -1);
+    }
+
+    public void clear() {
+        buckets.values().forEach(Map::clear);
+    }
+
+    // chunks currently allocated over all buckets
+    public int getChunkCount() {
+        int chunks = 0;
+        for (ConcurrentHashMap<Integer, Timeline> timelines : buckets.values()) {
+            for (Timeline timeline : timelines.values()) {
+                chunks += timeline.chunks.size();
+            }
+        }
+        return chunks;
+    }
+
+    // highest number of reservations in any hour of the period
+    public int getPeak(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        long from = floorSlot(reservationPeriod.getStartDateTime());
+        long to = ceilSlot(reservationPeriod.getEndDateTime());
+        Timeline timeline = buckets.get(vehicleType).get(zipCode);
+        if (timeline == null) {
+            return 0;
+        }
+        return timeline.read(chunks -> max(chunks, from, to));
+    }
+
+    // earliest hour-aligned start at or after from where fewer than capacity cars are booked for the whole length
+    public LocalDateTime findEarliestStart(VehicleType vehicleType, int zipCode, LocalDateTime from, Duration length, long capacity) {
+        long start = ceilSlot(from);
+        if (capacity <= 0) {
+            return null;
+        }
+        long lengthSlots = Math.max(1, (length.getSeconds() + SECONDS_PER_SLOT - 1) / SECONDS_PER_SLOT);
+        Timeline timeline = buckets.get(vehicleType).get(zipCode);
+        if (timeline == null) {
+            return slotStart(start);
+        }
+        int threshold = (int) Math.min(Integer.MAX_VALUE, capacity);
+        long freeSlot = timeline.read(chunks -> {
+            long candidate = start;
+            while (true) {
+                long blocked = firstAtLeast(chunks, candidate, threshold);
+                if (blocked < 0 || blocked >= candidate + lengthSlots) {
+                    return candidate;
+                }
+                candidate = firstBelow(chunks, blocked + 1, threshold);
+                if (candidate < 0) {
+                    return -1L;
+                }
+            }
+        });
+        return freeSlot < 0 ? null : slotStart(freeSlot);
+    }
+
+    // highest number of reservations in any hour, per day starting at fromDay
+    public int[] getDailyPeaks(VehicleType vehicleType, int zipCode, LocalDate fromDay, int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Negative number of days: " + days);
+        }
+        long firstSlot = floorSlot(fromDay.atStartOfDay());
+        // the last day must be in range too
+        floorSlot(fromDay.plusDays(days).atStartOfDay());
+        int[] peaks = new int[days];
+        Timeline timeline = buckets.get(vehicleType).get(zipCode);
+        if (timeline == null) {
+            return peaks;
+        }
+        return timeline.read(chunks -> {
+            for (int day = 0; day < days; day++) {
+                long dayStart = firstSlot + (long) day * OccupancyTimeline.SLOTS_PER_DAY;
+                peaks[day] = max(chunks, dayStart, dayStart + OccupancyTimeline.SLOTS_PER_DAY);
+            }
+            return peaks;
+        });
+    }
+
+    private void update(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod, int delta) {
+        if (vehicleType == null || reservationPeriod == null) {
+            return;
+        }
+        long from = floorSlot(reservationPeriod.getStartDateTime());
+        long to = ceilSlot(reservationPeriod.getEndDateTime());
+        Timeline timeline = buckets.get(vehicleType).computeIfAbsent(zipCode, zip -> new Timeline());
+        long stamp = timeline.lock.writeLock();
+        try {
+            for (long chunkNo = chunkOf(from); from < to && chunkNo <= chunkOf(to - 1); chunkNo++) {
+                OccupancyTimeline chunk = delta > 0 ? timeline.chunks.computeIfAbsent((int) chunkNo, c -> new OccupancyTimeline(CHUNK_DAYS))
+                        : timeline.chunks.get((int) chunkNo);
+                if (chunk == null) {
+                    continue;
+                }
+                long base = chunkNo * CHUNK_SLOTS;
+                chunk.add((int) Math.max(0, from - base), (int) Math.min(CHUNK_SLOTS, to - base), delta);
+                if (delta < 0 && chunk.isEmpty()) {
+                    timeline.chunks.remove((int) chunkNo);
+                }
+            }
+        } finally {
+            timeline.lock.unlockWrite(stamp);
+        }
+    }
+
+    // max over slots [from, to); missing chunks are empty
+    private static int max(NavigableMap<Integer, OccupancyTimeline> chunks, long from, long to) {
+        if (from >= to) {
+            return 0;
+        }
+        int max = 0;
+        for (Map.Entry<Integer, OccupancyTimeline> entry : chunks.subMap((int) chunkOf(from), true, (int) chunkOf(to - 1), true).entrySet()) {
+            long base = (long) entry.getKey() * CHUNK_SLOTS;
+            max = Math.max(max, entry.getValue().max((int) Math.max(0, from - base), (int) Math.min(CHUNK_SLOTS, to - base)));
+        }
+        return max;
+    }
+
+    private static long firstAtLeast(NavigableMap<Integer, OccupancyTimeline> chunks, long from, int threshold) {
+        for (Map.Entry<Integer, OccupancyTimeline> entry : chunks.tailMap((int) chunkOf(from), true).entrySet()) {
+            long base = (long) entry.getKey() * CHUNK_SLOTS;
+            int slot = entry.getValue().firstAtLeast((int) Math.max(0, from - base), threshold);
+            if (slot >= 0) {
+                return base + slot;
+            }
+        }
+        return -1;
+    }
+
+    // threshold is positive, so the first missing chunk is free
+    private static long firstBelow(NavigableMap<Integer, OccupancyTimeline> chunks, long from, int threshold) {
+        for (long chunkNo = chunkOf(from); chunkNo <= Integer.MAX_VALUE; chunkNo++) {
+            long base = chunkNo * CHUNK_SLOTS;
+            OccupancyTimeline chunk = chunks.get((int) chunkNo);
+            if (chunk == null) {
+                return Math.max(from, base);
+            }
+            int slot = chunk.firstBelow((int) Math.max(0, from - base), threshold);
+            if (slot >= 0) {
+                return base + slot;
+            }
+        }
+        return -1;
+    }
+
+    private static LocalDateTime slotStart(long slot) {
+        return EPOCH.plusHours(slot);
+    }
+
+    private static long floorSlot(LocalDateTime dateTime) {
+        return checkRange(dateTime, Math.floorDiv(Duration.between(EPOCH, dateTime).getSeconds(), SECONDS_PER_SLOT));
+    }
+
+    private static long ceilSlot(LocalDateTime dateTime) {
+        Duration sinceEpoch = Duration.between(EPOCH, dateTime);
+        long slot = Math.floorDiv(sinceEpoch.getSeconds(), SECONDS_PER_SLOT);
+        boolean onBoundary = Math.floorMod(sinceEpoch.getSeconds(), SECONDS_PER_SLOT) == 0 && sinceEpoch.getNano() == 0;
+        return checkRange(dateTime, onBoundary ? slot : slot + 1);
+    }
+
+    // chunk numbers are ints, which covers about 240 thousand years either side of 1970
+    private static long checkRange(LocalDateTime dateTime, long slot) {
+        long chunkNo = chunkOf(slot);
+        if (chunkNo < Integer.MIN_VALUE + 1 || chunkNo >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Date outside of the availability calendar: " + dateTime);
+        }
+        return slot;
+    }
+
+    private static long chunkOf(long slot) {
+        return Math.floorDiv(slot, CHUNK_SLOTS);
+    }
+
+    private static final class Timeline {
+        final ConcurrentSkipListMap<Integer, OccupancyTimeline> chunks = new ConcurrentSkipListMap<>();
+        final StampedLock lock = new StampedLock();
+
+        // runs the query without locking and repeats it under the read lock if a write overlapped it
+        <T> T read(Function<NavigableMap<Integer, OccupancyTimeline>, T> query) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    T result = query.apply(chunks);
+                    if (lock.validate(stamp)) {
+                        return result;
+                    }
+                } catch (RuntimeException e) {
+                    // torn read, retried below
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return query.apply(chunks);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.rental.domain.index;
+
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.util.TimeKeyUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Active reservations per customer, ordered by start time. Writers synchronize on the customer's
+ * tree, readers query its latest published version without locking.
+ */
+public class CustomerReservationIndex {
+
+    private final ConcurrentHashMap<Long, IntervalTree> customers = new ConcurrentHashMap<>();
+
+    public void add(Reservation reservation) {
+        add(reservation.getReservationId(), reservation.getCustId(), reservation.getReservationPeriod());
+    }
+
+    public void add(Long reservationId, Long custId, ReservationPeriod reservationPeriod) {
+        if (custId == null || reservationPeriod == null) {
+            return;
+        }
+        IntervalTree tree = customers.computeIfAbsent(custId, id -> new IntervalTree());
+        synchronized (tree) {
+            tree.add(reservationId, TimeKeyUtil.toKey(reservationPeriod.getStartDateTime()), TimeKeyUtil.toKey(reservationPeriod.getEndDateTime()));
+        }
+    }
+
+    public void remove(Reservation reservation) {
+        remove(reservation.getReservationId(), reservation.getCustId(), reservation.getReservationPeriod());
+    }
+
+    public void remove(Long reservationId, Long custId, ReservationPeriod reservationPeriod) {
+        if (custId == null || reservationPeriod == null) {
+            return;
+        }
+        IntervalTree tree = customers.get(custId);
+        if (tree != null) {
+            synchronized (tree) {
+                tree.remove(reservationId, TimeKeyUtil.toKey(reservationPeriod.getStartDateTime()), TimeKeyUtil.toKey(reservationPeriod.getEndDateTime()));
+            }
+        }
+    }
+
+    public boolean hasOverlapping(Long custId, ReservationPeriod reservationPeriod) {
+        IntervalTree tree = customers.get(custId);
+        if (tree == null) {
+            return false;
+        }
+        long start = TimeKeyUtil.toKey(reservationPeriod.getStartDateTime());
+        long end = TimeKeyUtil.toKey(reservationPeriod.getEndDateTime());
+        return tree.anyOverlapping(start, end);
+    }
+
+    public List<Long> getReservationIds(Long custId) {
+        List<Long> reservationIds = new ArrayList<>();
+        IntervalTree tree = customers.get(custId);
+        if (tree != null) {
+            tree.forEach(reservationIds::add);
+        }
+        return reservationIds;
+    }
+
+    public void clear() {
+        customers.clear();
+    }
+}
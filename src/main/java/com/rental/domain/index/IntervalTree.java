@@ -0,0 +1,206 @@
+package com.rental.domain.index;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
+
+/**
+ * Augmented interval tree over half-open [start, end) intervals identified by reservation id.
+ *
+ * Two treaps are kept: one ordered by (start, id) and augmented with subtree size and max end,
+ * one ordered by (end, id) with subtree size. Overlap counts come back in O(log n) as
+ * #(start &lt; e) - #(end &lt;= s); overlap enumeration is O(log n + k).
+ *
+ * Nodes are immutable: add and remove copy the path to the changed node and publish both new
+ * roots with one volatile write, so readers see a consistent version without locking. Writers
+ * must still be serialized by the caller.
+ */
+public class IntervalTree {
+
+    private static final Roots EMPTY = new Roots(null, null);
+
+    private volatile Roots roots = EMPTY;
+
+    public void add(long id, long start, long end) {
+        Roots current = roots;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        roots = new Roots(insert(current.byStart, start, id, end, random.nextInt()), insert(current.byEnd, end, id, end, random.nextInt()));
+    }
+
+    public void remove(long id, long start, long end) {
+        Roots current = roots;
+        roots = new Roots(delete(current.byStart, start, id), delete(current.byEnd, end, id));
+    }
+
+    public int size() {
+        return size(roots.byStart);
+    }
+
+    public void clear() {
+        roots = EMPTY;
+    }
+
+    public long countOverlapping(long start, long end) {
+        Roots current = roots;
+        return countLess(current.byStart, end) - countLessOrEqual(current.byEnd, start);
+    }
+
+    public boolean anyOverlapping(long start, long end) {
+        return countOverlapping(start, end) > 0;
+    }
+
+    public void forEachOverlapping(long start, long end, LongConsumer idConsumer) {
+        forEachOverlapping(roots.byStart, start, end, idConsumer);
+    }
+
+    // in (start, id) order
+    public void forEach(LongConsumer idConsumer) {
+        forEach(roots.byStart, idConsumer);
+    }
+    private static void forEachOverlapping(Node node, long start, long end, LongConsumer idConsumer) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        forEachOverlapping(node.left, start, end, idConsumer);
+        if (node.key < end) {
+            if (node.end > start) {
+                idConsumer.accept(node.id);
+            }
+            forEachOverlapping(node.right, start, end, idConsumer);
+        }
+    }
+
+    private static void forEach(Node node, LongConsumer idConsumer) {
+        if (node == null) {
+            return;
+        }
+        forEach(node.left, idConsumer);
+        idConsumer.accept(node.id);
+        forEach(node.right, idConsumer);
+    }
+
+    private static long countLess(Node node, long key) {
+        long count = 0;
+        while (node != null) {
+            if (node.key < key) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private static long countLessOrEqual(Node node, long key) {
+        long count = 0;
+        while (node != null) {
+            if (node.key <= key) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private static int compare(long key1, long id1, long key2, long id2) {
+        int c = Long.compare(key1, key2);
+        return c != 0 ? c : Long.compare(id1, id2);
+    }
+
+    private static Node insert(Node root, long key, long id, long end, int priority) {
+        if (root == null) {
+            return new Node(key, id, end, priority, null, null);
+        }
+        if (compare(key, id, root.key, root.id) < 0) {
+            Node left = insert(root.left, key, id, end, priority);
+            if (left.priority > root.priority) {
+                return left.with(left.left, root.with(left.right, root.right));
+            }
+            return root.with(left, root.right);
+        }
+        Node right = insert(root.right, key, id, end, priority);
+        if (right.priority > root.priority) {
+            return right.with(root.with(root.left, right.left), right.right);
+        }
+        return root.with(root.left, right);
+    }
+
+    private static Node delete(Node root, long key, long id) {
+        if (root == null) {
+            return null;
+        }
+        int c = compare(key, id, root.key, root.id);
+        if (c < 0) {
+            Node left = delete(root.left, key, id);
+            return left == root.left ? root : root.with(left, root.right);
+        }
+        if (c > 0) {
+            Node right = delete(root.right, key, id);
+            return right == root.right ? root : root.with(root.left, right);
+        }
+        return merge(root.left, root.right);
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            return left.with(left.left, merge(left.right, right));
+        }
+        return right.with(merge(left, right.left), right.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Roots {
+        final Node byStart;
+        final Node byEnd;
+
+        Roots(Node byStart, Node byEnd) {
+            this.byStart = byStart;
+            this.byEnd = byEnd;
+        }
+    }
+
+    private static final class Node {
+        final long key;
+        final long id;
+        final long end;
+        final int priority;
+        final int size;
+        final long maxEnd;
+        final Node left;
+        final Node right;
+
+        Node(long key, long id, long end, int priority, Node left, Node right) {
+            this.key = key;
+            this.id = id;
+            this.end = end;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+            long maxEnd = end;
+            if (left != null && left.maxEnd > maxEnd) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > maxEnd) {
+                maxEnd = right.maxEnd;
+            }
+            this.maxEnd = maxEnd;
+        }
+
+        // copy of this node with new children
+        Node with(Node left, Node right) {
+            return new Node(key, id, end, priority, left, right);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.rental.domain.index;
+
+/**
+ * Occupancy of a run of whole days in hour slots: a count per slot plus, per day, the highest and
+ * lowest count and a pending add for adds that covered the whole day. Range adds, range max and
+ * first-slot searches scan at most two partial days and one summary per whole day.
+ *
+ * Queries never write, so a query racing a writer reads garbage at worst (callers validate).
+ * Writers must be serialized by the caller.
+ */
+public class OccupancyTimeline {
+
+    public static final int SLOTS_PER_DAY = 24;
+
+    private final int slots;
+    // per slot, not counting the pending add of its day
+    private final int[] counts;
+    private final int[] dayMax;
+    private final int[] dayMin;
+    private final int[] dayAdd;
+
+    public OccupancyTimeline(int days) {
+        this.slots = days * SLOTS_PER_DAY;
+        this.counts = new int[slots];
+        this.dayMax = new int[days];
+        this.dayMin = new int[days];
+        this.dayAdd = new int[days];
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    // adds delta to slots [from, to)
+    public void add(int from, int to, int delta) {
+        from = Math.max(0, from);
+        to = Math.min(slots, to);
+        while (from < to) {
+            int day = from / SLOTS_PER_DAY;
+            int dayEnd = (day + 1) * SLOTS_PER_DAY;
+            if (from == day * SLOTS_PER_DAY && to >= dayEnd) {
+                dayAdd[day] += delta;
+                dayMax[day] += delta;
+                dayMin[day] += delta;
+            } else {
+                for (int slot = from, end = Math.min(to, dayEnd); slot < end; slot++) {
+                    counts[slot] += delta;
+                }
+                summarize(day);
+            }
+            from = dayEnd;
+        }
+    }
+
+    // max occupancy over slots [from, to), 0 for an empty range
+    public int max(int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(slots, to);
+        int max = from < to ? Integer.MIN_VALUE : 0;
+        while (from < to) {
+            int day = from / SLOTS_PER_DAY;
+            int dayEnd = (day + 1) * SLOTS_PER_DAY;
+            if (from == day * SLOTS_PER_DAY && to >= dayEnd) {
+                max = Math.max(max, dayMax[day]);
+            } else {
+                for (int slot = from, end = Math.min(to, dayEnd); slot < end; slot++) {
+                    max = Math.max(max, counts[slot] + dayAdd[day]);
+                }
+            }
+            from = dayEnd;
+        }
+        return max;
+    }
+
+    // first slot >= from with occupancy >= threshold, or -1
+    public int firstAtLeast(int from, int threshold) {
+        for (from = Math.max(0, from); from < slots; from = (from / SLOTS_PER_DAY + 1) * SLOTS_PER_DAY) {
+            int day = from / SLOTS_PER_DAY;
+            if (dayMax[day] < threshold) {
+                continue;
+            }
+            for (int slot = from, end = (day + 1) * SLOTS_PER_DAY; slot < end; slot++) {
+                if (counts[slot] + dayAdd[day] >= threshold) {
+                    return slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // first slot >= from with occupancy < threshold, or -1
+    public int firstBelow(int from, int threshold) {
+        for (from = Math.max(0, from); from < slots; from = (from / SLOTS_PER_DAY + 1) * SLOTS_PER_DAY) {
+            int day = from / SLOTS_PER_DAY;
+            if (dayMin[day] >= threshold) {
+                continue;
+            }
+            for (int slot = from, end = (day + 1) * SLOTS_PER_DAY; slot < end; slot++) {
+                if (counts[slot] + dayAdd[day] < threshold) {
+                    return slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // true when no slot is occupied
+    public boolean isEmpty() {
+        for (int day = 0; day < dayMax.length; day++) {
+            if (dayMax[day] != 0 || dayMin[day] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void summarize(int day) {
+        int max = Integer.MIN_VALUE;
+        int min = Integer.MAX_VALUE;
+        for (int slot = day * SLOTS_PER_DAY, end = slot + SLOTS_PER_DAY; slot < end; slot++) {
+            max = Math.max(max, counts[slot]);
+            min = Math.min(min, counts[slot]);
+        }
+        dayMax[day] = max + dayAdd[day];
+        dayMin[day] = min + dayAdd[day];
+    }
+}
@@ -0,0 +1,69 @@
+package com.rental.domain.index;
+
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.util.TimeKeyUtil;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interval index of active reservations per (VehicleType, pickupZip) bucket. Writers synchronize
+ * on the bucket's tree, readers query its latest published version without locking.
+ */
+public class ReservationIndex {
+
+    private final Map<VehicleType, ConcurrentHashMap<Integer, IntervalTree>> buckets = new EnumMap<>(VehicleType.class);
+
+    public ReservationIndex() {
+        for (VehicleType vehicleType : VehicleType.values()) {
+            buckets.put(vehicleType, new ConcurrentHashMap<>());
+        }
+    }
+
+    public void add(Reservation reservation) {
+        add(reservation.getReservationId(), reservation.getVehicleType(), reservation.getZipcode(), reservation.getReservationPeriod());
+    }
+
+    public void add(Long reservationId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        if (vehicleType == null || reservationPeriod == null) {
+            return;
+        }
+        IntervalTree tree = buckets.get(vehicleType).computeIfAbsent(zipCode, zip -> new IntervalTree());
+        synchronized (tree) {
+            tree.add(reservationId, TimeKeyUtil.toKey(reservationPeriod.getStartDateTime()), TimeKeyUtil.toKey(reservationPeriod.getEndDateTime()));
+        }
+    }
+
+    public void remove(Reservation reservation) {
+        remove(reservation.getReservationId(), reservation.getVehicleType(), reservation.getZipcode(), reservation.getReservationPeriod());
+    }
+
+    public void remove(Long reservationId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        if (vehicleType == null || reservationPeriod == null) {
+            return;
+        }
+        IntervalTree tree = buckets.get(vehicleType).get(zipCode);
+        if (tree != null) {
+            synchronized (tree) {
+                tree.remove(reservationId, TimeKeyUtil.toKey(reservationPeriod.getStartDateTime()), TimeKeyUtil.toKey(reservationPeriod.getEndDateTime()));
+            }
+        }
+    }
+
+    public long countOverlapping(VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        IntervalTree tree = buckets.get(vehicleType).get(zipCode);
+        if (tree == null) {
+            return 0;
+        }
+        long start = TimeKeyUtil.toKey(reservationPeriod.getStartDateTime());
+        long end = TimeKeyUtil.toKey(reservationPeriod.getEndDateTime());
+        return tree.countOverlapping(start, end);
+    }
+
+    public void clear() {
+        buckets.values().forEach(Map::clear);
+    }
+}
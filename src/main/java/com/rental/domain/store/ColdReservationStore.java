@@ -0,0 +1,317 @@
+package com.rental.domain.store;
+
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.persistence.JournalCodec;
+import com.rental.persistence.JournalRecord;
+import com.rental.util.LongIntHashMap;
+import com.rental.util.TimeKeyUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only, deflate compressed file of inactive reservations (reservations.cold) with an
+ * in-memory index from reservation id to block. Each append writes one block:
+ * <pre>
+ * int  count, int raw length, int compressed length
+ * long ids[count]
+ * int  CRC32 of ids and compressed bytes
+ * ...  deflated JournalCodec CREATE frames, one per reservation
+ * </pre>
+ * Ids are stored uncompressed so opening the store rebuilds the index without inflating any block;
+ * a torn last block is cut off. A lookup reads and inflates one block, and the last block read is
+ * kept. A reservation appended twice resolves to its latest block.
+ */
+public class ColdReservationStore implements Closeable {
+
+    public static final String FILE_NAME = "reservations.cold";
+    private static final int BLOCK_HEADER_BYTES = 12;
+    private static final int MAX_BLOCK_RESERVATIONS = 1 << 16;
+
+    private final FileChannel channel;
+    // reservation id to block number, guarded by this
+    private final LongIntHashMap blockById = new LongIntHashMap();
+    private long[] blockOffsets = new long[64];
+    private int blocks;
+    private long size;
+    private long maxReservationId = -1L;
+    private volatile InflatedBlock lastBlock;
+
+    public ColdReservationStore(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        channel = FileChannel.open(directory.resolve(FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long end = loadIndex();
+        if (end < channel.size()) {
+            channel.truncate(end);
+        }
+        size = end;
+    }
+
+    // returns the offset just past the last intact block
+    private long loadIndex() throws IOException {
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        while (true) {
+            header.clear();
+            if (!readFully(header, offset)) {
+                return offset;
+            }
+            header.flip();
+            int count = header.getInt();
+            int rawLength = header.getInt();
+            int compressedLength = header.getInt();
+            if (count <= 0 || count > MAX_BLOCK_RESERVATIONS || rawLength <= 0 || compressedLength <= 0) {
+                return offset;
+            }
+            ByteBuffer body = ByteBuffer.allocate(count * Long.BYTES + Integer.BYTES + compressedLength);
+            if (!readFully(body, offset + BLOCK_HEADER_BYTES)) {
+                return offset;
+            }
+            body.flip();
+            CRC32 crc32 = new CRC32();
+            crc32.update(body.array(), 0, count * Long.BYTES);
+            crc32.update(body.array(), count * Long.BYTES + Integer.BYTES, compressedLength);
+            if ((int) crc32.getValue() != body.getInt(count * Long.BYTES)) {
+                return offset;
+            }
+            int block = addBlock(offset);
+            for (int i = 0; i < count; i++) {
+                long reservationId = body.getLong();
+                blockById.put(reservationId, block);
+                maxReservationId = Math.max(maxReservationId, reservationId);
+            }
+            offset += BLOCK_HEADER_BYTES + body.capacity();
+        }
+    }
+
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int addBlock(long offset) {
+        if (blocks == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, blocks * 2);
+        }
+        blockOffsets[blocks] = offset;
+        return blocks++;
+    }
+
+    /**
+     * Appends the reservations as one block and forces it to disk before they become visible, so a
+     * caller may drop them from the hot tier once this returns.
+     */
+    public synchronized void append(List<Reservation> reservations) throws IOException {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        if (reservations.size() > MAX_BLOCK_RESERVATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BLOCK_RESERVATIONS + " reservations per block");
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(reservations.size() * 64);
+        for (Reservation reservation : reservations) {
+            ByteBuffer frame = JournalCodec.encode(JournalRecord.ofReservation(JournalRecord.Type.CREATE, reservation));
+            raw.write(frame.array(), frame.arrayOffset(), frame.remaining());
+        }
+        byte[] compressed = deflate(raw.toByteArray());
+        int count = reservations.size();
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_BYTES + count * Long.BYTES + Integer.BYTES + compressed.length);
+        block.putInt(count).putInt(raw.size()).putInt(compressed.length);
+        for (Reservation reservation : reservations) {
+            block.putLong(reservation.getReservationId());
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(block.array(), BLOCK_HEADER_BYTES, count * Long.BYTES);
+        crc32.update(compressed, 0, compressed.length);
+        block.putInt((int) crc32.getValue());
+        block.put(compressed);
+        block.flip();
+        long offset = size;
+        while (block.hasRemaining()) {
+            channel.write(block, offset + block.position());
+        }
+        channel.force(false);
+        size = offset + block.capacity();
+        int blockNumber = addBlock(offset);
+        for (Reservation reservation : reservations) {
+            blockById.put(reservation.getReservationId(), blockNumber);
+            maxReservationId = Math.max(maxReservationId, reservation.getReservationId());
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public synchronized boolean contains(long reservationId) {
+        return blockById.get(reservationId, -1) >= 0;
+    }
+
+    // the archived reservation, or null
+    public Reservation get(long reservationId) throws IOException {
+        int block;
+        long offset;
+        synchronized (this) {
+            block = blockById.get(reservationId, -1);
+            if (block < 0) {
+                return null;
+            }
+            offset = blockOffsets[block];
+        }
+        InflatedBlock inflated = lastBlock;
+        if (inflated == null || inflated.block != block) {
+            inflated = new InflatedBlock(block, inflate(offset));
+            lastBlock = inflated;
+        }
+        return find(inflated.raw, reservationId);
+    }
+
+    private byte[] inflate(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        if (!readFully(header, offset)) {
+            throw new IOException("Truncated cold block at " + offset);
+        }
+        header.flip();
+        int count = header.getInt();
+        int rawLength = header.getInt();
+        int compressedLength = header.getInt();
+        ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+        if (!readFully(compressed, offset + BLOCK_HEADER_BYTES + count * Long.BYTES + Integer.BYTES)) {
+            throw new IOException("Truncated cold block at " + offset);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            byte[] raw = new byte[rawLength];
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                inflated += inflater.inflate(raw, inflated, rawLength - inflated);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt cold block at " + offset, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static Reservation find(byte[] raw, long reservationId) {
+        ByteBuffer frames = ByteBuffer.wrap(raw);
+        while (frames.remaining() >= JournalCodec.HEADER_BYTES) {
+            int bodyLength = frames.getInt();
+            int bodyStart = frames.position();
+            if (frames.getLong(bodyStart + 1) == reservationId) {
+                return decode(frames, bodyStart, bodyLength);
+            }
+            frames.position(bodyStart + bodyLength + JournalCodec.TRAILER_BYTES);
+        }
+        return null;
+    }
+
+    private static Reservation decode(ByteBuffer frames, int bodyStart, int bodyLength) {
+        ByteBuffer body = frames.duplicate();
+        body.position(bodyStart);
+        body.limit(bodyStart + bodyLength);
+        JournalRecord record = JournalCodec.decodeBody(body);
+        ReservationPeriod reservationPeriod = new ReservationPeriod(TimeKeyUtil.fromKey(record.getStartKey()), TimeKeyUtil.fromKey(record.getEndKey()));
+        return new Reservation(record.getReservationId(), record.getCustId(), record.getVehicleType(), record.getZipCode(), reservationPeriod, record.isReserved());
+    }
+
+    /**
+     * Visits every archived reservation once, block by block in file order, inflating one block at
+     * a time. A reservation appended twice is visited with its latest copy. Blocks appended while
+     * visiting are not visited.
+     */
+    public void forEach(ReservationVisitor visitor) throws IOException {
+        int visibleBlocks;
+        synchronized (this) {
+            visibleBlocks = blocks;
+        }
+        for (int block = 0; block < visibleBlocks; block++) {
+            long offset;
+            synchronized (this) {
+                offset = blockOffsets[block];
+            }
+            ByteBuffer frames = ByteBuffer.wrap(inflate(offset));
+            while (frames.remaining() >= JournalCodec.HEADER_BYTES) {
+                int bodyLength = frames.getInt();
+                int bodyStart = frames.position();
+                long reservationId = frames.getLong(bodyStart + 1);
+                boolean latest;
+                synchronized (this) {
+                    latest = blockById.get(reservationId, -1) == block;
+                }
+                if (latest) {
+                    visitor.visit(decode(frames, bodyStart, bodyLength));
+                }
+                frames.position(bodyStart + bodyLength + JournalCodec.TRAILER_BYTES);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return blockById.size();
+    }
+
+    // the highest archived reservation id, or -1 for an empty store
+    public synchronized long getMaxReservationId() {
+        return maxReservationId;
+    }
+
+    public synchronized int getBlocks() {
+        return blocks;
+    }
+
+    public synchronized long getFileBytes() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @FunctionalInterface
+    public interface ReservationVisitor {
+        void visit(Reservation reservation) throws IOException;
+    }
+
+    private static final class InflatedBlock {
+        final int block;
+        final byte[] raw;
+
+        InflatedBlock(int block, byte[] raw) {
+            this.block = block;
+            this.raw = raw;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.rental.domain.store;
+
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.util.LongIntHashMap;
+import com.rental.util.TimeKeyUtil;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Reservation map that keeps every booking in parallel primitive columns (id, custId, start and end
+ * time keys, zip, vehicle type ordinal, status flags) instead of a Reservation, two Longs, a
+ * ReservationPeriod and two LocalDateTimes per booking.
+ *
+ * get() and iteration return read-only Reservation copies built from the columns, so a reader keeps
+ * the version it read after the reservation is replaced or removed; a reservation is changed by
+ * putting a new version. The store is split into segments guarded by their own monitor, like the
+ * striped bucket locks.
+ *
+ * Removed slots go on a per-segment free list and are reused by later puts, so the columns only
+ * grow to the most reservations held at once.
+ */
+public class ColumnarReservationStore extends AbstractMap<Long, Reservation> {
+
+    private static final byte PRESENT = 1;
+    private static final byte RESERVED = 2;
+    private static final byte HAS_CUST_ID = 4;
+    private static final byte HAS_PERIOD = 8;
+    private static final byte NO_VEHICLE_TYPE = -1;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final Segment[] segments;
+    private final EntrySet entrySet = new EntrySet();
+
+    public ColumnarReservationStore() {
+        this(64);
+    }
+
+    public ColumnarReservationStore(int segmentCount) {
+        segments = new Segment[Integer.highestOneBit(Math.max(1, segmentCount - 1)) << 1];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof Long)) {
+            return false;
+        }
+        long reservationId = (Long) key;
+        Segment segment = segmentFor(reservationId);
+        synchronized (segment) {
+            return segment.presentSlot(reservationId) >= 0;
+        }
+    }
+
+    @Override
+    public Reservation get(Object key) {
+        if (!(key instanceof Long)) {
+            return null;
+        }
+        long reservationId = (Long) key;
+        Segment segment = segmentFor(reservationId);
+        synchronized (segment) {
+            int slot = segment.presentSlot(reservationId);
+            return slot < 0 ? null : segment.copy(slot);
+        }
+    }
+
+    @Override
+    public Reservation put(Long key, Reservation reservation) {
+        return write(key, reservation, false);
+    }
+
+    @Override
+    public Reservation putIfAbsent(Long key, Reservation reservation) {
+        return write(key, reservation, true);
+    }
+
+    @Override
+    public Reservation remove(Object key) {
+        if (!(key instanceof Long)) {
+            return null;
+        }
+        long reservationId = (Long) key;
+        Segment segment = segmentFor(reservationId);
+        synchronized (segment) {
+            int slot = segment.presentSlot(reservationId);
+            if (slot < 0) {
+                return null;
+            }
+            Reservation removed = segment.copy(slot);
+            segment.release(slot);
+            return removed;
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.reset();
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<Long, Reservation>> entrySet() {
+        return entrySet;
+    }
+
+    // bytes held by the columns and id lookup tables
+    public long getFootprintBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.footprint();
+            }
+        }
+        return bytes;
+    }
+
+    private Reservation write(Long key, Reservation reservation, boolean onlyIfAbsent) {
+        long reservationId = key;
+        Long custId = reservation.getCustId();
+        VehicleType vehicleType = reservation.getVehicleType();
+        ReservationPeriod reservationPeriod = reservation.getReservationPeriod();
+        long startKey = reservationPeriod == null ? 0L : TimeKeyUtil.toKey(reservationPeriod.getStartDateTime());
+        long endKey = reservationPeriod == null ? 0L : TimeKeyUtil.toKey(reservationPeriod.getEndDateTime());
+        byte flags = (byte) (PRESENT | (reservation.isReserved() ? RESERVED : 0) | (custId != null ? HAS_CUST_ID : 0) | (reservationPeriod != null ? HAS_PERIOD : 0));
+        Segment segment = segmentFor(reservationId);
+        synchronized (segment) {
+            int slot = segment.slotById.get(reservationId, -1);
+            Reservation previous = null;
+            if (slot < 0) {
+                slot = segment.allocate(reservationId);
+            } else if ((segment.flags[slot] & PRESENT) != 0) {
+                if (onlyIfAbsent) {
+                    return segment.copy(slot);
+                }
+                previous = segment.copy(slot);
+            }
+            if ((segment.flags[slot] & PRESENT) == 0) {
+                segment.size++;
+            }
+            segment.custIds[slot] = custId == null ? 0L : custId;
+            segment.vehicleTypes[slot] = vehicleType == null ? NO_VEHICLE_TYPE : (byte) vehicleType.ordinal();
+            segment.zipCodes[slot] = reservation.getZipcode();
+            segment.startKeys[slot] = startKey;
+            segment.endKeys[slot] = endKey;
+            segment.flags[slot] = flags;
+            return previous;
+        }
+    }
+
+    private Segment segmentFor(long reservationId) {
+        long hash = reservationId * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 40) & (segments.length - 1)];
+    }
+
+    private static final class Segment {
+
+        private LongIntHashMap slotById;
+        private long[] ids;
+        private long[] custIds;
+        private long[] startKeys;
+        private long[] endKeys;
+        private int[] zipCodes;
+        private byte[] vehicleTypes;
+        private byte[] flags;
+        // removed slots below slots, reused before the columns grow
+        private int[] freeSlots;
+        private int freeCount;
+        private int slots;
+        private int size;
+
+        private Segment() {
+            reset();
+        }
+
+        private void reset() {
+            slotById = new LongIntHashMap();
+            ids = new long[INITIAL_SEGMENT_CAPACITY];
+            custIds = new long[INITIAL_SEGMENT_CAPACITY];
+            startKeys = new long[INITIAL_SEGMENT_CAPACITY];
+            endKeys = new long[INITIAL_SEGMENT_CAPACITY];
+            zipCodes = new int[INITIAL_SEGMENT_CAPACITY];
+            vehicleTypes = new byte[INITIAL_SEGMENT_CAPACITY];
+            flags = new byte[INITIAL_SEGMENT_CAPACITY];
+            freeSlots = new int[INITIAL_SEGMENT_CAPACITY];
+            freeCount = 0;
+            slots = 0;
+            size = 0;
+        }
+
+        private int presentSlot(long reservationId) {
+            int slot = slotById.get(reservationId, -1);
+            return slot >= 0 && (flags[slot] & PRESENT) != 0 ? slot : -1;
+        }
+
+        private int allocate(long reservationId) {
+            if (freeCount > 0) {
+                int slot = freeSlots[--freeCount];
+                ids[slot] = reservationId;
+                slotById.put(reservationId, slot);
+                return slot;
+            }
+            if (slots == ids.length) {
+                int capacity = ids.length + (ids.length >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                custIds = Arrays.copyOf(custIds, capacity);
+                startKeys = Arrays.copyOf(startKeys, capacity);
+                endKeys = Arrays.copyOf(endKeys, capacity);
+                zipCodes = Arrays.copyOf(zipCodes, capacity);
+                vehicleTypes = Arrays.copyOf(vehicleTypes, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+            int slot = slots++;
+            ids[slot] = reservationId;
+            slotById.put(reservationId, slot);
+            return slot;
+        }
+
+        private void release(int slot) {
+            slotById.remove(ids[slot], -1);
+            flags[slot] = 0;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, ids.length);
+            }
+            freeSlots[freeCount++] = slot;
+            size--;
+        }
+
+        private Reservation copy(int slot) {
+            return reservation(ids[slot], custIds[slot], startKeys[slot], endKeys[slot], zipCodes[slot], vehicleTypes[slot], flags[slot]);
+        }
+
+        private long footprint() {
+            return slotById.footprint() + (long) ids.length * (8 + 8 + 8 + 8 + 4 + 1 + 1) + (long) freeSlots.length * 4;
+        }
+    }
+
+    private static Reservation reservation(long reservationId, long custId, long startKey, long endKey, int zipCode, byte vehicleType, byte flags) {
+        return new StoredReservation(reservationId, (flags & HAS_CUST_ID) != 0 ? custId : null,
+                vehicleType == NO_VEHICLE_TYPE ? null : VEHICLE_TYPES[vehicleType], zipCode,
+                (flags & HAS_PERIOD) != 0 ? new ReservationPeriod(TimeKeyUtil.fromKey(startKey), TimeKeyUtil.fromKey(endKey)) : null,
+                (flags & RESERVED) != 0);
+    }
+
+    // a copy of a stored reservation, detached from the columns
+    private static final class StoredReservation extends Reservation {
+
+        private StoredReservation(Long reservationId, Long custId, VehicleType vehicleType, int zipcode, ReservationPeriod reservationPeriod, boolean isReserved) {
+            super(reservationId, custId, vehicleType, zipcode, reservationPeriod, isReserved);
+        }
+
+        @Override
+        public void setReservationId(Long reservationId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCustId(Long custId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setVehicleType(VehicleType vehicleType) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setZipcode(int zipcode) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setReservationPeriod(ReservationPeriod reservationPeriod) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setReserved(boolean isReserved) {
+            throw readOnly();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Stored reservations are read only, put a new version instead");
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<Long, Reservation>> {
+
+        @Override
+        public int size() {
+            return ColumnarReservationStore.this.size();
+        }
+
+        @Override
+        public void clear() {
+            ColumnarReservationStore.this.clear();
+        }
+
+        // weakly consistent: each segment's present reservations are copied when the iterator reaches it
+        @Override
+        public Iterator<Entry<Long, Reservation>> iterator() {
+            return new Iterator<Entry<Long, Reservation>>() {
+                private int nextSegment;
+                private long[] ids = new long[0];
+                private long[] custIds;
+                private long[] startKeys;
+                private long[] endKeys;
+                private int[] zipCodes;
+                private byte[] vehicleTypes;
+                private byte[] flags;
+                private int next;
+                private Long lastKey;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == ids.length && nextSegment < segments.length) {
+                        capture(segments[nextSegment++]);
+                    }
+                    return next < ids.length;
+                }
+
+                @Override
+                public Entry<Long, Reservation> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    lastKey = ids[next];
+                    Reservation reservation = reservation(ids[next], custIds[next], startKeys[next], endKeys[next], zipCodes[next], vehicleTypes[next], flags[next]);
+                    next++;
+                    return new SimpleImmutableEntry<>(lastKey, reservation);
+                }
+
+                @Override
+                public void remove() {
+                    if (lastKey == null) {
+                        throw new IllegalStateException();
+                    }
+                    ColumnarReservationStore.this.remove(lastKey);
+                    lastKey = null;
+                }
+
+                private void capture(Segment captured) {
+                    synchronized (captured) {
+                        int size = captured.size;
+                        ids = new long[size];
+                        custIds = new long[size];
+                        startKeys = new long[size];
+                        endKeys = new long[size];
+                        zipCodes = new int[size];
+                        vehicleTypes = new byte[size];
+                        flags = new byte[size];
+                        int count = 0;
+                        for (int slot = 0; slot < captured.slots; slot++) {
+                            if ((captured.flags[slot] & PRESENT) != 0) {
+                                ids[count] = captured.ids[slot];
+                                custIds[count] = captured.custIds[slot];
+                                startKeys[count] = captured.startKeys[slot];
+                                endKeys[count] = captured.endKeys[slot];
+                                zipCodes[count] = captured.zipCodes[slot];
+                                vehicleTypes[count] = captured.vehicleTypes[slot];
+                                flags[count++] = captured.flags[slot];
+                            }
+                        }
+                    }
+                    next = 0;
+                }
+            };
+        }
+    }
+}
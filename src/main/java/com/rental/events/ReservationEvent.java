@@ -0,0 +1,51 @@
+package com.rental.events;
+
+import com.rental.model.Reservation;
+
+/**
+ * One slot of the ReservationEventBus ring. Slots are preallocated and reused, so handlers must copy
+ * what they keep; the Reservation itself is an immutable version and may be kept as is.
+ */
+public final class ReservationEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        CANCELLED,
+        EXPIRED
+    }
+
+    private Type type;
+    private long sequence;
+    private long timestampMillis;
+    private Reservation reservation;
+
+    void set(Type type, long sequence, long timestampMillis, Reservation reservation) {
+        this.type = type;
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.reservation = reservation;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    // the reservation version after the change
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    @Override
+    public String toString() {
+        return "ReservationEvent(" + type + ", " + sequence + ", " + reservation + ")";
+    }
+}
@@ -0,0 +1,256 @@
+package com.rental.events;
+
+import com.rental.metrics.MetricsRegistry;
+import com.rental.model.Reservation;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process change feed of reservation mutations on a preallocated multi-producer ring buffer, in
+ * the style of the LMAX Disruptor.
+ *
+ * Publishers claim a sequence with one atomic operation, fill the preallocated slot and mark it
+ * published; they never signal consumers and nothing is allocated. Each subscription has its own
+ * thread and sequence, sees every event in order and consumes everything published since its last
+ * pass as one batch. With no subscriptions publish returns straight away.
+ *
+ * When the slowest subscription is a whole ring behind, DROP discards the new event and counts it in
+ * reservationEvents.dropped, and BLOCK makes publishers wait for it. ReservationSystem publishes while
+ * it holds the bucket lock, so with BLOCK a stalled subscription stalls the bookings behind it.
+ *
+ * A handler that throws is counted in reservationEvents.handlerErrors and the subscription goes on
+ * with the next event.
+ */
+public class ReservationEventBus {
+
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP
+    }
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final ReservationEvent[] ring;
+    private final int mask;
+    private final int indexShift;
+    private final OverflowPolicy overflowPolicy;
+    // lap number of the event last published in each slot
+    private final AtomicIntegerArray published;
+    private final AtomicLong cursor = new AtomicLong(-1L);
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder droppedMetric;
+    private final LongAdder handlerErrors = new LongAdder();
+    private final LongAdder handlerErrorsMetric;
+    private volatile long gatingSequenceCache = -1L;
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+    // rental.events.bufferSize slots (default 65536) and rental.events.overflow drop (default) or block
+    public ReservationEventBus() {
+        this(Integer.getInteger("rental.events.bufferSize", 65536),
+                OverflowPolicy.valueOf(System.getProperty("rental.events.overflow", "drop").toUpperCase()));
+    }
+
+    public ReservationEventBus(int bufferSize, OverflowPolicy overflowPolicy) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of two: " + bufferSize);
+        }
+        this.ring = new ReservationEvent[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            ring[i] = new ReservationEvent();
+        }
+        this.mask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.overflowPolicy = overflowPolicy;
+        this.published = new AtomicIntegerArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            published.set(i, -1);
+        }
+        this.droppedMetric = MetricsRegistry.getInstance().counter("reservationEvents.dropped");
+        this.handlerErrorsMetric = MetricsRegistry.getInstance().counter("reservationEvents.handlerErrors");
+    }
+
+    public int getBufferSize() {
+        return ring.length;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    // sequence of the last claimed event
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getHandlerErrorCount() {
+        return handlerErrors.sum();
+    }
+
+    public boolean hasSubscriptions() {
+        return subscriptions.length > 0;
+    }
+
+    public void publish(ReservationEvent.Type type, Reservation reservation) {
+        Subscription[] current = subscriptions;
+        if (current.length == 0) {
+            return;
+        }
+        long sequence;
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            long claimed;
+            do {
+                claimed = cursor.get();
+                sequence = claimed + 1;
+                if (!hasCapacity(sequence, current)) {
+                    dropped.increment();
+                    droppedMetric.increment();
+                    return;
+                }
+            } while (!cursor.compareAndSet(claimed, sequence));
+        } else {
+            sequence = cursor.incrementAndGet();
+            while (!hasCapacity(sequence, current)) {
+                LockSupport.parkNanos(1_000L);
+                current = subscriptions;
+            }
+        }
+        int index = (int) sequence & mask;
+        ring[index].set(type, sequence, System.currentTimeMillis(), reservation);
+        published.lazySet(index, (int) (sequence >>> indexShift));
+    }
+
+    // the slot of sequence is free once every subscription has consumed the event a ring earlier
+    private boolean hasCapacity(long sequence, Subscription[] current) {
+        long wrapPoint = sequence - ring.length;
+        if (wrapPoint <= gatingSequenceCache) {
+            return true;
+        }
+        long minimum = Long.MAX_VALUE;
+        for (Subscription subscription : current) {
+            minimum = Math.min(minimum, subscription.sequence.get());
+        }
+        if (minimum == Long.MAX_VALUE) {
+            return true;
+        }
+        gatingSequenceCache = minimum;
+        return wrapPoint <= minimum;
+    }
+
+    // highest sequence from next on that is published without gaps, or next - 1
+    private long highestPublished(long next, long claimed) {
+        for (long sequence = next; sequence <= claimed; sequence++) {
+            if (published.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return claimed;
+    }
+
+    // starts a consumer thread that receives every event published from now on
+    public synchronized Subscription subscribe(String name, ReservationEventHandler handler) {
+        Subscription subscription = new Subscription(name, handler, cursor.get());
+        Subscription[] updated = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        updated[updated.length - 1] = subscription;
+        subscriptions = updated;
+        subscription.thread.start();
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] updated = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscriptions = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * A consumer of the feed. close() stops its thread after the batch in progress.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private static final int SPIN_TRIES = 100;
+        private static final long IDLE_PARK_NANOS = 50_000L;
+
+        private final String name;
+        private final ReservationEventHandler handler;
+        private final Sequence sequence;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private Subscription(String name, ReservationEventHandler handler, long startSequence) {
+            this.name = name;
+            this.handler = handler;
+            this.sequence = new Sequence(startSequence);
+            this.thread = new Thread(this::run, "reservation-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // sequence of the last event this subscription has consumed
+        public long getSequence() {
+            return sequence.get();
+        }
+
+        private void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (running) {
+                long available = highestPublished(next, cursor.get());
+                if (available < next) {
+                    if (++idle < SPIN_TRIES) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    continue;
+                }
+                idle = 0;
+                for (long current = next; current <= available; current++) {
+                    try {
+                        handler.onEvent(ring[(int) current & mask], current == available);
+                    } catch (Exception e) {
+                        handlerErrors.increment();
+                        handlerErrorsMetric.increment();
+                    }
+                }
+                sequence.lazySet(available);
+                next = available + 1;
+            }
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            unsubscribe(this);
+            running = false;
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+    }
+
+    // padded so sequences of different subscriptions do not share a cache line
+    @SuppressWarnings("unused")
+    private static final class Sequence extends AtomicLong {
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+        Sequence(long initialValue) {
+            super(initialValue);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.rental.events;
+
+/**
+ * Consumer of a ReservationEventBus subscription, called on the subscription's own thread in
+ * sequence order. endOfBatch marks the last event currently published, a good point to flush.
+ */
+@FunctionalInterface
+public interface ReservationEventHandler {
+
+    void onEvent(ReservationEvent event, boolean endOfBatch) throws Exception;
+}
@@ -0,0 +1,262 @@
+package com.rental.loadgen;
+
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.metrics.MetricsRegistry;
+import com.rental.metrics.OperationMetrics;
+import com.rental.model.Customer;
+import com.rental.model.OperationResult;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+import com.rental.replication.ReplicationPrimary;
+import com.rental.service.AdmissionControlledRentalService;
+import com.rental.service.RentalService;
+import com.rental.service.RentalServiceInterface;
+import com.rental.validator.ErrorCode;
+import com.rental.validator.InvalidRequestException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a RentalServiceInterface with requests from a RequestSource on a fixed number of threads
+ * and reports throughput, latency percentiles and rejections per operation.
+ *
+ * Run from the command line with rental.loadgen.* system properties (see WorkloadConfig), plus
+ * rental.loadgen.carsPerZip to stock every generated zip code, rental.loadgen.record to write the
+ * executed requests to a log, rental.loadgen.replay (with rental.loadgen.replaySpeed) to replay one and
+ * rental.loadgen.admission=true to run behind an AdmissionControlledRentalService. rental.loadgen.primary=true
+ * streams the bookings to ReadReplica processes through a ReplicationPrimary (rental.replication.port).
+ */
+public class LoadGenerator {
+
+    private static final String FIRST_NAME = "Load";
+    private static final String LAST_NAME = "Generator";
+    private static final Long PHONE_NO = 6106794402L;
+    private static final int AGE = 30;
+
+    private final RentalServiceInterface rentalService;
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final Map<WorkloadRequest.Operation, OperationMetrics> metrics = new EnumMap<>(WorkloadRequest.Operation.class);
+    // reservation id booked by each create request, by request sequence
+    private final ConcurrentHashMap<Long, Long> reservationIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Long> custIds = new ConcurrentHashMap<>();
+    private final LocalDateTime origin = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+
+    public LoadGenerator(RentalServiceInterface rentalService) {
+        this.rentalService = rentalService;
+        for (WorkloadRequest.Operation operation : WorkloadRequest.Operation.values()) {
+            metrics.put(operation, new OperationMetrics(registry, "loadgen." + operation.name().toLowerCase()));
+        }
+    }
+
+    // runs until the source is exhausted or durationSeconds have passed; recordLog may be null
+    public LoadReport run(RequestSource source, int threads, long durationSeconds, Writer recordLog) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        SplittableRandom seedRandom = new SplittableRandom();
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = seedRandom.split();
+            Thread worker = new Thread(() -> {
+                WorkloadRequest request;
+                while ((request = source.next(random)) != null) {
+                    long intendedNanos;
+                    if (request.getAtNanos() >= 0) {
+                        intendedNanos = startNanos + request.getAtNanos();
+                        if (intendedNanos - deadline > 0) {
+                            break;
+                        }
+                        waitUntil(intendedNanos);
+                    } else {
+                        intendedNanos = System.nanoTime();
+                        if (intendedNanos - deadline > 0) {
+                            break;
+                        }
+                    }
+                    execute(request, intendedNanos);
+                    if (recordLog != null) {
+                        record(recordLog, request, intendedNanos - startNanos);
+                    }
+                }
+            }, "loadgen-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new LoadReport(System.nanoTime() - startNanos, registry.snapshot());
+    }
+
+    private static void waitUntil(long nanos) {
+        long remaining;
+        while ((remaining = nanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static void record(Writer recordLog, WorkloadRequest request, long atNanos) {
+        String line = new WorkloadRequest(atNanos, request.getSequence(), request.getOperation(), request.getCustomer(), request.getVehicleType(),
+                request.getZip(), request.getStartHour(), request.getHours(), request.getTarget()).toLogLine();
+        synchronized (recordLog) {
+            try {
+                recordLog.write(line);
+                recordLog.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write request log", e);
+            }
+        }
+    }
+
+    // latency counts from intendedNanos, so time spent behind schedule is included
+    private void execute(WorkloadRequest request, long intendedNanos) {
+        OperationMetrics operationMetrics = metrics.get(request.getOperation());
+        try {
+            switch (request.getOperation()) {
+                case CREATE:
+                    ReservationResult created = rentalService.tryCreateReservation(customer(request.getCustomer()), request.getVehicleType(), request.getZip(), period(request));
+                    if (created.isReserved()) {
+                        reservationIds.put(request.getSequence(), created.getReservationId());
+                    } else {
+                        operationMetrics.reject(created.getErrorCode());
+                    }
+                    break;
+                case UPDATE:
+                    Long updateId = target(request, operationMetrics);
+                    if (updateId != null) {
+                        rejectIfFailed(rentalService.tryUpdateReservation(updateId, FIRST_NAME, LAST_NAME, PHONE_NO, request.getVehicleType(), request.getZip(), period(request)), operationMetrics);
+                    }
+                    break;
+                case CANCEL:
+                    Long cancelId = target(request, operationMetrics);
+                    if (cancelId != null) {
+                        OperationResult<Reservation> cancelled = rentalService.tryCancelReservation(cancelId);
+                        if (cancelled.isOk()) {
+                            reservationIds.remove(request.getTarget());
+                        } else {
+                            operationMetrics.reject(cancelled.getErrorCode());
+                        }
+                    }
+                    break;
+                case GET:
+                    Long getId = target(request, operationMetrics);
+                    if (getId != null) {
+                        Reservation reservation = rentalService.getReservationById(getId);
+                        if (reservation == null) {
+                            operationMetrics.reject(ErrorCode.ERR02);
+                        }
+                    }
+                    break;
+                case AVAILABILITY:
+                    if (!rentalService.isRentalAvailable(custId(request.getCustomer()), request.getVehicleType(), request.getZip(), period(request))) {
+                        operationMetrics.reject(ErrorCode.ERR08);
+                    }
+                    break;
+                case CUSTOMER:
+                    rentalService.getReservationsForCustomer(custId(request.getCustomer()));
+                    break;
+            }
+        } catch (InvalidRequestException e) {
+            operationMetrics.reject(e);
+        } catch (RuntimeException e) {
+            operationMetrics.error();
+        } finally {
+            operationMetrics.record(intendedNanos);
+        }
+    }
+
+    private static void rejectIfFailed(OperationResult<?> result, OperationMetrics operationMetrics) {
+        if (!result.isOk()) {
+            operationMetrics.reject(result.getErrorCode());
+        }
+    }
+
+    // reservation booked by the request's target create, or null (counted as unresolved) when it was rejected or is gone
+    private Long target(WorkloadRequest request, OperationMetrics operationMetrics) {
+        Long reservationId = request.getTarget() < 0 ? null : reservationIds.get(request.getTarget());
+        if (reservationId == null) {
+            operationMetrics.reject("unresolved");
+        }
+        return reservationId;
+    }
+
+    private static Customer customer(int customer) {
+        return Customer.builder().firstName(FIRST_NAME).lastName(LAST_NAME).phoneNo(PHONE_NO).email(email(customer)).age(AGE).build();
+    }
+
+    private static String email(int customer) {
+        return "loadgen" + customer + "@example.com";
+    }
+
+    private Long custId(int customer) throws InvalidRequestException {
+        Long custId = custIds.get(customer);
+        if (custId == null) {
+            custId = rentalService.returnCustomerId(FIRST_NAME, LAST_NAME, PHONE_NO, email(customer), AGE);
+            custIds.put(customer, custId);
+        }
+        return custId;
+    }
+
+    private ReservationPeriod period(WorkloadRequest request) {
+        LocalDateTime start = origin.plusHours(request.getStartHour());
+        return new ReservationPeriod(start, start.plusHours(request.getHours()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        WorkloadConfig config = WorkloadConfig.fromSystemProperties();
+        int carsPerZip = Integer.getInteger("rental.loadgen.carsPerZip", 0);
+        if (carsPerZip > 0) {
+            Inventory.Builder inventory = Inventory.builder();
+            for (int zip = config.getZipBase(); zip < config.getZipBase() + config.getZips(); zip++) {
+                for (VehicleType vehicleType : VehicleType.values()) {
+                    inventory.add(vehicleType, zip, carsPerZip);
+                }
+            }
+            ReservationSystem.getInstance().setInventory(inventory.build());
+        }
+        String replay = System.getProperty("rental.loadgen.replay");
+        String record = System.getProperty("rental.loadgen.record");
+        RequestSource source = replay == null ? new SyntheticWorkload(config)
+                : new RequestLogReplay(Paths.get(replay), Double.parseDouble(System.getProperty("rental.loadgen.replaySpeed", "1.0")));
+        long durationSeconds = replay == null ? config.getDurationSeconds() : Long.getLong("rental.loadgen.durationSeconds", Long.MAX_VALUE / 1_000_000_000L);
+        ReplicationPrimary primary = Boolean.getBoolean("rental.loadgen.primary") ? new ReplicationPrimary(ReservationSystem.getInstance()) : null;
+        if (primary != null) {
+            System.out.println("Replication primary listening on port " + primary.getPort());
+        }
+        RentalServiceInterface rentalService = Boolean.getBoolean("rental.loadgen.admission") ? new AdmissionControlledRentalService(new RentalService()) : new RentalService();
+        LoadReport report;
+        if (record == null) {
+            report = new LoadGenerator(rentalService).run(source, config.getThreads(), durationSeconds, null);
+        } else {
+            try (BufferedWriter recordLog = Files.newBufferedWriter(Paths.get(record), StandardCharsets.UTF_8)) {
+                report = new LoadGenerator(rentalService).run(source, config.getThreads(), durationSeconds, recordLog);
+            }
+        }
+        if (source instanceof RequestLogReplay) {
+            ((RequestLogReplay) source).close();
+        }
+        System.out.print(report.toText());
+        if (primary != null) {
+            System.out.println("Replication records sent " + primary.getRecordsSent() + " to " + primary.getReplicaCount() + " replicas");
+            primary.close();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.rental.loadgen;
+
+import com.rental.metrics.LatencyHistogram;
+import com.rental.metrics.MetricsRegistry;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a load run: throughput, latency percentiles per operation (loadgen.OPERATION) and
+ * rejections by reason (loadgen.OPERATION.rejected.REASON).
+ */
+public class LoadReport {
+
+    private final long elapsedNanos;
+    private final MetricsRegistry.Snapshot metrics;
+
+    LoadReport(long elapsedNanos, MetricsRegistry.Snapshot metrics) {
+        this.elapsedNanos = elapsedNanos;
+        this.metrics = metrics;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public MetricsRegistry.Snapshot getMetrics() {
+        return metrics;
+    }
+
+    public long getRequests() {
+        long requests = 0;
+        for (LatencyHistogram.Snapshot timer : metrics.getTimers().values()) {
+            requests += timer.getCount();
+        }
+        return requests;
+    }
+
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0.0 : getRequests() * 1e9 / elapsedNanos;
+    }
+
+    // rejected calls per reason over all operations
+    public Map<String, Long> getRejections() {
+        Map<String, Long> rejections = new TreeMap<>();
+        metrics.getCounters().forEach((name, count) -> {
+            int rejected = name.indexOf(".rejected.");
+            if (rejected >= 0 && count > 0) {
+                rejections.merge(name.substring(rejected + ".rejected.".length()), count, Long::sum);
+            }
+        });
+        return rejections;
+    }
+
+    public String toText() {
+        return String.format(Locale.ROOT, "requests=%d elapsed=%.1fs throughput=%.1f/s rejections=%s%n",
+                getRequests(), elapsedNanos / 1e9, getThroughput(), getRejections()) + metrics.toText();
+    }
+}
@@ -0,0 +1,48 @@
+package com.rental.loadgen;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Replays a request log written by LoadGenerator. speed scales the recorded timing (2.0 replays
+ * twice as fast); a speed of 0 ignores it and replays closed loop.
+ */
+public class RequestLogReplay implements RequestSource, Closeable {
+
+    private final BufferedReader reader;
+    private final double speed;
+
+    public RequestLogReplay(Path requestLog, double speed) throws IOException {
+        this.reader = Files.newBufferedReader(requestLog, StandardCharsets.UTF_8);
+        this.speed = speed;
+    }
+
+    @Override
+    public synchronized WorkloadRequest next(SplittableRandom random) {
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.trim().isEmpty() || line.startsWith("#"));
+            WorkloadRequest request = WorkloadRequest.parse(line.trim());
+            request.setAtNanos(speed > 0 && request.getAtNanos() >= 0 ? (long) (request.getAtNanos() / speed) : -1L);
+            return request;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read request log", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
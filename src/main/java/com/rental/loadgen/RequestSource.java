@@ -0,0 +1,12 @@
+package com.rental.loadgen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Supplies the requests of a load run; called concurrently by all LoadGenerator threads.
+ */
+public interface RequestSource {
+
+    // next request, or null when the workload is exhausted; random belongs to the calling thread
+    WorkloadRequest next(SplittableRandom random);
+}
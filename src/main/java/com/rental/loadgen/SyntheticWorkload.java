@@ -0,0 +1,77 @@
+package com.rental.loadgen;
+
+import com.rental.model.VehicleType;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Requests drawn from a WorkloadConfig: the operation by mix weight, customers and zip codes from
+ * Zipf distributions, vehicle types uniformly. Update, cancel and get pick one of the last 65536
+ * creates, so modification churn lands on recent bookings.
+ */
+public class SyntheticWorkload implements RequestSource {
+
+    private static final int RECENT_CREATES = 1 << 16;
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final WorkloadConfig config;
+    private final WorkloadRequest.Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final ZipfDistribution customers;
+    private final ZipfDistribution zips;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong creates = new AtomicLong();
+    private final AtomicLongArray recentCreates = new AtomicLongArray(RECENT_CREATES);
+
+    public SyntheticWorkload(WorkloadConfig config) {
+        this.config = config;
+        Map<WorkloadRequest.Operation, Integer> weights = config.getMixWeights();
+        operations = WorkloadRequest.Operation.values();
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Workload mix has no weight: " + config.getMix());
+        }
+        customers = new ZipfDistribution(config.getCustomers(), config.getCustomerSkew());
+        zips = new ZipfDistribution(config.getZips(), config.getZipSkew());
+    }
+
+    @Override
+    public WorkloadRequest next(SplittableRandom random) {
+        long requestSequence = sequence.getAndIncrement();
+        if (config.getRequests() > 0 && requestSequence >= config.getRequests()) {
+            return null;
+        }
+        long atNanos = config.getRate() > 0 ? (long) (requestSequence * 1e9 / config.getRate()) : -1L;
+        WorkloadRequest.Operation operation = pickOperation(random);
+        long target = -1L;
+        if (operation == WorkloadRequest.Operation.CREATE) {
+            recentCreates.set((int) (creates.getAndIncrement() & (RECENT_CREATES - 1)), requestSequence);
+        } else {
+            long created = creates.get();
+            if (created > 0) {
+                target = recentCreates.get(random.nextInt((int) Math.min(created, RECENT_CREATES)));
+            }
+        }
+        int hours = config.getMinHours() + random.nextInt(Math.max(1, config.getMaxHours() - config.getMinHours() + 1));
+        return new WorkloadRequest(atNanos, requestSequence, operation, customers.sample(random), VEHICLE_TYPES[random.nextInt(VEHICLE_TYPES.length)],
+                config.getZipBase() + zips.sample(random), 1 + random.nextInt(config.getStartWindowDays() * 24), hours, target);
+    }
+
+    private WorkloadRequest.Operation pickOperation(SplittableRandom random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+}
@@ -0,0 +1,73 @@
+package com.rental.loadgen;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Shape of a synthetic workload and how hard to drive it. A rate of 0 runs closed loop: every thread
+ * sends its next request as soon as the last one returns. A positive rate schedules requests at
+ * fixed intervals and measures latency from the scheduled time, so a stalled service shows up as
+ * queueing delay instead of fewer samples.
+ */
+@Data
+@Builder
+public class WorkloadConfig {
+
+    @Builder.Default private int threads = 8;
+    // requests per second over all threads, 0 for closed loop
+    @Builder.Default private double rate = 0;
+    @Builder.Default private long durationSeconds = 30;
+    // stop after this many requests, 0 for no limit
+    @Builder.Default private long requests = 0;
+    @Builder.Default private String mix = "create=30,update=15,cancel=5,get=25,availability=20,customer=5";
+    @Builder.Default private int zipBase = 19701;
+    @Builder.Default private int zips = 1;
+    @Builder.Default private double zipSkew = 1.0;
+    @Builder.Default private int customers = 10_000;
+    @Builder.Default private double customerSkew = 0.8;
+    // reservations start within this many days of the start of the run
+    @Builder.Default private int startWindowDays = 180;
+    @Builder.Default private int minHours = 25;
+    @Builder.Default private int maxHours = 24 * 7;
+    @Builder.Default private long seed = 42L;
+
+    // rental.loadgen.PROPERTY system properties, falling back to the defaults above
+    public static WorkloadConfig fromSystemProperties() {
+        WorkloadConfig defaults = builder().build();
+        return builder()
+                .threads(Integer.getInteger("rental.loadgen.threads", defaults.threads))
+                .rate(Double.parseDouble(System.getProperty("rental.loadgen.rate", String.valueOf(defaults.rate))))
+                .durationSeconds(Long.getLong("rental.loadgen.durationSeconds", defaults.durationSeconds))
+                .requests(Long.getLong("rental.loadgen.requests", defaults.requests))
+                .mix(System.getProperty("rental.loadgen.mix", defaults.mix))
+                .zipBase(Integer.getInteger("rental.loadgen.zipBase", defaults.zipBase))
+                .zips(Integer.getInteger("rental.loadgen.zips", defaults.zips))
+                .zipSkew(Double.parseDouble(System.getProperty("rental.loadgen.zipSkew", String.valueOf(defaults.zipSkew))))
+                .customers(Integer.getInteger("rental.loadgen.customers", defaults.customers))
+                .customerSkew(Double.parseDouble(System.getProperty("rental.loadgen.customerSkew", String.valueOf(defaults.customerSkew))))
+                .startWindowDays(Integer.getInteger("rental.loadgen.startWindowDays", defaults.startWindowDays))
+                .minHours(Integer.getInteger("rental.loadgen.minHours", defaults.minHours))
+                .maxHours(Integer.getInteger("rental.loadgen.maxHours", defaults.maxHours))
+                .seed(Long.getLong("rental.loadgen.seed", defaults.seed))
+                .build();
+    }
+
+    // weights of mix, e.g. create=30,update=15; missing operations get 0
+    public Map<WorkloadRequest.Operation, Integer> getMixWeights() {
+        Map<WorkloadRequest.Operation, Integer> weights = new EnumMap<>(WorkloadRequest.Operation.class);
+        for (WorkloadRequest.Operation operation : WorkloadRequest.Operation.values()) {
+            weights.put(operation, 0);
+        }
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.trim().split("=");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry);
+            }
+            weights.put(WorkloadRequest.Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,51 @@
+package com.rental.loadgen;
+
+import com.rental.model.VehicleType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One call of a workload. Customers are numbered and turned into emails by the LoadGenerator;
+ * update, cancel and get refer to the create request with sequence target, so a recorded log
+ * replays against whatever reservation ids that create gets this time.
+ *
+ * In a request log each request is one line: atNanos,sequence,operation,customer,vehicleType,zip,startHour,hours,target
+ */
+@Data
+@AllArgsConstructor
+public class WorkloadRequest {
+
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        CANCEL,
+        GET,
+        AVAILABILITY,
+        CUSTOMER
+    }
+
+    // intended start as an offset from the start of the run, or -1 to run as soon as a thread is free
+    private long atNanos;
+    private long sequence;
+    private Operation operation;
+    private int customer;
+    private VehicleType vehicleType;
+    private int zip;
+    // reservation period start, in hours from the start of the run
+    private long startHour;
+    private int hours;
+    private long target;
+
+    public String toLogLine() {
+        return atNanos + "," + sequence + "," + operation + "," + customer + "," + vehicleType + "," + zip + "," + startHour + "," + hours + "," + target;
+    }
+
+    public static WorkloadRequest parse(String line) {
+        String[] fields = line.split(",");
+        if (fields.length != 9) {
+            throw new IllegalArgumentException("Invalid request log line: " + line);
+        }
+        return new WorkloadRequest(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Operation.valueOf(fields[2]), Integer.parseInt(fields[3]),
+                VehicleType.valueOf(fields[4]), Integer.parseInt(fields[5]), Long.parseLong(fields[6]), Integer.parseInt(fields[7]), Long.parseLong(fields[8]));
+    }
+}
@@ -0,0 +1,190 @@
+package com.rental.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named latency histograms and counters. Lookups by name go through a ConcurrentHashMap, so hot
+ * paths should keep the returned LatencyHistogram or LongAdder in a field.
+ *
+ * When system property rental.metrics.file is set, the default registry rewrites that file every
+ * rental.metrics.intervalSeconds (default 60); a .json file gets JSON, anything else text. Failed
+ * writes are counted in metrics.exportErrors and the last one is kept in getExportFailure.
+ */
+public class MetricsRegistry {
+
+    private static volatile MetricsRegistry instance;
+
+    private final ConcurrentHashMap<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private volatile IOException exportFailure;
+
+    public static MetricsRegistry getInstance() {
+        if (instance == null) {
+            synchronized (MetricsRegistry.class) {
+                if (instance == null) {
+                    MetricsRegistry registry = new MetricsRegistry();
+                    String metricsFile = System.getProperty("rental.metrics.file");
+                    if (metricsFile != null) {
+                        registry.startExport(Paths.get(metricsFile), Long.getLong("rental.metrics.intervalSeconds", 60L));
+                    }
+                    instance = registry;
+                }
+            }
+        }
+        return instance;
+    }
+
+    public LatencyHistogram timer(String name) {
+        return timers.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    // the last failed periodic export, or null once an export succeeded after it
+    public IOException getExportFailure() {
+        return exportFailure;
+    }
+
+    public void reset() {
+        timers.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+    public Snapshot snapshot() {
+        Map<String, LatencyHistogram.Snapshot> timerSnapshots = new TreeMap<>();
+        timers.forEach((name, timer) -> timerSnapshots.put(name, timer.snapshot()));
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        return new Snapshot(System.currentTimeMillis(), timerSnapshots, counterValues);
+    }
+
+    // writes a snapshot to a temp file and renames it, so readers never see a partial file
+    public void writeTo(Path file) throws IOException {
+        Snapshot snapshot = snapshot();
+        String content = file.getFileName().toString().endsWith(".json") ? snapshot.toJson() : snapshot.toText();
+        Path parent = file.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempFile, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // one periodic export; a failure is recorded and the next export tries again
+    void export(Path file) {
+        try {
+            writeTo(file);
+            exportFailure = null;
+        } catch (IOException e) {
+            counter("metrics.exportErrors").increment();
+            exportFailure = e;
+        }
+    }
+
+    private void startExport(Path file, long intervalSeconds) {
+        ScheduledExecutorService exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exporter.scheduleWithFixedDelay(() -> export(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static class Snapshot {
+
+        private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+        private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+        private final long timestampMillis;
+        private final Map<String, LatencyHistogram.Snapshot> timers;
+        private final Map<String, Long> counters;
+
+        private Snapshot(long timestampMillis, Map<String, LatencyHistogram.Snapshot> timers, Map<String, Long> counters) {
+            this.timestampMillis = timestampMillis;
+            this.timers = timers;
+            this.counters = counters;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public Map<String, LatencyHistogram.Snapshot> getTimers() {
+            return timers;
+        }
+
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        public LatencyHistogram.Snapshot getTimer(String name) {
+            return timers.get(name);
+        }
+
+        public long getCounter(String name) {
+            return counters.getOrDefault(name, 0L);
+        }
+
+        // one line per timer and counter, latencies in microseconds
+        public String toText() {
+            StringBuilder text = new StringBuilder();
+            timers.forEach((name, timer) -> {
+                text.append(name).append(" count=").append(timer.getCount())
+                        .append(" mean=").append(micros(timer.getMeanNanos())).append("us");
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    text.append(' ').append(PERCENTILE_NAMES[i]).append('=').append(micros(timer.getPercentileNanos(PERCENTILES[i]))).append("us");
+                }
+                text.append(" max=").append(micros(timer.getMaxNanos())).append("us\n");
+            });
+            counters.forEach((name, value) -> text.append(name).append(' ').append(value).append('\n'));
+            return text.toString();
+        }
+
+        public String toJson() {
+            StringBuilder json = new StringBuilder("{\"timestampMillis\":").append(timestampMillis).append(",\"timers\":{");
+            String separator = "";
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : timers.entrySet()) {
+                LatencyHistogram.Snapshot timer = entry.getValue();
+                json.append(separator).append(quote(entry.getKey())).append(":{\"count\":").append(timer.getCount())
+                        .append(",\"meanNanos\":").append(Math.round(timer.getMeanNanos()));
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    json.append(",\"").append(PERCENTILE_NAMES[i]).append("Nanos\":").append(timer.getPercentileNanos(PERCENTILES[i]));
+                }
+                json.append(",\"maxNanos\":").append(timer.getMaxNanos()).append('}');
+                separator = ",";
+            }
+            json.append("},\"counters\":{");
+            separator = "";
+            for (Map.Entry<String, Long> entry : counters.entrySet()) {
+                json.append(separator).append(quote(entry.getKey())).append(':').append(entry.getValue());
+                separator = ",";
+            }
+            return json.append("}}").toString();
+        }
+
+        private static String micros(double nanos) {
+            return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+        }
+
+        private static String quote(String value) {
+            return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+        }
+    }
+}
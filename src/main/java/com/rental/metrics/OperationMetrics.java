@@ -0,0 +1,61 @@
+package com.rental.metrics;
+
+import com.rental.validator.ErrorCode;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, call, rejection and error counts of one service operation, registered as
+ * name (timer), name.rejected.REASON and name.errors. Rejection reasons are ErrorCode names, or the
+ * exception message when it matches no ErrorCode.
+ */
+public class OperationMetrics {
+
+    private static final ErrorCode[] ERROR_CODES = ErrorCode.values();
+
+    private final MetricsRegistry registry;
+    private final String name;
+    private final LatencyHistogram latency;
+    private final LongAdder errors;
+    private final ConcurrentHashMap<String, LongAdder> rejections = new ConcurrentHashMap<>();
+
+    public OperationMetrics(MetricsRegistry registry, String name) {
+        this.registry = registry;
+        this.name = name;
+        this.latency = registry.timer(name);
+        this.errors = registry.counter(name + ".errors");
+    }
+
+    public void record(long startNanos) {
+        latency.recordSince(startNanos);
+    }
+
+    public void reject(ErrorCode errorCode) {
+        reject(errorCode.name());
+    }
+
+    public void reject(Exception rejection) {
+        reject(reasonOf(rejection.getMessage()));
+    }
+
+    public void reject(String reason) {
+        rejections.computeIfAbsent(reason, key -> registry.counter(name + ".rejected." + key)).increment();
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    private static String reasonOf(String message) {
+        if (message == null) {
+            return "unknown";
+        }
+        for (ErrorCode errorCode : ERROR_CODES) {
+            if (message.startsWith(errorCode.getValue())) {
+                return errorCode.name();
+            }
+        }
+        return message.trim();
+    }
+}
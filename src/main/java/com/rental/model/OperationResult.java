@@ -0,0 +1,62 @@
+package com.rental.model;
+
+import com.rental.validator.ErrorCode;
+import com.rental.validator.InvalidRequestException;
+
+/**
+ * Outcome of a booking call that reports rejections as an ErrorCode instead of throwing.
+ * Rejections are preallocated per code, so a rejected call allocates nothing.
+ */
+public final class OperationResult<T> {
+
+    private static final OperationResult<?>[] REJECTED = new OperationResult<?>[ErrorCode.values().length];
+
+    static {
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            REJECTED[errorCode.ordinal()] = new OperationResult<>(null, errorCode);
+        }
+    }
+
+    private final T value;
+    private final ErrorCode errorCode;
+
+    private OperationResult(T value, ErrorCode errorCode) {
+        this.value = value;
+        this.errorCode = errorCode;
+    }
+
+    public static <T> OperationResult<T> ok(T value) {
+        return new OperationResult<>(value, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> OperationResult<T> rejected(ErrorCode errorCode) {
+        return (OperationResult<T>) REJECTED[errorCode.ordinal()];
+    }
+
+    public boolean isOk() {
+        return errorCode == null;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    // null when the call succeeded
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    // the value, or the rejection as the InvalidRequestException the throwing API reports
+    public T getOrThrow() throws InvalidRequestException {
+        if (errorCode != null) {
+            throw new InvalidRequestException(errorCode.getValue());
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return errorCode == null ? "OperationResult(value=" + value + ")" : "OperationResult(errorCode=" + errorCode + ")";
+    }
+}
@@ -0,0 +1,15 @@
+package com.rental.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class ReservationRequest {
+    private Customer customer;
+    private VehicleType vehicleType;
+    private int pickupZip;
+    private ReservationPeriod reservationPeriod;
+}
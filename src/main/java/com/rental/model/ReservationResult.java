@@ -0,0 +1,34 @@
+package com.rental.model;
+
+import com.rental.validator.ErrorCode;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+@Value
+@AllArgsConstructor
+public class ReservationResult {
+
+    // rejections carry no reservation, so one instance per code is shared
+    private static final ReservationResult[] REJECTED = new ReservationResult[ErrorCode.values().length];
+
+    static {
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            REJECTED[errorCode.ordinal()] = new ReservationResult(null, errorCode);
+        }
+    }
+
+    private Long reservationId;
+    private ErrorCode errorCode;
+
+    public static ReservationResult reserved(Long reservationId) {
+        return new ReservationResult(reservationId, null);
+    }
+
+    public static ReservationResult rejected(ErrorCode errorCode) {
+        return REJECTED[errorCode.ordinal()];
+    }
+
+    public boolean isReserved() {
+        return reservationId != null;
+    }
+}
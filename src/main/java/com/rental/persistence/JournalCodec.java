@@ -0,0 +1,159 @@
+package com.rental.persistence;
+
+import com.rental.model.VehicleType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Binary framing for journal records:
+ * <pre>
+ * int   body length
+ * byte  record type
+ * ...   type specific fields
+ * int   CRC32 of type and fields
+ * </pre>
+ * A frame whose length or checksum does not match marks the torn tail of the journal.
+ */
+public class JournalCodec {
+
+    public static final int HEADER_BYTES = 4;
+    public static final int TRAILER_BYTES = 4;
+    public static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private static final JournalRecord.Type[] TYPES = JournalRecord.Type.values();
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    public static ByteBuffer encode(JournalRecord record) {
+        byte[] email = bytes(record.getEmail());
+        byte[] firstName = bytes(record.getFirstName());
+        byte[] lastName = bytes(record.getLastName());
+        int bodyLength = 1 + bodyLength(record.getType(), email, firstName, lastName);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyLength + TRAILER_BYTES);
+        buffer.putInt(bodyLength);
+        buffer.put((byte) record.getType().ordinal());
+        switch (record.getType()) {
+            case CUSTOMER:
+                buffer.putLong(record.getCustId());
+                putString(buffer, email);
+                putString(buffer, firstName);
+                putString(buffer, lastName);
+                buffer.put((byte) (record.getPhoneNo() == null ? 0 : 1));
+                buffer.putLong(record.getPhoneNo() == null ? 0L : record.getPhoneNo());
+                buffer.putInt(record.getAge());
+                break;
+            case CREATE:
+            case UPDATE:
+            case MOVE:
+                buffer.putLong(record.getReservationId());
+                buffer.putLong(record.getCustId());
+                buffer.put((byte) record.getVehicleType().ordinal());
+                buffer.putInt(record.getZipCode());
+                buffer.putLong(record.getStartKey());
+                buffer.putLong(record.getEndKey());
+                buffer.put((byte) (record.isReserved() ? 1 : 0));
+                if (record.getType() == JournalRecord.Type.MOVE) {
+                    buffer.putLong(record.getMoveSequence());
+                }
+                break;
+            default:
+                buffer.putLong(record.getReservationId());
+                break;
+        }
+        buffer.putInt(crc(buffer.array(), HEADER_BYTES, bodyLength));
+        buffer.flip();
+        return buffer;
+    }
+
+    // decodes one frame body (type and fields) after its length and checksum were verified
+    public static JournalRecord decodeBody(ByteBuffer body) {
+        JournalRecord record = new JournalRecord();
+        record.setType(TYPES[body.get()]);
+        switch (record.getType()) {
+            case CUSTOMER:
+                record.setCustId(body.getLong());
+                record.setEmail(getString(body));
+                record.setFirstName(getString(body));
+                record.setLastName(getString(body));
+                boolean hasPhoneNo = body.get() == 1;
+                long phoneNo = body.getLong();
+                record.setPhoneNo(hasPhoneNo ? phoneNo : null);
+                record.setAge(body.getInt());
+                break;
+            case CREATE:
+            case UPDATE:
+            case MOVE:
+                record.setReservationId(body.getLong());
+                record.setCustId(body.getLong());
+                record.setVehicleType(VEHICLE_TYPES[body.get()]);
+                record.setZipCode(body.getInt());
+                record.setStartKey(body.getLong());
+                record.setEndKey(body.getLong());
+                record.setReserved(body.get() == 1);
+                if (record.getType() == JournalRecord.Type.MOVE) {
+                    record.setMoveSequence(body.getLong());
+                }
+                break;
+            default:
+                record.setReservationId(body.getLong());
+                break;
+        }
+        return record;
+    }
+
+    public static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, offset, length);
+        return (int) crc32.getValue();
+    }
+
+    private static int bodyLength(JournalRecord.Type type, byte[] email, byte[] firstName, byte[] lastName) {
+        switch (type) {
+            case CUSTOMER:
+                return 8 + stringLength(email) + stringLength(firstName) + stringLength(lastName) + 1 + 8 + 4;
+            case CREATE:
+            case UPDATE:
+                return 8 + 8 + 1 + 4 + 8 + 8 + 1;
+            case MOVE:
+                return 8 + 8 + 1 + 4 + 8 + 8 + 1 + 8;
+            default:
+                return 8;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal field longer than " + Short.MAX_VALUE + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int stringLength(byte[] value) {
+        return 2 + (value == null ? 0 : value.length);
+    }
+
+    // length -1 encodes null
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package com.rental.persistence;
+
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.VehicleType;
+import com.rental.util.TimeKeyUtil;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One journaled mutation. Reservation records carry the full reservation state so replaying
+ * a record twice leaves the same state.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalRecord {
+
+    public enum Type {
+        CUSTOMER, CREATE, UPDATE, CANCEL, EXPIRE, REMOVE, ARCHIVE, MOVE
+    }
+
+    private Type type;
+    private long reservationId;
+    private long custId;
+    private VehicleType vehicleType;
+    private int zipCode;
+    private long startKey;
+    private long endKey;
+    private boolean reserved;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private Long phoneNo;
+    private int age;
+    // MOVE only: orders the moves of one reservation
+    private long moveSequence;
+
+    public static JournalRecord ofCustomer(Customer customer) {
+        return JournalRecord.builder().type(Type.CUSTOMER).custId(customer.getCustomerId()).email(customer.getEmail())
+                .firstName(customer.getFirstName()).lastName(customer.getLastName()).phoneNo(customer.getPhoneNo()).age(customer.getAge()).build();
+    }
+
+    public static JournalRecord ofReservation(Type type, Reservation reservation) {
+        return JournalRecord.builder().type(type).reservationId(reservation.getReservationId()).custId(reservation.getCustId())
+                .vehicleType(reservation.getVehicleType()).zipCode(reservation.getZipcode())
+                .startKey(TimeKeyUtil.toKey(reservation.getReservationPeriod().getStartDateTime()))
+                .endKey(TimeKeyUtil.toKey(reservation.getReservationPeriod().getEndDateTime()))
+                .reserved(reservation.isReserved()).build();
+    }
+
+    // the reservation moved in from another shard
+    public static JournalRecord ofMove(Reservation reservation, long moveSequence) {
+        JournalRecord record = ofReservation(Type.MOVE, reservation);
+        record.setMoveSequence(moveSequence);
+        return record;
+    }
+
+    public static JournalRecord ofCancel(Long reservationId) {
+        return JournalRecord.builder().type(Type.CANCEL).reservationId(reservationId).build();
+    }
+
+    public static JournalRecord ofExpire(Long reservationId) {
+        return JournalRecord.builder().type(Type.EXPIRE).reservationId(reservationId).build();
+    }
+
+    // the reservation moved to another shard
+    public static JournalRecord ofRemove(Long reservationId) {
+        return JournalRecord.builder().type(Type.REMOVE).reservationId(reservationId).build();
+    }
+
+    // the inactive reservation moved to the cold store
+    public static JournalRecord ofArchive(Long reservationId) {
+        return JournalRecord.builder().type(Type.ARCHIVE).reservationId(reservationId).build();
+    }
+}
@@ -0,0 +1,320 @@
+package com.rental.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of reservation and customer mutations with group commit.
+ *
+ * The journal is a directory of numbered segments (journal-00000001.log, ...). roll() starts a
+ * new segment so a snapshot can record the segment from which replay must resume.
+ *
+ * append() only queues the encoded record, so callers can append while holding domain locks.
+ * A single writer thread writes everything queued since its last pass with one gathering write
+ * and one fsync; sync() blocks the caller until its own last append is durable. Many concurrent
+ * bookings therefore share one fsync.
+ */
+public class ReservationJournal implements Closeable {
+
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final ByteBuffer ROLL_MARKER = ByteBuffer.allocate(0);
+
+    private final Path directory;
+    private FileChannel channel;
+    private volatile long segment;
+    private final List<CompletableFuture<Long>> rollRequests = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingNotEmpty = lock.newCondition();
+    private final Condition durableAdvanced = lock.newCondition();
+    private final ThreadLocal<long[]> lastAppendedByThread = ThreadLocal.withInitial(() -> new long[1]);
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong forces = new AtomicLong();
+    private final Thread writer;
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+
+    private ReservationJournal(Path directory, long segment, FileChannel channel) {
+        this.directory = directory;
+        this.segment = segment;
+        this.channel = channel;
+        this.writer = new Thread(this::writeLoop, "reservation-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // replays every intact record of segments >= fromSegment, drops torn tails and keeps appending to the last segment
+    public static ReservationJournal open(Path directory, long fromSegment, Consumer<JournalRecord> replayer) throws IOException {
+        Files.createDirectories(directory);
+        long lastSegment = fromSegment;
+        for (long existing : listSegments(directory)) {
+            if (existing >= fromSegment) {
+                try (FileChannel channel = FileChannel.open(segmentPath(directory, existing), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    channel.truncate(replay(channel, 0L, replayer));
+                }
+                lastSegment = existing;
+            }
+        }
+        return new ReservationJournal(directory, lastSegment, openSegment(directory, lastSegment));
+    }
+
+    public static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    public static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static FileChannel openSegment(Path directory, long segment) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(directory, segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    // returns the offset just past the last intact record
+    static long replay(FileChannel channel, long fromOffset, Consumer<JournalRecord> replayer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        long offset = fromOffset;
+        long readOffset = fromOffset;
+        while (true) {
+            int read = channel.read(buffer, readOffset);
+            if (read > 0) {
+                readOffset += read;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= JournalCodec.HEADER_BYTES) {
+                int bodyLength = buffer.getInt(buffer.position());
+                if (bodyLength <= 0 || bodyLength > JournalCodec.MAX_BODY_BYTES) {
+                    return offset;
+                }
+                int frameLength = JournalCodec.HEADER_BYTES + bodyLength + JournalCodec.TRAILER_BYTES;
+                if (buffer.remaining() < frameLength) {
+                    break;
+                }
+                int bodyStart = buffer.position() + JournalCodec.HEADER_BYTES;
+                int checksum = buffer.getInt(bodyStart + bodyLength);
+                if (checksum != JournalCodec.crc(buffer.array(), bodyStart, bodyLength)) {
+                    return offset;
+                }
+                ByteBuffer body = buffer.duplicate();
+                body.position(bodyStart).limit(bodyStart + bodyLength);
+                replayer.accept(JournalCodec.decodeBody(body));
+                buffer.position(buffer.position() + frameLength);
+                offset += frameLength;
+            }
+            buffer.compact();
+            if (read <= 0) {
+                return offset;
+            }
+        }
+    }
+
+    public long append(JournalRecord record) {
+        ByteBuffer frame = JournalCodec.encode(record);
+        long sequence;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            pending.add(frame);
+            sequence = ++appendedSequence;
+            pendingNotEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        lastAppendedByThread.get()[0] = sequence;
+        return sequence;
+    }
+
+    // blocks until everything this thread appended is on disk
+    public void sync() {
+        awaitDurable(lastAppendedByThread.get()[0]);
+    }
+
+    public void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableSequence < sequence && failure == null) {
+                durableAdvanced.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Reservation journal write failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // records appended before this call stay in the current segment, later ones go to the returned new segment
+    public long roll() {
+        CompletableFuture<Long> rolled = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            pending.add(ROLL_MARKER);
+            rollRequests.add(rolled);
+            pendingNotEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return rolled.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rolling journal", e);
+        } catch (ExecutionException e) {
+            throw new UncheckedIOException("Unable to roll journal", (IOException) e.getCause());
+        }
+    }
+
+    public void deleteSegmentsBefore(long beforeSegment) throws IOException {
+        for (long existing : listSegments(directory)) {
+            if (existing < beforeSegment) {
+                Files.deleteIfExists(segmentPath(directory, existing));
+            }
+        }
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getForces() {
+        return forces.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pendingNotEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void write(List<ByteBuffer> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] frames = batch.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer frame : frames) {
+            remaining += frame.remaining();
+        }
+        long batchBytes = remaining;
+        while (remaining > 0) {
+            remaining -= channel.write(frames);
+        }
+        channel.force(false);
+        forces.incrementAndGet();
+        recordsWritten.addAndGet(frames.length);
+        bytesWritten.addAndGet(batchBytes);
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<ByteBuffer> batch;
+            List<CompletableFuture<Long>> rolls;
+            long batchSequence;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    pendingNotEmpty.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchSequence = appendedSequence;
+                rolls = new ArrayList<>(rollRequests);
+                rollRequests.clear();
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                int from = 0;
+                int rollIndex = 0;
+                for (int i = 0; i <= batch.size(); i++) {
+                    if (i == batch.size() || batch.get(i) == ROLL_MARKER) {
+                        write(batch.subList(from, i));
+                        from = i + 1;
+                        if (i < batch.size()) {
+                            channel.close();
+                            channel = openSegment(directory, segment + 1);
+                            segment++;
+                            rolls.get(rollIndex++).complete(segment);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                error = e;
+                for (CompletableFuture<Long> roll : rolls) {
+                    roll.completeExceptionally(e);
+                }
+            }
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                }
+                durableSequence = batchSequence;
+                durableAdvanced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
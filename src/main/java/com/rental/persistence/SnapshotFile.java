@@ -0,0 +1,240 @@
+package com.rental.persistence;
+
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.util.TimeKeyUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compacted binary snapshot of ReservationSystem state, named snapshot-SEGMENT.bin where SEGMENT is
+ * the first journal segment that must be replayed on top of it.
+ * <pre>
+ * int  magic, int version, long segment, long nextReservationId, long nextCustomerId
+ * repeated: byte tag (1 inventory, 2 customer, 3 reservation) and its fields
+ * byte 0, long CRC32 of everything before it
+ * </pre>
+ * Snapshots are written to a temp file, forced and atomically renamed, and read back memory-mapped.
+ */
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x52534E50;
+    private static final int VERSION = 1;
+    private static final byte END = 0;
+    private static final byte INVENTORY = 1;
+    private static final byte CUSTOMER = 2;
+    private static final byte RESERVATION = 3;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    public interface Handler {
+        void header(long segment, long nextReservationId, long nextCustomerId);
+
+        void inventory(VehicleType vehicleType, int zipCode, long vehicleCount);
+
+        void customer(Customer customer);
+
+        void reservation(Reservation reservation);
+    }
+
+    public static class Writer implements AutoCloseable {
+
+        private final Path file;
+        private final Path tempFile;
+        private final FileChannel channel;
+        private final CheckedOutputStream checked;
+        private final DataOutputStream out;
+
+        private Writer(Path directory, long segment, long nextReservationId, long nextCustomerId) throws IOException {
+            file = path(directory, segment);
+            tempFile = directory.resolve(file.getFileName() + ".tmp");
+            channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            OutputStream channelStream = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            };
+            checked = new CheckedOutputStream(new BufferedOutputStream(channelStream, 256 * 1024), new CRC32());
+            out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(segment);
+            out.writeLong(nextReservationId);
+            out.writeLong(nextCustomerId);
+        }
+
+        public void inventory(VehicleType vehicleType, int zipCode, long vehicleCount) throws IOException {
+            out.writeByte(INVENTORY);
+            out.writeByte(vehicleType.ordinal());
+            out.writeInt(zipCode);
+            out.writeLong(vehicleCount);
+        }
+
+        public void customer(Customer customer) throws IOException {
+            out.writeByte(CUSTOMER);
+            out.writeLong(customer.getCustomerId());
+            writeString(customer.getEmail());
+            writeString(customer.getFirstName());
+            writeString(customer.getLastName());
+            out.writeBoolean(customer.getPhoneNo() != null);
+            out.writeLong(customer.getPhoneNo() == null ? 0L : customer.getPhoneNo());
+            out.writeInt(customer.getAge());
+        }
+
+        public void reservation(Reservation reservation) throws IOException {
+            out.writeByte(RESERVATION);
+            out.writeLong(reservation.getReservationId());
+            out.writeLong(reservation.getCustId());
+            out.writeByte(reservation.getVehicleType().ordinal());
+            out.writeInt(reservation.getZipcode());
+            out.writeLong(TimeKeyUtil.toKey(reservation.getReservationPeriod().getStartDateTime()));
+            out.writeLong(TimeKeyUtil.toKey(reservation.getReservationPeriod().getEndDateTime()));
+            out.writeBoolean(reservation.isReserved());
+        }
+
+        // seals the snapshot: writes the checksum, forces it to disk and renames it into place
+        public Path commit() throws IOException {
+            out.writeByte(END);
+            out.flush();
+            long crc = checked.getChecksum().getValue();
+            out.writeLong(crc);
+            out.flush();
+            channel.force(true);
+            channel.close();
+            return Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel.isOpen()) {
+                channel.close();
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    public static Writer writer(Path directory, long segment, long nextReservationId, long nextCustomerId) throws IOException {
+        return new Writer(directory, segment, nextReservationId, nextCustomerId);
+    }
+
+    public static Path path(Path directory, long segment) {
+        return directory.resolve(String.format("%s%08d%s", PREFIX, segment, SUFFIX));
+    }
+
+    // snapshot segments, oldest first
+    public static List<Long> list(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    segments.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    public static void read(Path file, Handler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            verifyChecksum(file, buffer);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported snapshot " + file);
+            }
+            handler.header(buffer.getLong(), buffer.getLong(), buffer.getLong());
+            while (true) {
+                byte tag = buffer.get();
+                switch (tag) {
+                    case END:
+                        return;
+                    case INVENTORY:
+                        handler.inventory(VEHICLE_TYPES[buffer.get()], buffer.getInt(), buffer.getLong());
+                        break;
+                    case CUSTOMER:
+                        Customer customer = Customer.builder().customerId(buffer.getLong()).email(readString(buffer))
+                                .firstName(readString(buffer)).lastName(readString(buffer)).build();
+                        boolean hasPhoneNo = buffer.get() != 0;
+                        long phoneNo = buffer.getLong();
+                        customer.setPhoneNo(hasPhoneNo ? phoneNo : null);
+                        customer.setAge(buffer.getInt());
+                        handler.customer(customer);
+                        break;
+                    case RESERVATION:
+                        long reservationId = buffer.getLong();
+                        long custId = buffer.getLong();
+                        VehicleType vehicleType = VEHICLE_TYPES[buffer.get()];
+                        int zipCode = buffer.getInt();
+                        ReservationPeriod reservationPeriod = new ReservationPeriod(TimeKeyUtil.fromKey(buffer.getLong()), TimeKeyUtil.fromKey(buffer.getLong()));
+                        handler.reservation(new Reservation(reservationId, custId, vehicleType, zipCode, reservationPeriod, buffer.get() != 0));
+                        break;
+                    default:
+                        throw new IOException("Corrupt snapshot " + file);
+                }
+            }
+        }
+    }
+
+    private static void verifyChecksum(Path file, ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < Long.BYTES + 1) {
+            throw new IOException("Truncated snapshot " + file);
+        }
+        ByteBuffer content = buffer.duplicate();
+        content.limit(buffer.limit() - Long.BYTES);
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        if (crc32.getValue() != buffer.getLong(buffer.limit() - Long.BYTES)) {
+            throw new IOException("Snapshot checksum mismatch " + file);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,233 @@
+package com.rental.replication;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.metrics.LatencyHistogram;
+import com.rental.metrics.MetricsRegistry;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.validator.ErrorCode;
+import com.rental.validator.InvalidRequestException;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Read-only copy of a primary ReservationSystem kept up to date from a ReplicationPrimary over TCP.
+ * getReservationById and isRentalAvailable are answered from the local copy without locking.
+ *
+ * Reads are refused with ERR12 when the copy is more than maxStalenessMillis behind the primary,
+ * measured from the primary's heartbeats: once every record up to a heartbeat's LSN is applied, the
+ * copy holds every write that had returned on the primary by the heartbeat's time. Reads given a
+ * token from ReplicationPrimary.getLsn() first wait up to maxStalenessMillis for that LSN, so a client
+ * reads its own writes.
+ *
+ * Each connection, including a reconnect after the primary dropped it, loads a fresh snapshot into a
+ * new ReservationSystem and switches reads to it once the snapshot is complete. Expiry is not run
+ * locally; expirations come from the primary.
+ */
+public class ReadReplica implements Closeable {
+
+    private static final long RECONNECT_MILLIS = 500L;
+    private static final int MAX_PENDING_HEARTBEATS = 1024;
+    private static final LatencyHistogram STALENESS_TIMER = MetricsRegistry.getInstance().timer("replication.staleness");
+
+    private final String host;
+    private final int port;
+    private final long maxStalenessMillis;
+    private final Thread receiver;
+    private final LongAdder appliedRecords = new LongAdder();
+    private final LongAdder appliedMetric;
+    // heartbeats as {lsn, millis} not yet covered by appliedLsn, receiver thread only
+    private final ArrayDeque<long[]> pendingHeartbeats = new ArrayDeque<>();
+    private volatile ReservationSystem reservationSystem;
+    private volatile long appliedLsn;
+    private volatile long primaryLsn;
+    // primary time the local copy is known to be current as of, 0 before the first heartbeat
+    private volatile long freshAsOfMillis;
+    private volatile long snapshots;
+    private volatile boolean running = true;
+    private volatile Socket socket;
+
+    public ReadReplica(String host, int port, long maxStalenessMillis) {
+        this.host = host;
+        this.port = port;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.appliedMetric = MetricsRegistry.getInstance().counter("replication.applied");
+        this.receiver = new Thread(this::receive, "replication-replica-" + port);
+        this.receiver.setDaemon(true);
+        this.receiver.start();
+    }
+
+    public Reservation getReservationById(Long reservationId) throws InvalidRequestException {
+        return getReservationById(reservationId, 0L);
+    }
+
+    public Reservation getReservationById(Long reservationId, long token) throws InvalidRequestException {
+        return awaitFresh(token).findExistingReservation(reservationId);
+    }
+
+    public boolean isRentalAvailable(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        return isRentalAvailable(custId, vehicleType, zipCode, reservationPeriod, 0L);
+    }
+
+    public boolean isRentalAvailable(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod, long token) throws InvalidRequestException {
+        return awaitFresh(token).isRentalAvailable(custId, vehicleType, zipCode, reservationPeriod);
+    }
+
+    // the local copy once it has applied token and is within maxStalenessMillis of the primary
+    private ReservationSystem awaitFresh(long token) throws InvalidRequestException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+        while (reservationSystem == null || appliedLsn < token || getStalenessMillis() > maxStalenessMillis) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new InvalidRequestException(ErrorCode.ERR12.getValue());
+            }
+            LockSupport.parkNanos(100_000L);
+        }
+        return reservationSystem;
+    }
+
+    // LSN of the last record applied
+    public long getAppliedLsn() {
+        return appliedLsn;
+    }
+
+    // last LSN the primary reported
+    public long getPrimaryLsn() {
+        return primaryLsn;
+    }
+
+    public long getLagRecords() {
+        return Math.max(0L, primaryLsn - appliedLsn);
+    }
+
+    // how far behind the primary the local copy may be, Long.MAX_VALUE until it first caught up
+    public long getStalenessMillis() {
+        long freshAsOf = freshAsOfMillis;
+        return freshAsOf == 0L ? Long.MAX_VALUE : Math.max(0L, System.currentTimeMillis() - freshAsOf);
+    }
+
+    public long getAppliedRecords() {
+        return appliedRecords.sum();
+    }
+
+    // snapshots loaded, one per connection
+    public long getSnapshots() {
+        return snapshots;
+    }
+
+    private void receive() {
+        while (running) {
+            try (Socket connected = new Socket(host, port)) {
+                socket = connected;
+                connected.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connected.getInputStream(), 64 * 1024));
+                loadSnapshot(in);
+                while (running) {
+                    byte kind = in.readByte();
+                    if (kind == ReplicationProtocol.RECORD) {
+                        long lsn = in.readLong();
+                        reservationSystem.applyJournalRecord(ReplicationProtocol.readFrame(in));
+                        appliedLsn = lsn;
+                        appliedRecords.increment();
+                        appliedMetric.increment();
+                        advanceFreshness();
+                    } else if (kind == ReplicationProtocol.HEARTBEAT) {
+                        heartbeat(in.readLong(), in.readLong());
+                    } else {
+                        throw new IOException("Unexpected replication message " + kind);
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RECONNECT_MILLIS));
+                }
+            }
+        }
+    }
+
+    private void loadSnapshot(DataInputStream in) throws IOException {
+        if (in.readByte() != ReplicationProtocol.SNAPSHOT) {
+            throw new IOException("Replication stream does not start with a snapshot");
+        }
+        long lsn = in.readLong();
+        ReservationSystem loading = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus());
+        loading.getExpiryEngine().stop();
+        Inventory.Builder inventory = Inventory.builder();
+        VehicleType[] vehicleTypes = VehicleType.values();
+        while (true) {
+            byte kind = in.readByte();
+            if (kind == ReplicationProtocol.INVENTORY) {
+                inventory.add(vehicleTypes[in.readByte()], in.readInt(), in.readLong());
+            } else if (kind == ReplicationProtocol.STATE) {
+                loading.applyJournalRecord(ReplicationProtocol.readFrame(in));
+            } else if (kind == ReplicationProtocol.SNAPSHOT_END) {
+                break;
+            } else {
+                throw new IOException("Unexpected replication message " + kind);
+            }
+        }
+        loading.setInventory(inventory.build());
+        pendingHeartbeats.clear();
+        appliedLsn = lsn;
+        primaryLsn = Math.max(primaryLsn, lsn);
+        reservationSystem = loading;
+        snapshots++;
+    }
+
+    private void heartbeat(long lsn, long millis) {
+        primaryLsn = lsn;
+        if (pendingHeartbeats.size() == MAX_PENDING_HEARTBEATS) {
+            pendingHeartbeats.poll();
+        }
+        pendingHeartbeats.add(new long[]{lsn, millis});
+        advanceFreshness();
+    }
+
+    private void advanceFreshness() {
+        long[] heartbeat;
+        while ((heartbeat = pendingHeartbeats.peek()) != null && heartbeat[0] <= appliedLsn) {
+            pendingHeartbeats.poll();
+            freshAsOfMillis = heartbeat[1];
+            STALENESS_TIMER.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0L, System.currentTimeMillis() - heartbeat[1])));
+        }
+    }
+
+    // follows rental.replication.host (default localhost) and rental.replication.port, printing lag and throughput every second
+    public static void main(String[] args) throws Exception {
+        ReadReplica replica = new ReadReplica(System.getProperty("rental.replication.host", "localhost"), Integer.getInteger("rental.replication.port"),
+                Long.getLong("rental.replication.maxStalenessMillis", 1000L));
+        long lastApplied = 0L;
+        while (true) {
+            Thread.sleep(1000L);
+            long applied = replica.getAppliedRecords();
+            long staleness = replica.getStalenessMillis();
+            System.out.println("appliedLsn=" + replica.getAppliedLsn() + " lagRecords=" + replica.getLagRecords()
+                    + " stalenessMillis=" + (staleness == Long.MAX_VALUE ? "unknown" : String.valueOf(staleness)) + " appliedPerSecond=" + (applied - lastApplied));
+            lastApplied = applied;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        Socket connected = socket;
+        if (connected != null) {
+            connected.close();
+        }
+        ReservationSystem current = reservationSystem;
+        if (current != null) {
+            current.getExpiryEngine().stop();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.rental.replication;
+
+import com.rental.metrics.MetricsRegistry;
+import com.rental.persistence.JournalCodec;
+import com.rental.persistence.JournalRecord;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory tail of the mutations of a primary ReservationSystem, numbered by log sequence number
+ * (LSN) from 1 and kept as encoded JournalCodec frames in a ring of the last capacity records.
+ *
+ * ReservationSystem appends each record under the lock that serialized the mutation, so records of
+ * one reservation or customer are in mutation order and replaying the log in LSN order converges to
+ * the primary's state. Frames are encoded before the log's monitor is taken.
+ */
+public class ReplicationLog {
+
+    private final ByteBuffer[] frames;
+    private final int mask;
+    private final LongAdder appendedMetric;
+    // guarded by this
+    private long lastLsn;
+    private int waiting;
+
+    public ReplicationLog(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.frames = new ByteBuffer[capacity];
+        this.mask = capacity - 1;
+        this.appendedMetric = MetricsRegistry.getInstance().counter("replication.appended");
+    }
+
+    public long append(JournalRecord record) {
+        ByteBuffer frame = JournalCodec.encode(record);
+        long lsn;
+        synchronized (this) {
+            lsn = ++lastLsn;
+            frames[(int) lsn & mask] = frame;
+            if (waiting > 0) {
+                notifyAll();
+            }
+        }
+        appendedMetric.increment();
+        return lsn;
+    }
+
+    // LSN of the last appended record, 0 before the first
+    public synchronized long getLastLsn() {
+        return lastLsn;
+    }
+
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    /**
+     * Copies up to out.length frames following afterLsn into out, waiting up to waitMillis when there
+     * are none yet. Returns how many were copied, or -1 when records after afterLsn already left the ring.
+     */
+    public synchronized int read(long afterLsn, ByteBuffer[] out, long waitMillis) throws InterruptedException {
+        if (lastLsn == afterLsn && waitMillis > 0) {
+            waiting++;
+            try {
+                wait(waitMillis);
+            } finally {
+                waiting--;
+            }
+        }
+        if (lastLsn - afterLsn > frames.length) {
+            return -1;
+        }
+        int count = (int) Math.min(out.length, lastLsn - afterLsn);
+        for (int i = 0; i < count; i++) {
+            out[i] = frames[(int) (afterLsn + 1 + i) & mask].duplicate();
+        }
+        return count;
+    }
+}
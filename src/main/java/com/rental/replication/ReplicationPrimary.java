@@ -0,0 +1,230 @@
+package com.rental.replication;
+
+import com.rental.domain.ReservationSystem;
+import com.rental.metrics.MetricsRegistry;
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.persistence.JournalCodec;
+import com.rental.persistence.JournalRecord;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams the mutations of a ReservationSystem to ReadReplicas over TCP. A replica that connects
+ * gets a fuzzy snapshot (inventory, customers and reservations, read without pausing bookings) as of
+ * the LSN current when it started, then every record after that LSN from the ReplicationLog. Records
+ * carry full state, so those already reflected in the snapshot replay harmlessly.
+ *
+ * Each replica has its own sender thread. A replica more than the log's capacity behind is
+ * disconnected and starts over with a new snapshot. Between records the sender sends a heartbeat
+ * every heartbeatMillis, from which replicas work out how stale they are.
+ *
+ * getLsn() after a write is a read-your-writes token for ReadReplica reads. Tokens are only
+ * meaningful for the primary run that issued them.
+ */
+public class ReplicationPrimary implements Closeable {
+
+    private static final int BATCH = 512;
+    private static final long MIN_ACCEPT_BACKOFF_MILLIS = 10L;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000L;
+
+    private final ReservationSystem reservationSystem;
+    private final ReplicationLog log;
+    private final ServerSocket serverSocket;
+    private final long heartbeatMillis;
+    private final Thread acceptor;
+    private final List<Socket> replicas = new CopyOnWriteArrayList<>();
+    private final LongAdder recordsSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder recordsSentMetric;
+    private final LongAdder bytesSentMetric;
+    private final LongAdder acceptErrors = new LongAdder();
+    private final LongAdder acceptErrorsMetric;
+    private volatile IOException acceptFailure;
+    private volatile boolean running = true;
+
+    // rental.replication.port (default 0, any free port), rental.replication.backlog records (default 1048576) and rental.replication.heartbeatMillis (default 100)
+    public ReplicationPrimary(ReservationSystem reservationSystem) throws IOException {
+        this(reservationSystem, Integer.getInteger("rental.replication.port", 0), Integer.getInteger("rental.replication.backlog", 1 << 20),
+                Long.getLong("rental.replication.heartbeatMillis", 100L));
+    }
+
+    public ReplicationPrimary(ReservationSystem reservationSystem, int port, int backlogCapacity, long heartbeatMillis) throws IOException {
+        this.reservationSystem = reservationSystem;
+        this.log = new ReplicationLog(backlogCapacity);
+        this.heartbeatMillis = heartbeatMillis;
+        this.recordsSentMetric = MetricsRegistry.getInstance().counter("replication.sent");
+        this.bytesSentMetric = MetricsRegistry.getInstance().counter("replication.bytesSent");
+        this.acceptErrorsMetric = MetricsRegistry.getInstance().counter("replication.acceptErrors");
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        reservationSystem.setReplicationLog(log);
+        this.acceptor = new Thread(this::accept, "replication-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public ReplicationLog getLog() {
+        return log;
+    }
+
+    // read-your-writes token covering every write that has returned
+    public long getLsn() {
+        return log.getLastLsn();
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    public long getRecordsSent() {
+        return recordsSent.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getAcceptErrors() {
+        return acceptErrors.sum();
+    }
+
+    // the last failed accept, or null once a replica connected after it
+    public IOException getAcceptFailure() {
+        return acceptFailure;
+    }
+
+    // a failing accept, e.g. out of file descriptors, is retried with a doubling backoff instead of spinning
+    private void accept() {
+        long backoffMillis = MIN_ACCEPT_BACKOFF_MILLIS;
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                acceptFailure = null;
+                backoffMillis = MIN_ACCEPT_BACKOFF_MILLIS;
+                socket.setTcpNoDelay(true);
+                replicas.add(socket);
+                Thread sender = new Thread(() -> send(socket), "replication-sender-" + socket.getPort());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (!running) {
+                    return;
+                }
+                acceptErrors.increment();
+                acceptErrorsMetric.increment();
+                acceptFailure = e;
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_ACCEPT_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void send(Socket socket) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024))) {
+            long lsn = sendSnapshot(out);
+            ByteBuffer[] batch = new ByteBuffer[BATCH];
+            long lastHeartbeat = 0L;
+            while (running) {
+                int count = log.read(lsn, batch, heartbeatMillis);
+                if (count < 0) {
+                    // fell out of the ring, the replica reconnects for a new snapshot
+                    return;
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeByte(ReplicationProtocol.RECORD);
+                    out.writeLong(++lsn);
+                    ReplicationProtocol.writeFrame(out, batch[i]);
+                    bytesSent.add(batch[i].remaining() + 9);
+                    bytesSentMetric.add(batch[i].remaining() + 9);
+                    batch[i] = null;
+                }
+                recordsSent.add(count);
+                recordsSentMetric.add(count);
+                long now = System.currentTimeMillis();
+                if (count == 0 || now - lastHeartbeat >= heartbeatMillis) {
+                    out.writeByte(ReplicationProtocol.HEARTBEAT);
+                    out.writeLong(log.getLastLsn());
+                    out.writeLong(now);
+                    lastHeartbeat = now;
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // replica went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            replicas.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    // returns the LSN the snapshot is as of
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        long lsn = log.getLastLsn();
+        out.writeByte(ReplicationProtocol.SNAPSHOT);
+        out.writeLong(lsn);
+        IOException[] failure = new IOException[1];
+        reservationSystem.getInventory().forEach((vehicleType, zipCode, vehicleCount) -> {
+            try {
+                out.writeByte(ReplicationProtocol.INVENTORY);
+                out.writeByte(vehicleType.ordinal());
+                out.writeInt(zipCode);
+                out.writeLong(vehicleCount);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        for (Customer customer : reservationSystem.getCustomerMap().values()) {
+            ByteBuffer frame;
+            synchronized (customer) {
+                frame = JournalCodec.encode(JournalRecord.ofCustomer(customer));
+            }
+            out.writeByte(ReplicationProtocol.STATE);
+            ReplicationProtocol.writeFrame(out, frame);
+        }
+        for (Reservation reservation : reservationSystem.getReservationMap().values()) {
+            out.writeByte(ReplicationProtocol.STATE);
+            ReplicationProtocol.writeFrame(out, JournalCodec.encode(JournalRecord.ofReservation(JournalRecord.Type.CREATE, reservation)));
+        }
+        out.writeByte(ReplicationProtocol.SNAPSHOT_END);
+        out.flush();
+        return lsn;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        reservationSystem.setReplicationLog(null);
+        serverSocket.close();
+        for (Socket replica : replicas) {
+            replica.close();
+        }
+    }
+}
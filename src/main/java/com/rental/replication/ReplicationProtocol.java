@@ -0,0 +1,51 @@
+package com.rental.replication;
+
+import com.rental.persistence.JournalCodec;
+import com.rental.persistence.JournalRecord;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Messages from a primary to a replica, each a kind byte followed by its fields:
+ * <pre>
+ * SNAPSHOT      long lsn            state as of lsn follows
+ * INVENTORY     byte vehicleType, int zip, long vehicleCount
+ * STATE         frame               customer or reservation of the snapshot
+ * SNAPSHOT_END
+ * RECORD        long lsn, frame     mutation lsn
+ * HEARTBEAT     long lsn, long millis   every record up to lsn was appended by millis
+ * </pre>
+ * A frame is a JournalCodec frame: int length, body, CRC32 of the body.
+ */
+final class ReplicationProtocol {
+
+    static final byte SNAPSHOT = 1;
+    static final byte INVENTORY = 2;
+    static final byte STATE = 3;
+    static final byte SNAPSHOT_END = 4;
+    static final byte RECORD = 5;
+    static final byte HEARTBEAT = 6;
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeFrame(DataOutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+    }
+
+    static JournalRecord readFrame(DataInputStream in) throws IOException {
+        int bodyLength = in.readInt();
+        if (bodyLength < 1 || bodyLength > JournalCodec.MAX_BODY_BYTES) {
+            throw new IOException("Invalid replication frame length " + bodyLength);
+        }
+        byte[] body = new byte[bodyLength];
+        in.readFully(body);
+        if (in.readInt() != JournalCodec.crc(body, 0, bodyLength)) {
+            throw new IOException("Replication frame checksum mismatch");
+        }
+        return JournalCodec.decodeBody(ByteBuffer.wrap(body));
+    }
+}
@@ -0,0 +1,262 @@
+package com.rental.service;
+
+import com.rental.admission.AdmissionController;
+import com.rental.admission.AimdLimit;
+import com.rental.analytics.FleetReport;
+import com.rental.model.Customer;
+import com.rental.model.OperationResult;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationRequest;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+import com.rental.validator.ErrorCode;
+import com.rental.validator.InvalidRequestException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decorator that admits calls through an AdmissionController instead of letting them queue. Bookings,
+ * updates and availability checks need a permit of their (VehicleType, zip) bucket and a global one,
+ * cancellations and customer lookups only a global one; other reads pass straight through. A call
+ * that is not admitted fails at once with ERR11: try methods return it, the others throw it.
+ * A batch takes one permit per bucket it touches and rejects only the requests of full buckets.
+ */
+public class AdmissionControlledRentalService implements RentalServiceInterface {
+
+    private final RentalServiceInterface delegate;
+    private final AdmissionController admissionController;
+
+    public AdmissionControlledRentalService(RentalServiceInterface delegate) {
+        this(delegate, new AdmissionController());
+    }
+
+    public AdmissionControlledRentalService(RentalServiceInterface delegate, AdmissionController admissionController) {
+        this.delegate = delegate;
+        this.admissionController = admissionController;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    // null when a bucket is not given, so the delegate reports the invalid input
+    private AimdLimit bucketLimit(VehicleType vehicleType, int pickupZip) {
+        return vehicleType == null ? null : admissionController.bucketLimit(vehicleType, pickupZip);
+    }
+
+    @Override
+    public Long createReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        AimdLimit bucketLimit = bucketLimit(vehicleType, pickupZip);
+        if (bucketLimit == null) {
+            return delegate.createReservation(customer, vehicleType, pickupZip, reservationPeriod);
+        }
+        if (!admissionController.tryAcquire(bucketLimit)) {
+            throw new InvalidRequestException(ErrorCode.ERR11.getValue());
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.createReservation(customer, vehicleType, pickupZip, reservationPeriod);
+        } finally {
+            admissionController.release(bucketLimit, startNanos);
+        }
+    }
+
+    @Override
+    public ReservationResult tryCreateReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        AimdLimit bucketLimit = bucketLimit(vehicleType, pickupZip);
+        if (bucketLimit == null) {
+            return delegate.tryCreateReservation(customer, vehicleType, pickupZip, reservationPeriod);
+        }
+        if (!admissionController.tryAcquire(bucketLimit)) {
+            return ReservationResult.rejected(ErrorCode.ERR11);
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.tryCreateReservation(customer, vehicleType, pickupZip, reservationPeriod);
+        } finally {
+            admissionController.release(bucketLimit, startNanos);
+        }
+    }
+
+    @Override
+    public List<ReservationResult> createReservations(List<ReservationRequest> reservationRequests) {
+        if (!admissionController.tryAcquire()) {
+            List<ReservationResult> rejected = new ArrayList<>(reservationRequests.size());
+            for (int i = 0; i < reservationRequests.size(); i++) {
+                rejected.add(ReservationResult.rejected(ErrorCode.ERR11));
+            }
+            return rejected;
+        }
+        long startNanos = System.nanoTime();
+        //one permit per bucket in the batch, false for the buckets that are full
+        Map<AimdLimit, Boolean> bucketPermits = new LinkedHashMap<>();
+        ReservationResult[] results = new ReservationResult[reservationRequests.size()];
+        List<ReservationRequest> admitted = new ArrayList<>(reservationRequests.size());
+        List<Integer> admittedIndexes = new ArrayList<>(reservationRequests.size());
+        try {
+            for (int i = 0; i < results.length; i++) {
+                ReservationRequest request = reservationRequests.get(i);
+                AimdLimit bucketLimit = request == null ? null : bucketLimit(request.getVehicleType(), request.getPickupZip());
+                if (bucketLimit != null && !bucketPermits.computeIfAbsent(bucketLimit, admissionController::tryAcquireBucket)) {
+                    results[i] = ReservationResult.rejected(ErrorCode.ERR11);
+                    continue;
+                }
+                admitted.add(request);
+                admittedIndexes.add(i);
+            }
+            if (!admitted.isEmpty()) {
+                List<ReservationResult> admittedResults = delegate.createReservations(admitted);
+                for (int i = 0; i < admittedResults.size(); i++) {
+                    results[admittedIndexes.get(i)] = admittedResults.get(i);
+                }
+            }
+        } finally {
+            long latencyNanos = System.nanoTime() - startNanos;
+            bucketPermits.forEach((bucketLimit, permitted) -> {
+                if (permitted) {
+                    bucketLimit.release(latencyNanos);
+                }
+            });
+            admissionController.release(startNanos);
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public Reservation updateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        AimdLimit bucketLimit = bucketLimit(vehicleType, pickupZip);
+        if (bucketLimit == null) {
+            return delegate.updateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod);
+        }
+        if (!admissionController.tryAcquire(bucketLimit)) {
+            throw new InvalidRequestException(ErrorCode.ERR11.getValue());
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.updateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod);
+        } finally {
+            admissionController.release(bucketLimit, startNanos);
+        }
+    }
+
+    @Override
+    public OperationResult<Reservation> tryUpdateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        AimdLimit bucketLimit = bucketLimit(vehicleType, pickupZip);
+        if (bucketLimit == null) {
+            return delegate.tryUpdateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod);
+        }
+        if (!admissionController.tryAcquire(bucketLimit)) {
+            return OperationResult.rejected(ErrorCode.ERR11);
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.tryUpdateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod);
+        } finally {
+            admissionController.release(bucketLimit, startNanos);
+        }
+    }
+
+    @Override
+    public Reservation cancelReservation(Long reservationId) throws InvalidRequestException {
+        if (!admissionController.tryAcquire()) {
+            throw new InvalidRequestException(ErrorCode.ERR11.getValue());
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.cancelReservation(reservationId);
+        } finally {
+            admissionController.release(startNanos);
+        }
+    }
+
+    @Override
+    public OperationResult<Reservation> tryCancelReservation(Long reservationId) {
+        if (!admissionController.tryAcquire()) {
+            return OperationResult.rejected(ErrorCode.ERR11);
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.tryCancelReservation(reservationId);
+        } finally {
+            admissionController.release(startNanos);
+        }
+    }
+
+    @Override
+    public Long returnCustomerId(String firstName, String lastName, Long phoneNo, String email, int age) throws InvalidRequestException {
+        if (!admissionController.tryAcquire()) {
+            throw new InvalidRequestException(ErrorCode.ERR11.getValue());
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.returnCustomerId(firstName, lastName, phoneNo, email, age);
+        } finally {
+            admissionController.release(startNanos);
+        }
+    }
+
+    @Override
+    public boolean isRentalAvailable(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        AimdLimit bucketLimit = bucketLimit(vehicleType, zipCode);
+        if (bucketLimit == null) {
+            return delegate.isRentalAvailable(custId, vehicleType, zipCode, reservationPeriod);
+        }
+        if (!admissionController.tryAcquire(bucketLimit)) {
+            throw new InvalidRequestException(ErrorCode.ERR11.getValue());
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.isRentalAvailable(custId, vehicleType, zipCode, reservationPeriod);
+        } finally {
+            admissionController.release(bucketLimit, startNanos);
+        }
+    }
+
+    @Override
+    public void markReservationsExpired() {
+        delegate.markReservationsExpired();
+    }
+
+    @Override
+    public Reservation getReservationById(Long reservationId) throws InvalidRequestException {
+        return delegate.getReservationById(reservationId);
+    }
+
+    @Override
+    public boolean checkReservationPeriodWithSysDateTime(ReservationPeriod reservationPeriod) {
+        return delegate.checkReservationPeriodWithSysDateTime(reservationPeriod);
+    }
+
+    @Override
+    public List<Reservation> getReservationsForCustomer(Long custId) {
+        return delegate.getReservationsForCustomer(custId);
+    }
+
+    @Override
+    public int getPeakReservations(VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        return delegate.getPeakReservations(vehicleType, pickupZip, reservationPeriod);
+    }
+
+    @Override
+    public ReservationPeriod findEarliestAvailablePeriod(VehicleType vehicleType, int pickupZip, LocalDateTime from, Duration length) {
+        return delegate.findEarliestAvailablePeriod(vehicleType, pickupZip, from, length);
+    }
+
+    @Override
+    public Map<VehicleType, long[]> getDailyAvailability(int pickupZip, LocalDate fromDay, int days) {
+        return delegate.getDailyAvailability(pickupZip, fromDay, days);
+    }
+
+    @Override
+    public FleetReport getFleetReport(LocalDate fromDay, int days) {
+        return delegate.getFleetReport(fromDay, days);
+    }
+}
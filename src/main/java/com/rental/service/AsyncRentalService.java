@@ -0,0 +1,205 @@
+package com.rental.service;
+
+import com.rental.analytics.FleetReport;
+import com.rental.model.Customer;
+import com.rental.model.OperationResult;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationRequest;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+import com.rental.validator.InvalidRequestException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs each call of a synchronous RentalServiceInterface on an executor and returns its future.
+ *
+ * The default executor is chosen by system property rental.async.executor:
+ * virtual - a virtual thread per call (JDK 21+), pool - a bounded platform thread pool of
+ * rental.async.poolSize threads (default 256) and rental.async.queueCapacity queued calls
+ * (default 100000), auto (default) - virtual threads when the JDK has them, otherwise the pool.
+ * A call the pool cannot accept fails its future with RejectedExecutionException.
+ */
+public class AsyncRentalService implements AsyncRentalServiceInterface, AutoCloseable {
+
+    private final RentalServiceInterface delegate;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    public AsyncRentalService(RentalServiceInterface delegate) {
+        this(delegate, newDefaultExecutor(), true);
+    }
+
+    public AsyncRentalService(RentalServiceInterface delegate, ExecutorService executor) {
+        this(delegate, executor, false);
+    }
+
+    private AsyncRentalService(RentalServiceInterface delegate, ExecutorService executor, boolean ownsExecutor) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public static ExecutorService newDefaultExecutor() {
+        String kind = System.getProperty("rental.async.executor", "auto");
+        if (!"pool".equals(kind)) {
+            ExecutorService virtualThreads = newVirtualThreadExecutor();
+            if (virtualThreads != null) {
+                return virtualThreads;
+            }
+            if ("virtual".equals(kind)) {
+                throw new IllegalStateException("Virtual threads are not supported by this JDK");
+            }
+        }
+        return newBoundedPool(Integer.getInteger("rental.async.poolSize", 256), Integer.getInteger("rental.async.queueCapacity", 100_000));
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() looked up reflectively, the build targets Java 8
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static ExecutorService newBoundedPool(int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "rental-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    @Override
+    public CompletableFuture<Long> createReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        return submit(() -> delegate.createReservation(customer, vehicleType, pickupZip, reservationPeriod));
+    }
+
+    @Override
+    public CompletableFuture<ReservationResult> tryCreateReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        return submit(() -> delegate.tryCreateReservation(customer, vehicleType, pickupZip, reservationPeriod));
+    }
+
+    @Override
+    public CompletableFuture<List<ReservationResult>> createReservations(List<ReservationRequest> reservationRequests) {
+        return submit(() -> delegate.createReservations(reservationRequests));
+    }
+
+    @Override
+    public CompletableFuture<Reservation> updateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        return submit(() -> delegate.updateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod));
+    }
+
+    @Override
+    public CompletableFuture<OperationResult<Reservation>> tryUpdateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        return submit(() -> delegate.tryUpdateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod));
+    }
+
+    @Override
+    public CompletableFuture<Reservation> cancelReservation(Long reservationId) {
+        return submit(() -> delegate.cancelReservation(reservationId));
+    }
+
+    @Override
+    public CompletableFuture<OperationResult<Reservation>> tryCancelReservation(Long reservationId) {
+        return submit(() -> delegate.tryCancelReservation(reservationId));
+    }
+
+    @Override
+    public CompletableFuture<Long> returnCustomerId(String firstName, String lastName, Long phoneNo, String email, int age) {
+        return submit(() -> delegate.returnCustomerId(firstName, lastName, phoneNo, email, age));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isRentalAvailable(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        return submit(() -> delegate.isRentalAvailable(custId, vehicleType, zipCode, reservationPeriod));
+    }
+
+    @Override
+    public CompletableFuture<Void> markReservationsExpired() {
+        return submit(() -> {
+            delegate.markReservationsExpired();
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Reservation> getReservationById(Long reservationId) {
+        return submit(() -> delegate.getReservationById(reservationId));
+    }
+
+    @Override
+    public CompletableFuture<List<Reservation>> getReservationsForCustomer(Long custId) {
+        return submit(() -> delegate.getReservationsForCustomer(custId));
+    }
+
+    @Override
+    public CompletableFuture<Integer> getPeakReservations(VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        return submit(() -> delegate.getPeakReservations(vehicleType, pickupZip, reservationPeriod));
+    }
+
+    @Override
+    public CompletableFuture<ReservationPeriod> findEarliestAvailablePeriod(VehicleType vehicleType, int pickupZip, LocalDateTime from, Duration length) {
+        return submit(() -> delegate.findEarliestAvailablePeriod(vehicleType, pickupZip, from, length));
+    }
+
+    @Override
+    public CompletableFuture<Map<VehicleType, long[]>> getDailyAvailability(int pickupZip, LocalDate fromDay, int days) {
+        return submit(() -> delegate.getDailyAvailability(pickupZip, fromDay, days));
+    }
+
+    @Override
+    public CompletableFuture<FleetReport> getFleetReport(LocalDate fromDay, int days) {
+        return submit(() -> delegate.getFleetReport(fromDay, days));
+    }
+
+    // shuts down the executor if this service created it
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ServiceCall<T> {
+        T call() throws InvalidRequestException;
+    }
+
+    // the thrown exception itself completes the future, so get() and join() expose it unchanged as their cause
+    private <T> CompletableFuture<T> submit(ServiceCall<T> serviceCall) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(serviceCall.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
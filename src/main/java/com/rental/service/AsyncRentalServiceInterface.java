@@ -0,0 +1,58 @@
+package com.rental.service;
+
+import com.rental.analytics.FleetReport;
+import com.rental.model.Customer;
+import com.rental.model.OperationResult;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationRequest;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non blocking counterpart of RentalServiceInterface. Futures complete with the same values, and
+ * fail with the same InvalidRequestException (as the cause seen by get() or join()) as the
+ * synchronous call. The try variants complete with the rejection instead of failing.
+ */
+public interface AsyncRentalServiceInterface {
+
+        CompletableFuture<Long> createReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod);
+
+        CompletableFuture<ReservationResult> tryCreateReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod);
+
+        CompletableFuture<List<ReservationResult>> createReservations(List<ReservationRequest> reservationRequests);
+
+        CompletableFuture<Reservation> updateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod);
+
+        CompletableFuture<OperationResult<Reservation>> tryUpdateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod);
+
+        CompletableFuture<Reservation> cancelReservation(Long reservationId);
+
+        CompletableFuture<OperationResult<Reservation>> tryCancelReservation(Long reservationId);
+
+        CompletableFuture<Long> returnCustomerId(String firstName, String lastName, Long phoneNo, String email, int age);
+
+        CompletableFuture<Boolean> isRentalAvailable(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod);
+
+        CompletableFuture<Void> markReservationsExpired();
+
+        CompletableFuture<Reservation> getReservationById(Long reservationId);
+
+        CompletableFuture<List<Reservation>> getReservationsForCustomer(Long custId);
+
+        CompletableFuture<Integer> getPeakReservations(VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod);
+
+        CompletableFuture<ReservationPeriod> findEarliestAvailablePeriod(VehicleType vehicleType, int pickupZip, LocalDateTime from, Duration length);
+
+        CompletableFuture<Map<VehicleType, long[]>> getDailyAvailability(int pickupZip, LocalDate fromDay, int days);
+
+        CompletableFuture<FleetReport> getFleetReport(LocalDate fromDay, int days);
+
+}
@@ -0,0 +1,337 @@
+package com.rental.service;
+
+import com.rental.analytics.FleetReport;
+import com.rental.metrics.MetricsRegistry;
+import com.rental.metrics.OperationMetrics;
+import com.rental.model.Customer;
+import com.rental.model.OperationResult;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationRequest;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+import com.rental.validator.ErrorCode;
+import com.rental.validator.InvalidRequestException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Decorator that records latency, call counts, rejections by reason and unexpected errors for every
+ * RentalServiceInterface operation under rental.OPERATION in a MetricsRegistry.
+ */
+public class MeteredRentalService implements RentalServiceInterface {
+
+    private final RentalServiceInterface delegate;
+    private final MetricsRegistry registry;
+    private final OperationMetrics createReservation;
+    private final OperationMetrics createReservations;
+    private final OperationMetrics updateReservation;
+    private final OperationMetrics cancelReservation;
+    private final OperationMetrics returnCustomerId;
+    private final OperationMetrics isRentalAvailable;
+    private final OperationMetrics markReservationsExpired;
+    private final OperationMetrics getReservationById;
+    private final OperationMetrics checkReservationPeriod;
+    private final OperationMetrics getReservationsForCustomer;
+    private final OperationMetrics getPeakReservations;
+    private final OperationMetrics findEarliestAvailablePeriod;
+    private final OperationMetrics getDailyAvailability;
+    private final OperationMetrics getFleetReport;
+
+    public MeteredRentalService(RentalServiceInterface delegate) {
+        this(delegate, MetricsRegistry.getInstance());
+    }
+
+    public MeteredRentalService(RentalServiceInterface delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.createReservation = new OperationMetrics(registry, "rental.createReservation");
+        this.createReservations = new OperationMetrics(registry, "rental.createReservations");
+        this.updateReservation = new OperationMetrics(registry, "rental.updateReservation");
+        this.cancelReservation = new OperationMetrics(registry, "rental.cancelReservation");
+        this.returnCustomerId = new OperationMetrics(registry, "rental.returnCustomerId");
+        this.isRentalAvailable = new OperationMetrics(registry, "rental.isRentalAvailable");
+        this.markReservationsExpired = new OperationMetrics(registry, "rental.markReservationsExpired");
+        this.getReservationById = new OperationMetrics(registry, "rental.getReservationById");
+        this.checkReservationPeriod = new OperationMetrics(registry, "rental.checkReservationPeriodWithSysDateTime");
+        this.getReservationsForCustomer = new OperationMetrics(registry, "rental.getReservationsForCustomer");
+        this.getPeakReservations = new OperationMetrics(registry, "rental.getPeakReservations");
+        this.findEarliestAvailablePeriod = new OperationMetrics(registry, "rental.findEarliestAvailablePeriod");
+        this.getDailyAvailability = new OperationMetrics(registry, "rental.getDailyAvailability");
+        this.getFleetReport = new OperationMetrics(registry, "rental.getFleetReport");
+    }
+
+    public MetricsRegistry.Snapshot getMetrics() {
+        return registry.snapshot();
+    }
+
+    @Override
+    public Long createReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        long startNanos = System.nanoTime();
+        try {
+            Long reservationId = delegate.createReservation(customer, vehicleType, pickupZip, reservationPeriod);
+            if (reservationId == null) {
+                createReservation.reject(ErrorCode.ERR08);
+            }
+            return reservationId;
+        } catch (InvalidRequestException e) {
+            createReservation.reject(e);
+            throw e;
+        } catch (RuntimeException e) {
+            createReservation.error();
+            throw e;
+        } finally {
+            createReservation.record(startNanos);
+        }
+    }
+
+    @Override
+    public ReservationResult tryCreateReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        long startNanos = System.nanoTime();
+        try {
+            ReservationResult result = delegate.tryCreateReservation(customer, vehicleType, pickupZip, reservationPeriod);
+            if (!result.isReserved()) {
+                createReservation.reject(result.getErrorCode());
+            }
+            return result;
+        } catch (RuntimeException e) {
+            createReservation.error();
+            throw e;
+        } finally {
+            createReservation.record(startNanos);
+        }
+    }
+
+    @Override
+    public List<ReservationResult> createReservations(List<ReservationRequest> reservationRequests) {
+        long startNanos = System.nanoTime();
+        try {
+            List<ReservationResult> results = delegate.createReservations(reservationRequests);
+            for (ReservationResult result : results) {
+                if (!result.isReserved()) {
+                    createReservations.reject(result.getErrorCode());
+                }
+            }
+            return results;
+        } catch (RuntimeException e) {
+            createReservations.error();
+            throw e;
+        } finally {
+            createReservations.record(startNanos);
+        }
+    }
+
+    @Override
+    public Reservation updateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.updateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod);
+        } catch (InvalidRequestException e) {
+            updateReservation.reject(e);
+            throw e;
+        } catch (RuntimeException e) {
+            updateReservation.error();
+            throw e;
+        } finally {
+            updateReservation.record(startNanos);
+        }
+    }
+
+    @Override
+    public OperationResult<Reservation> tryUpdateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        return metered(updateReservation, () -> delegate.tryUpdateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod));
+    }
+
+    @Override
+    public Reservation cancelReservation(Long reservationId) throws InvalidRequestException {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.cancelReservation(reservationId);
+        } catch (InvalidRequestException e) {
+            cancelReservation.reject(e);
+            throw e;
+        } catch (RuntimeException e) {
+            cancelReservation.error();
+            throw e;
+        } finally {
+            cancelReservation.record(startNanos);
+        }
+    }
+
+    @Override
+    public OperationResult<Reservation> tryCancelReservation(Long reservationId) {
+        return metered(cancelReservation, () -> delegate.tryCancelReservation(reservationId));
+    }
+
+    private static <T> OperationResult<T> metered(OperationMetrics operationMetrics, Supplier<OperationResult<T>> call) {
+        long startNanos = System.nanoTime();
+        try {
+            OperationResult<T> result = call.get();
+            if (!result.isOk()) {
+                operationMetrics.reject(result.getErrorCode());
+            }
+            return result;
+        } catch (RuntimeException e) {
+            operationMetrics.error();
+            throw e;
+        } finally {
+            operationMetrics.record(startNanos);
+        }
+    }
+
+    @Override
+    public Long returnCustomerId(String firstName, String lastName, Long phoneNo, String email, int age) throws InvalidRequestException {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.returnCustomerId(firstName, lastName, phoneNo, email, age);
+        } catch (InvalidRequestException e) {
+            returnCustomerId.reject(e);
+            throw e;
+        } catch (RuntimeException e) {
+            returnCustomerId.error();
+            throw e;
+        } finally {
+            returnCustomerId.record(startNanos);
+        }
+    }
+
+    @Override
+    public boolean isRentalAvailable(Long custId, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        long startNanos = System.nanoTime();
+        try {
+            boolean available = delegate.isRentalAvailable(custId, vehicleType, zipCode, reservationPeriod);
+            if (!available) {
+                isRentalAvailable.reject(ErrorCode.ERR08);
+            }
+            return available;
+        } catch (InvalidRequestException e) {
+            isRentalAvailable.reject(e);
+            throw e;
+        } catch (RuntimeException e) {
+            isRentalAvailable.error();
+            throw e;
+        } finally {
+            isRentalAvailable.record(startNanos);
+        }
+    }
+
+    @Override
+    public void markReservationsExpired() {
+        long startNanos = System.nanoTime();
+        try {
+            delegate.markReservationsExpired();
+        } catch (RuntimeException e) {
+            markReservationsExpired.error();
+            throw e;
+        } finally {
+            markReservationsExpired.record(startNanos);
+        }
+    }
+
+    @Override
+    public Reservation getReservationById(Long reservationId) throws InvalidRequestException {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.getReservationById(reservationId);
+        } catch (InvalidRequestException e) {
+            getReservationById.reject(e);
+            throw e;
+        } catch (RuntimeException e) {
+            getReservationById.error();
+            throw e;
+        } finally {
+            getReservationById.record(startNanos);
+        }
+    }
+
+    @Override
+    public boolean checkReservationPeriodWithSysDateTime(ReservationPeriod reservationPeriod) {
+        long startNanos = System.nanoTime();
+        try {
+            boolean valid = delegate.checkReservationPeriodWithSysDateTime(reservationPeriod);
+            if (!valid) {
+                checkReservationPeriod.reject(ErrorCode.ERR07);
+            }
+            return valid;
+        } catch (RuntimeException e) {
+            checkReservationPeriod.error();
+            throw e;
+        } finally {
+            checkReservationPeriod.record(startNanos);
+        }
+    }
+
+    @Override
+    public List<Reservation> getReservationsForCustomer(Long custId) {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.getReservationsForCustomer(custId);
+        } catch (RuntimeException e) {
+            getReservationsForCustomer.error();
+            throw e;
+        } finally {
+            getReservationsForCustomer.record(startNanos);
+        }
+    }
+
+    @Override
+    public int getPeakReservations(VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.getPeakReservations(vehicleType, pickupZip, reservationPeriod);
+        } catch (RuntimeException e) {
+            getPeakReservations.error();
+            throw e;
+        } finally {
+            getPeakReservations.record(startNanos);
+        }
+    }
+
+    @Override
+    public ReservationPeriod findEarliestAvailablePeriod(VehicleType vehicleType, int pickupZip, LocalDateTime from, Duration length) {
+        long startNanos = System.nanoTime();
+        try {
+            ReservationPeriod reservationPeriod = delegate.findEarliestAvailablePeriod(vehicleType, pickupZip, from, length);
+            if (reservationPeriod == null) {
+                findEarliestAvailablePeriod.reject(ErrorCode.ERR08);
+            }
+            return reservationPeriod;
+        } catch (RuntimeException e) {
+            findEarliestAvailablePeriod.error();
+            throw e;
+        } finally {
+            findEarliestAvailablePeriod.record(startNanos);
+        }
+    }
+
+    @Override
+    public Map<VehicleType, long[]> getDailyAvailability(int pickupZip, LocalDate fromDay, int days) {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.getDailyAvailability(pickupZip, fromDay, days);
+        } catch (RuntimeException e) {
+            getDailyAvailability.error();
+            throw e;
+        } finally {
+            getDailyAvailability.record(startNanos);
+        }
+    }
+
+    @Override
+    public FleetReport getFleetReport(LocalDate fromDay, int days) {
+        long startNanos = System.nanoTime();
+        try {
+            return delegate.getFleetReport(fromDay, days);
+        } catch (RuntimeException e) {
+            getFleetReport.error();
+            throw e;
+        } finally {
+            getFleetReport.record(startNanos);
+        }
+    }
+}
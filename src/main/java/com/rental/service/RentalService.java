@@ -1,13 +1,28 @@
 package com.rental.service;
 
+import com.rental.analytics.FleetReport;
 import com.rental.domain.ReservationSystem;
 import com.rental.model.Customer;
+import com.rental.model.OperationResult;
 import com.rental.model.Reservation;
 import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationRequest;
+import com.rental.model.ReservationResult;
 import com.rental.model.VehicleType;
+import com.rental.validator.ErrorCode;
 import com.rental.validator.InvalidRequestException;
 import lombok.NonNull;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
 
  * 1.       The system should let a customer reserve a car of a given type at a desired date and time for a given number of days
@@ -20,73 +35,191 @@ import lombok.NonNull;
 
 public class RentalService  implements RentalServiceInterface{
 
+    private final ReservationSystem reservationSystem;
+
+    public RentalService() {
+        this(ReservationSystem.getInstance());
+    }
+
+    // serves one shard, see ShardedRentalService
+    public RentalService(ReservationSystem reservationSystem) {
+        this.reservationSystem = reservationSystem;
+    }
 
     @Override
     public Long createReservation(@NonNull Customer customer, @NonNull VehicleType vehicleType, @NonNull int zipCode, @NonNull ReservationPeriod reservationPeriod) throws InvalidRequestException {
-        Long reservationId = null;
+        ReservationResult result = tryCreateReservation(customer, vehicleType, zipCode, reservationPeriod);
+        if (result.isReserved() || result.getErrorCode() == ErrorCode.ERR08) {
+            //an unavailable car is reported as a null reservation id
+            return result.getReservationId();
+        }
+        throw new InvalidRequestException(result.getErrorCode().getValue());
+    }
+
+    @Override
+    public ReservationResult tryCreateReservation(Customer customer, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        if (!isValidCustomer(customer) || vehicleType == null || reservationPeriod == null) {
+            return ReservationResult.rejected(ErrorCode.ERR06);
+        }
         //mark reservation expired for reservation period end datetime < sysdatetime
         markReservationsExpired();
 
         //check reservation period should be greater than sysdatetime
-        boolean isPeriodValid = checkReservationPeriodWithSysDateTime(reservationPeriod);
-        if(isPeriodValid) {
-            //Generate or get customer Id
-            Long custId = returnCustomerId(customer.getFirstName(), customer.getLastName(), customer.getPhoneNo(), customer.getEmail(), customer.getAge());
-            //Check if rental is available (Total Vehicle Count from Available cars based on zipcode and vehicleType > Reserved count based on zipcode and vehicle  for a given interval
-            boolean isAvailable = isRentalAvailable(custId, vehicleType, zipCode, reservationPeriod);
-            if (isAvailable) {
-                reservationId = ReservationSystem.getInstance().createNewReservation(custId, vehicleType, zipCode, reservationPeriod);
+        if (!checkReservationPeriodWithSysDateTime(reservationPeriod)) {
+            return ReservationResult.rejected(ErrorCode.ERR07);
+        }
+        //Generate or get customer Id
+        Long custId;
+        try {
+            custId = returnCustomerId(customer.getFirstName(), customer.getLastName(), customer.getPhoneNo(), customer.getEmail(), customer.getAge());
+        } catch (InvalidRequestException e) {
+            return ReservationResult.rejected(ErrorCode.ERR02);
+        }
+        //Check if rental is available (Total Vehicle Count from Available cars based on zipcode and vehicleType > Reserved count based on zipcode and vehicle  for a given interval)
+        //and create the reservation atomically for the vehicleType and zipcode bucket
+        Long reservationId = reservationSystem.reserveIfAvailable(custId, vehicleType, zipCode, reservationPeriod);
+        return reservationId != null ? ReservationResult.reserved(reservationId) : ReservationResult.rejected(ErrorCode.ERR08);
+    }
+
+    @Override
+    public List<ReservationResult> createReservations(@NonNull List<ReservationRequest> reservationRequests) {
+        ReservationResult[] results = new ReservationResult[reservationRequests.size()];
+        //mark reservation expired once for the whole batch
+        markReservationsExpired();
+
+        //validate, resolve each distinct email once and group by vehicleType and zipcode bucket
+        Map<String, Long> custIdByEmail = new HashMap<>();
+        Map<Long, List<Integer>> requestsByBucket = new LinkedHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            ReservationRequest request = reservationRequests.get(i);
+            if (request == null || !isValidCustomer(request.getCustomer()) || request.getVehicleType() == null || request.getReservationPeriod() == null) {
+                results[i] = ReservationResult.rejected(ErrorCode.ERR06);
+                continue;
+            }
+            if (!checkReservationPeriodWithSysDateTime(request.getReservationPeriod())) {
+                results[i] = ReservationResult.rejected(ErrorCode.ERR07);
+                continue;
+            }
+            Customer customer = request.getCustomer();
+            if (!custIdByEmail.containsKey(customer.getEmail())) {
+                try {
+                    custIdByEmail.put(customer.getEmail(), returnCustomerId(customer.getFirstName(), customer.getLastName(), customer.getPhoneNo(), customer.getEmail(), customer.getAge()));
+                } catch (InvalidRequestException e) {
+                    custIdByEmail.put(customer.getEmail(), null);
+                }
+            }
+            if (custIdByEmail.get(customer.getEmail()) == null) {
+                results[i] = ReservationResult.rejected(ErrorCode.ERR06);
+                continue;
+            }
+            long bucket = ((long) request.getVehicleType().ordinal() << 32) | (request.getPickupZip() & 0xFFFFFFFFL);
+            requestsByBucket.computeIfAbsent(bucket, key -> new ArrayList<>()).add(i);
+        }
+
+        //check capacity and reserve per bucket
+        for (List<Integer> bucketRequests : requestsByBucket.values()) {
+            ReservationRequest first = reservationRequests.get(bucketRequests.get(0));
+            List<Long> custIds = new ArrayList<>(bucketRequests.size());
+            List<ReservationPeriod> reservationPeriods = new ArrayList<>(bucketRequests.size());
+            for (Integer i : bucketRequests) {
+                ReservationRequest request = reservationRequests.get(i);
+                custIds.add(custIdByEmail.get(request.getCustomer().getEmail()));
+                reservationPeriods.add(request.getReservationPeriod());
+            }
+            Long[] reservationIds = reservationSystem.reserveAllIfAvailable(first.getVehicleType(), first.getPickupZip(), custIds, reservationPeriods);
+            for (int j = 0; j < reservationIds.length; j++) {
+                results[bucketRequests.get(j)] = reservationIds[j] != null ? ReservationResult.reserved(reservationIds[j]) : ReservationResult.rejected(ErrorCode.ERR08);
             }
-        }else{
-            throw new InvalidRequestException("Invalid reservation Period");
         }
+        return Arrays.asList(results);
+    }
 
-        return reservationId;
+    private boolean isValidCustomer(Customer customer) {
+        return customer != null && customer.getFirstName() != null && customer.getLastName() != null
+                && customer.getPhoneNo() != null && customer.getEmail() != null;
     }
 
     @Override
     public boolean checkReservationPeriodWithSysDateTime(@NonNull ReservationPeriod reservationPeriod) {
-        return ReservationSystem.getInstance().checkReservationPeriodWithSysDateTime(reservationPeriod);
+        return reservationSystem.checkReservationPeriodWithSysDateTime(reservationPeriod);
     }
 
     @Override
     public Reservation updateReservation(@NonNull Long reservationId, @NonNull String firstName, @NonNull String lastName, @NonNull Long phoneNo, @NonNull VehicleType vehicleType, @NonNull int zipCode, @NonNull ReservationPeriod reservationPeriod) throws InvalidRequestException{
+        return tryUpdateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, zipCode, reservationPeriod).getOrThrow();
+    }
+
+    @Override
+    public OperationResult<Reservation> tryUpdateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int zipCode, ReservationPeriod reservationPeriod) {
+        if (reservationId == null || firstName == null || lastName == null || phoneNo == null || vehicleType == null || reservationPeriod == null) {
+            return OperationResult.rejected(ErrorCode.ERR06);
+        }
         //mark reservation expired for reservation period end datetime < sysdatetime
         markReservationsExpired();
         //check reservation period should be greater than sysdatetime
-        boolean isPeriodValid = checkReservationPeriodWithSysDateTime(reservationPeriod);
-        if(isPeriodValid) {
-            Reservation reservation = ReservationSystem.getInstance().updateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, zipCode, reservationPeriod);
-            return reservation;
-        }else{
-            throw new InvalidRequestException("Invalid reservation Period");
+        if (!checkReservationPeriodWithSysDateTime(reservationPeriod)) {
+            return OperationResult.rejected(ErrorCode.ERR07);
         }
+        return reservationSystem.tryUpdateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, zipCode, reservationPeriod);
     }
 
     @Override
     public Reservation cancelReservation(@NonNull Long reservationId) throws InvalidRequestException{
+        return tryCancelReservation(reservationId).getOrThrow();
+    }
+
+    @Override
+    public OperationResult<Reservation> tryCancelReservation(Long reservationId) {
+        if (reservationId == null) {
+            return OperationResult.rejected(ErrorCode.ERR06);
+        }
         //mark reservation expired for reservation period end datetime < sysdatetime
         markReservationsExpired();
-        return ReservationSystem.getInstance().cancelReservation(reservationId);
+        return reservationSystem.tryCancelReservation(reservationId);
     }
 
     @Override
     public Long returnCustomerId(@NonNull String firstName, @NonNull String lastName, @NonNull Long phoneNo, @NonNull String email, @NonNull int age)  throws InvalidRequestException{
-        return ReservationSystem.getInstance().returnCustomerId(firstName,lastName,phoneNo,email,age);
+        return reservationSystem.returnCustomerId(firstName,lastName,phoneNo,email,age);
     }
 
     @Override
     public boolean isRentalAvailable(@NonNull Long custId, @NonNull VehicleType vehicleType, @NonNull int pickupZip,@NonNull ReservationPeriod reservationPeriod) throws InvalidRequestException{
-        return ReservationSystem.getInstance().isRentalAvailable(custId, vehicleType,pickupZip,reservationPeriod);
+        return reservationSystem.isRentalAvailable(custId, vehicleType,pickupZip,reservationPeriod);
     }
 
     @Override
     public void markReservationsExpired() {
-        ReservationSystem.getInstance().markReservationsExpired();
+        reservationSystem.markReservationsExpired();
     }
 
     @Override
     public Reservation getReservationById(@NonNull Long reservationId) throws InvalidRequestException{
-        return ReservationSystem.getInstance().findExistingReservation(reservationId);
+        return reservationSystem.findExistingReservation(reservationId);
+    }
+
+    @Override
+    public List<Reservation> getReservationsForCustomer(@NonNull Long custId) {
+        return reservationSystem.getReservationsForCustomer(custId);
+    }
+
+    @Override
+    public int getPeakReservations(@NonNull VehicleType vehicleType, int pickupZip, @NonNull ReservationPeriod reservationPeriod) {
+        return reservationSystem.getPeakReservations(vehicleType, pickupZip, reservationPeriod);
+    }
+
+    @Override
+    public ReservationPeriod findEarliestAvailablePeriod(@NonNull VehicleType vehicleType, int pickupZip, @NonNull LocalDateTime from, @NonNull Duration length) {
+        return reservationSystem.findEarliestAvailablePeriod(vehicleType, pickupZip, from, length);
+    }
+
+    @Override
+    public Map<VehicleType, long[]> getDailyAvailability(int pickupZip, @NonNull LocalDate fromDay, int days) {
+        return reservationSystem.getDailyAvailability(pickupZip, fromDay, days);
+    }
+
+    @Override
+    public FleetReport getFleetReport(@NonNull LocalDate fromDay, int days) {
+        return reservationSystem.getFleetReport(fromDay, days);
     }
 }
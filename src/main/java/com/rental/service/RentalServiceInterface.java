@@ -1,21 +1,38 @@
 package com.rental.service;
 
+import com.rental.analytics.FleetReport;
 import com.rental.model.Customer;
+import com.rental.model.OperationResult;
 import com.rental.model.Reservation;
 import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationRequest;
+import com.rental.model.ReservationResult;
 import com.rental.model.VehicleType;
 import com.rental.validator.InvalidRequestException;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 public interface RentalServiceInterface {
 
         Long createReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) throws InvalidRequestException;
 
+        // createReservation reporting rejections as a shared ReservationResult instead of throwing
+        ReservationResult tryCreateReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod);
+
+        List<ReservationResult> createReservations(List<ReservationRequest> reservationRequests);
+
         Reservation updateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) throws InvalidRequestException;
 
+        OperationResult<Reservation> tryUpdateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod);
+
         Reservation  cancelReservation(Long reservationId) throws InvalidRequestException;
 
+        OperationResult<Reservation> tryCancelReservation(Long reservationId);
+
         Long returnCustomerId(String firstName, String lastName, Long phoneNo, String email, int age) throws InvalidRequestException;
 
         boolean isRentalAvailable(Long custId, VehicleType vehicleType, int zipCode,ReservationPeriod reservationPeriod) throws InvalidRequestException;
@@ -26,5 +43,16 @@ public interface RentalServiceInterface {
 
         boolean checkReservationPeriodWithSysDateTime(ReservationPeriod reservationPeriod);
 
+        List<Reservation> getReservationsForCustomer(Long custId);
+
+        int getPeakReservations(VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod);
+
+        ReservationPeriod findEarliestAvailablePeriod(VehicleType vehicleType, int pickupZip, LocalDateTime from, Duration length);
+
+        Map<VehicleType, long[]> getDailyAvailability(int pickupZip, LocalDate fromDay, int days);
+
+        // fleet utilization, demand by hour of day and cancellation rates per bucket over days starting at fromDay
+        FleetReport getFleetReport(LocalDate fromDay, int days);
+
 }
 
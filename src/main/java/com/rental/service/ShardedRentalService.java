@@ -0,0 +1,285 @@
+package com.rental.service;
+
+import com.rental.analytics.FleetReport;
+import com.rental.analytics.FleetReportBuilder;
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.model.Customer;
+import com.rental.model.OperationResult;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationRequest;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+import com.rental.validator.ErrorCode;
+import com.rental.validator.InvalidRequestException;
+import lombok.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partitions reservations by pickup zip code over independent ReservationSystem shards, each with its
+ * own reservation map, interval indexes, lock stripes, expiry engine and journal
+ * (rental.journal.dir/shard-N) and cold store (rental.cold.dir/shard-N). Customers live in one CustomerDirectory shared by all shards, so the
+ * no-overlap rule per customer holds across shards.
+ *
+ * Zip code operations go to the owning shard, reservation id lookups scan the shards, and an update
+ * that changes the zip code to another shard moves the reservation with both shards locked.
+ * All shards publish to one ReservationEventBus.
+ */
+public class ShardedRentalService implements RentalServiceInterface, Closeable {
+
+    private final ReservationSystem[] shards;
+    private final RentalService[] services;
+    private final ReservationEventBus eventBus;
+
+    // rental.shards shards, default one per available processor
+    public ShardedRentalService() {
+        this(Integer.getInteger("rental.shards", Runtime.getRuntime().availableProcessors()));
+    }
+
+    // journal and cold store directories from rental.journal.dir and rental.cold.dir
+    public ShardedRentalService(int shardCount) {
+        this(shardCount, directory("rental.journal.dir"), directory("rental.cold.dir"));
+    }
+
+    // shard N journals to journalDirectory/shard-N and archives to coldDirectory/shard-N; either may be null
+    public ShardedRentalService(int shardCount, Path journalDirectory, Path coldDirectory) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        CustomerDirectory customers = new CustomerDirectory();
+        eventBus = new ReservationEventBus();
+        shards = new ReservationSystem[shardCount];
+        services = new RentalService[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            Path shardJournal = journalDirectory == null ? null : journalDirectory.resolve("shard-" + shard);
+            Path shardCold = coldDirectory == null ? null : coldDirectory.resolve("shard-" + shard);
+            shards[shard] = new ReservationSystem(customers, shard, shardJournal, eventBus, shardCold);
+            services[shard] = new RentalService(shards[shard]);
+        }
+        removeStaleMovedReservations();
+    }
+
+    private static Path directory(String property) {
+        String directory = System.getProperty(property);
+        return directory == null ? null : Paths.get(directory);
+    }
+
+    // a crash in the middle of a move replays the reservation in both shards; the copy with the latest MOVE wins
+    private void removeStaleMovedReservations() {
+        for (ReservationSystem shard : shards) {
+            for (Map.Entry<Long, Long> move : shard.getReplayedMoves().entrySet()) {
+                for (ReservationSystem other : shards) {
+                    if (other != shard && other.getReservationMap().containsKey(move.getKey())
+                            && other.getReplayedMoves().getOrDefault(move.getKey(), -1L) < move.getValue()) {
+                        other.removeStaleMovedReservation(move.getKey());
+                    }
+                }
+            }
+        }
+        for (ReservationSystem shard : shards) {
+            shard.getReplayedMoves().clear();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // one change feed for all shards
+    public ReservationEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public ReservationSystem getShard(int shard) {
+        return shards[shard];
+    }
+
+    // closes every shard, stopping their expiry, snapshot and journal threads
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ReservationSystem shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // zip codes are often consecutive, so they are mixed before taking the remainder
+    public int shardFor(int zipCode) {
+        int hash = zipCode * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    // shard holding the reservation, live or archived, or -1
+    public int ownerOf(Long reservationId) {
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (shards[shard].getReservationMap().containsKey(reservationId)) {
+                return shard;
+            }
+        }
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (shards[shard].isArchived(reservationId)) {
+                return shard;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Long createReservation(@NonNull Customer customer, @NonNull VehicleType vehicleType, int pickupZip, @NonNull ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        return services[shardFor(pickupZip)].createReservation(customer, vehicleType, pickupZip, reservationPeriod);
+    }
+
+    @Override
+    public ReservationResult tryCreateReservation(Customer customer, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        return services[shardFor(pickupZip)].tryCreateReservation(customer, vehicleType, pickupZip, reservationPeriod);
+    }
+
+    // splits the batch by shard and puts the results back in request order
+    @Override
+    public List<ReservationResult> createReservations(@NonNull List<ReservationRequest> reservationRequests) {
+        List<List<Integer>> requestsByShard = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            requestsByShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < reservationRequests.size(); i++) {
+            ReservationRequest request = reservationRequests.get(i);
+            requestsByShard.get(request == null ? 0 : shardFor(request.getPickupZip())).add(i);
+        }
+        ReservationResult[] results = new ReservationResult[reservationRequests.size()];
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<Integer> shardRequests = requestsByShard.get(shard);
+            if (shardRequests.isEmpty()) {
+                continue;
+            }
+            List<ReservationRequest> batch = new ArrayList<>(shardRequests.size());
+            for (Integer i : shardRequests) {
+                batch.add(reservationRequests.get(i));
+            }
+            List<ReservationResult> shardResults = services[shard].createReservations(batch);
+            for (int j = 0; j < shardResults.size(); j++) {
+                results[shardRequests.get(j)] = shardResults.get(j);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public Reservation updateReservation(@NonNull Long reservationId, @NonNull String firstName, @NonNull String lastName, @NonNull Long phoneNo, @NonNull VehicleType vehicleType, int pickupZip, @NonNull ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        return tryUpdateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod).getOrThrow();
+    }
+
+    @Override
+    public OperationResult<Reservation> tryUpdateReservation(Long reservationId, String firstName, String lastName, Long phoneNo, VehicleType vehicleType, int pickupZip, ReservationPeriod reservationPeriod) {
+        int target = shardFor(pickupZip);
+        int owner = reservationId == null ? -1 : ownerOf(reservationId);
+        if (owner < 0 || owner == target) {
+            return services[target].tryUpdateReservation(reservationId, firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod);
+        }
+        if (firstName == null || lastName == null || phoneNo == null || vehicleType == null || reservationPeriod == null) {
+            return OperationResult.rejected(ErrorCode.ERR06);
+        }
+        services[owner].markReservationsExpired();
+        services[target].markReservationsExpired();
+        if (!checkReservationPeriodWithSysDateTime(reservationPeriod)) {
+            return OperationResult.rejected(ErrorCode.ERR07);
+        }
+        return shards[owner].tryMoveReservation(reservationId, shards[target], firstName, lastName, phoneNo, vehicleType, pickupZip, reservationPeriod);
+    }
+
+    @Override
+    public Reservation cancelReservation(@NonNull Long reservationId) throws InvalidRequestException {
+        return tryCancelReservation(reservationId).getOrThrow();
+    }
+
+    @Override
+    public OperationResult<Reservation> tryCancelReservation(Long reservationId) {
+        int owner = reservationId == null ? -1 : ownerOf(reservationId);
+        return services[owner < 0 ? 0 : owner].tryCancelReservation(reservationId);
+    }
+
+    @Override
+    public Long returnCustomerId(@NonNull String firstName, @NonNull String lastName, @NonNull Long phoneNo, @NonNull String email, int age) throws InvalidRequestException {
+        return services[0].returnCustomerId(firstName, lastName, phoneNo, email, age);
+    }
+
+    @Override
+    public boolean isRentalAvailable(@NonNull Long custId, @NonNull VehicleType vehicleType, int zipCode, @NonNull ReservationPeriod reservationPeriod) throws InvalidRequestException {
+        return services[shardFor(zipCode)].isRentalAvailable(custId, vehicleType, zipCode, reservationPeriod);
+    }
+
+    @Override
+    public void markReservationsExpired() {
+        for (RentalService service : services) {
+            service.markReservationsExpired();
+        }
+    }
+
+    @Override
+    public Reservation getReservationById(@NonNull Long reservationId) throws InvalidRequestException {
+        int owner = ownerOf(reservationId);
+        return services[owner < 0 ? 0 : owner].getReservationById(reservationId);
+    }
+
+    @Override
+    public boolean checkReservationPeriodWithSysDateTime(@NonNull ReservationPeriod reservationPeriod) {
+        return services[0].checkReservationPeriodWithSysDateTime(reservationPeriod);
+    }
+
+    @Override
+    public List<Reservation> getReservationsForCustomer(@NonNull Long custId) {
+        List<Reservation> reservations = new ArrayList<>();
+        for (RentalService service : services) {
+            reservations.addAll(service.getReservationsForCustomer(custId));
+        }
+        reservations.sort(Comparator.comparing((Reservation reservation) -> reservation.getReservationPeriod().getStartDateTime())
+                .thenComparing(Reservation::getReservationId));
+        return reservations;
+    }
+
+    @Override
+    public int getPeakReservations(@NonNull VehicleType vehicleType, int pickupZip, @NonNull ReservationPeriod reservationPeriod) {
+        return services[shardFor(pickupZip)].getPeakReservations(vehicleType, pickupZip, reservationPeriod);
+    }
+
+    @Override
+    public ReservationPeriod findEarliestAvailablePeriod(@NonNull VehicleType vehicleType, int pickupZip, @NonNull LocalDateTime from, @NonNull Duration length) {
+        return services[shardFor(pickupZip)].findEarliestAvailablePeriod(vehicleType, pickupZip, from, length);
+    }
+
+    @Override
+    public Map<VehicleType, long[]> getDailyAvailability(int pickupZip, @NonNull LocalDate fromDay, int days) {
+        return services[shardFor(pickupZip)].getDailyAvailability(pickupZip, fromDay, days);
+    }
+
+    // one report over every shard's buckets
+    @Override
+    public FleetReport getFleetReport(@NonNull LocalDate fromDay, int days) {
+        FleetReportBuilder builder = new FleetReportBuilder();
+        for (int shard = 0; shard < shards.length; shard++) {
+            int owner = shard;
+            builder.add(shards[shard].getFleetAnalytics(), shards[shard].getInventory(), zipCode -> shardFor(zipCode) == owner);
+        }
+        return builder.build(fromDay, days);
+    }
+}
@@ -0,0 +1,102 @@
+package com.rental.transfer;
+
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.persistence.JournalCodec;
+import com.rental.persistence.JournalRecord;
+import com.rental.util.TimeKeyUtil;
+import com.rental.validator.ErrorCode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+// a record with a bad checksum is rejected on its own; a bad length ends the input, the frames after it cannot be found
+final class BinaryRecordReader implements RecordReader {
+
+    private final ReadableByteChannel channel;
+    private final Kind kind;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BinaryRecordWriter.BUFFER_BYTES);
+    private long recordNumber;
+    private boolean started;
+    private boolean ended;
+
+    BinaryRecordReader(ReadableByteChannel channel, Kind kind) {
+        this.channel = channel;
+        this.kind = kind;
+        buffer.flip();
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        if (!started) {
+            started = true;
+            if (!fill(8) || buffer.getInt() != BinaryRecordWriter.MAGIC || buffer.getInt() != BinaryRecordWriter.VERSION) {
+                throw new IOException("Not a rental transfer file");
+            }
+        }
+        if (ended || !fill(JournalCodec.HEADER_BYTES)) {
+            return end();
+        }
+        recordNumber++;
+        int bodyLength = buffer.getInt(buffer.position());
+        if (bodyLength <= 0 || bodyLength > JournalCodec.MAX_BODY_BYTES) {
+            ended = true;
+            return ImportRecord.rejected(recordNumber, ErrorCode.ERR06, "Corrupt record length " + bodyLength + ", rest of the input skipped");
+        }
+        int frameLength = JournalCodec.HEADER_BYTES + bodyLength + JournalCodec.TRAILER_BYTES;
+        if (!fill(frameLength)) {
+            ended = true;
+            return ImportRecord.rejected(recordNumber, ErrorCode.ERR06, "Truncated record");
+        }
+        int bodyStart = buffer.position() + JournalCodec.HEADER_BYTES;
+        buffer.position(buffer.position() + frameLength);
+        if (buffer.getInt(bodyStart + bodyLength) != JournalCodec.crc(buffer.array(), bodyStart, bodyLength)) {
+            return ImportRecord.rejected(recordNumber, ErrorCode.ERR06, "Record checksum mismatch");
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.position(bodyStart).limit(bodyStart + bodyLength);
+        JournalRecord record;
+        try {
+            record = JournalCodec.decodeBody(body);
+        } catch (RuntimeException e) {
+            return ImportRecord.rejected(recordNumber, ErrorCode.ERR06, "Undecodable record");
+        }
+        if (kind == Kind.CUSTOMER && record.getType() == JournalRecord.Type.CUSTOMER) {
+            return ImportRecord.of(recordNumber, Customer.builder().customerId(record.getCustId()).email(record.getEmail()).firstName(record.getFirstName())
+                    .lastName(record.getLastName()).phoneNo(record.getPhoneNo()).age(record.getAge()).build());
+        }
+        if (kind == Kind.RESERVATION && record.getType() == JournalRecord.Type.CREATE) {
+            ReservationPeriod reservationPeriod = new ReservationPeriod(TimeKeyUtil.fromKey(record.getStartKey()), TimeKeyUtil.fromKey(record.getEndKey()));
+            return ImportRecord.of(recordNumber, new Reservation(record.getReservationId(), record.getCustId(), record.getVehicleType(), record.getZipCode(),
+                    reservationPeriod, record.isReserved()));
+        }
+        return ImportRecord.rejected(recordNumber, ErrorCode.ERR06, "Unexpected " + record.getType() + " record");
+    }
+
+    // bytes left after the last whole frame are a torn tail
+    private ImportRecord end() {
+        if (!ended && buffer.hasRemaining()) {
+            ended = true;
+            return ImportRecord.rejected(++recordNumber, ErrorCode.ERR06, "Truncated record");
+        }
+        ended = true;
+        return null;
+    }
+
+    // true once at least bytes are buffered, false when the input ends first
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+}
@@ -0,0 +1,56 @@
+package com.rental.transfer;
+
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.persistence.JournalCodec;
+import com.rental.persistence.JournalRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+final class BinaryRecordWriter implements RecordWriter {
+
+    static final int MAGIC = 0x52545246;
+    static final int VERSION = 1;
+    static final int BUFFER_BYTES = 256 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+    BinaryRecordWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    @Override
+    public void customer(Customer customer) throws IOException {
+        put(JournalCodec.encode(JournalRecord.ofCustomer(customer)));
+    }
+
+    @Override
+    public void reservation(Reservation reservation) throws IOException {
+        put(JournalCodec.encode(JournalRecord.ofReservation(JournalRecord.Type.CREATE, reservation)));
+    }
+
+    @Override
+    public void finish() throws IOException {
+        drain();
+    }
+
+    private void put(ByteBuffer frame) throws IOException {
+        if (buffer.remaining() < frame.remaining()) {
+            drain();
+        }
+        buffer.put(frame);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,265 @@
+package com.rental.transfer;
+
+import com.rental.domain.ReservationSystem;
+import com.rental.domain.store.ColdReservationStore;
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.service.ShardedRentalService;
+import com.rental.util.ValidatorUtil;
+import com.rental.validator.ErrorCode;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Streams customers and reservations in and out of a ReservationSystem (or all shards of a
+ * ShardedRentalService) in CSV or binary (see TransferFormat) without materializing them.
+ *
+ * Exports walk the live maps, then the cold tier block by block, and write through one bounded
+ * buffer. Imports parse on the calling thread and hand batches of BATCH_SIZE records through a
+ * bounded queue to rental.transfer.threads import threads (default one per processor), so memory
+ * stays the same whatever the input size.
+ * Each record is checked by the validators in ValidatorUtil and imported with its exported id;
+ * rejected records are reported one by one with an ErrorCode and the import goes on. Import
+ * customers before the reservations that refer to them.
+ */
+public class BulkTransfer {
+
+    public static final int BATCH_SIZE = 256;
+    public static final int REPORTED_ERRORS = 100;
+    private static final List<ImportRecord> END_OF_INPUT = Collections.emptyList();
+
+    private final ReservationSystem[] shards;
+    private final ShardedRentalService shardedService;
+    private final int threads;
+
+    public BulkTransfer(ReservationSystem reservationSystem) {
+        this(new ReservationSystem[]{reservationSystem}, null);
+    }
+
+    public BulkTransfer(ShardedRentalService shardedService) {
+        this(shards(shardedService), shardedService);
+    }
+
+    private BulkTransfer(ReservationSystem[] shards, ShardedRentalService shardedService) {
+        this.shards = shards;
+        this.shardedService = shardedService;
+        this.threads = Math.max(1, Integer.getInteger("rental.transfer.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static ReservationSystem[] shards(ShardedRentalService shardedService) {
+        ReservationSystem[] shards = new ReservationSystem[shardedService.getShardCount()];
+        for (int shard = 0; shard < shards.length; shard++) {
+            shards[shard] = shardedService.getShard(shard);
+        }
+        return shards;
+    }
+
+    // returns the number of customers written; the channel is left open
+    public long exportCustomers(WritableByteChannel channel, TransferFormat format) throws IOException {
+        RecordWriter writer = format.writer(channel);
+        long written = 0;
+        //customers are shared by all shards
+        for (Customer customer : shards[0].getCustomerMap().values()) {
+            synchronized (customer) {
+                writer.customer(customer);
+            }
+            written++;
+        }
+        writer.finish();
+        return written;
+    }
+
+    // returns the number of reservations written; the channel is left open
+    public long exportReservations(WritableByteChannel channel, TransferFormat format) throws IOException {
+        RecordWriter writer = format.writer(channel);
+        long[] written = new long[1];
+        for (ReservationSystem shard : shards) {
+            for (Reservation reservation : shard.getReservationMap().values()) {
+                writer.reservation(reservation);
+                written[0]++;
+            }
+            ColdReservationStore coldStore = shard.getColdStore();
+            if (coldStore != null) {
+                //a reservation still hot was written above
+                coldStore.forEach(reservation -> {
+                    if (!shard.getReservationMap().containsKey(reservation.getReservationId())) {
+                        writer.reservation(reservation);
+                        written[0]++;
+                    }
+                });
+            }
+        }
+        writer.finish();
+        return written[0];
+    }
+
+    // errorHandler (may be null) gets every rejected record, one call at a time
+    public ImportReport importCustomers(ReadableByteChannel channel, TransferFormat format, Consumer<ImportError> errorHandler) throws IOException, InterruptedException {
+        return importRecords(format.reader(channel, RecordReader.Kind.CUSTOMER), errorHandler);
+    }
+
+    // errorHandler (may be null) gets every rejected record, one call at a time
+    public ImportReport importReservations(ReadableByteChannel channel, TransferFormat format, Consumer<ImportError> errorHandler) throws IOException, InterruptedException {
+        return importRecords(format.reader(channel, RecordReader.Kind.RESERVATION), errorHandler);
+    }
+
+    private ImportReport importRecords(RecordReader reader, Consumer<ImportError> errorHandler) throws IOException, InterruptedException {
+        BlockingQueue<List<ImportRecord>> batches = new ArrayBlockingQueue<>(threads * 2);
+        Errors errors = new Errors(errorHandler);
+        AtomicLong imported = new AtomicLong();
+        //a failing import thread keeps draining the queue so the reader never blocks on it
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    List<ImportRecord> batch;
+                    while ((batch = batches.take()) != END_OF_INPUT) {
+                        if (failure.get() == null) {
+                            try {
+                                imported.addAndGet(importBatch(batch, errors));
+                            } catch (RuntimeException e) {
+                                failure.compareAndSet(null, e);
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "bulk-import-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        long records = 0;
+        try {
+            List<ImportRecord> batch = new ArrayList<>(BATCH_SIZE);
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                records++;
+                batch.add(record);
+                if (batch.size() == BATCH_SIZE) {
+                    batches.put(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.put(batch);
+            }
+        } finally {
+            for (int t = 0; t < threads; t++) {
+                batches.put(END_OF_INPUT);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return new ImportReport(records, imported.get(), errors.reported());
+    }
+
+    // returns how many records of the batch were imported
+    private long importBatch(List<ImportRecord> batch, Errors errors) {
+        List<ImportRecord> valid = new ArrayList<>(batch.size());
+        for (ImportRecord record : batch) {
+            if (record.errorCode != null) {
+                errors.add(new ImportError(record.recordNumber, record.errorCode, record.message));
+            } else if (record.customer != null ? !ValidatorUtil.importableCustomer.test(record.customer).isValid()
+                    : !ValidatorUtil.importableReservation.test(record.reservation).isValid()) {
+                errors.add(new ImportError(record.recordNumber, ErrorCode.ERR06, ErrorCode.ERR06.getValue()));
+            } else if (record.reservation != null && !ValidatorUtil.orderedPeriod.test(record.reservation.getReservationPeriod()).isValid()) {
+                errors.add(new ImportError(record.recordNumber, ErrorCode.ERR07, ErrorCode.ERR07.getValue()));
+            } else {
+                valid.add(record);
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        if (valid.get(0).customer != null) {
+            List<Customer> customers = new ArrayList<>(valid.size());
+            for (ImportRecord record : valid) {
+                customers.add(record.customer);
+            }
+            return report(valid, shards[0].importCustomers(customers), errors);
+        }
+        if (shards.length == 1) {
+            List<Reservation> reservations = new ArrayList<>(valid.size());
+            for (ImportRecord record : valid) {
+                reservations.add(record.reservation);
+            }
+            return report(valid, shards[0].importReservations(reservations), errors);
+        }
+        //an id held by another shard, e.g. one moved there, is as taken as one held by the target shard
+        List<ImportRecord> unclaimed = new ArrayList<>(valid.size());
+        for (ImportRecord record : valid) {
+            if (shardedService.ownerOf(record.reservation.getReservationId()) >= 0) {
+                errors.add(new ImportError(record.recordNumber, ErrorCode.ERR10, ErrorCode.ERR10.getValue()));
+            } else {
+                unclaimed.add(record);
+            }
+        }
+        long imported = 0;
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<ImportRecord> shardRecords = new ArrayList<>();
+            List<Reservation> reservations = new ArrayList<>();
+            for (ImportRecord record : unclaimed) {
+                if (shardedService.shardFor(record.reservation.getZipcode()) == shard) {
+                    shardRecords.add(record);
+                    reservations.add(record.reservation);
+                }
+            }
+            if (!reservations.isEmpty()) {
+                imported += report(shardRecords, shards[shard].importReservations(reservations), errors);
+            }
+        }
+        return imported;
+    }
+
+    private static long report(List<ImportRecord> records, ErrorCode[] results, Errors errors) {
+        long imported = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                imported++;
+            } else {
+                errors.add(new ImportError(records.get(i).recordNumber, results[i], results[i].getValue()));
+            }
+        }
+        return imported;
+    }
+
+    // hands errors to the handler one at a time and keeps the first REPORTED_ERRORS for the report
+    private static final class Errors {
+
+        private final Consumer<ImportError> handler;
+        private final List<ImportError> reported = new ArrayList<>();
+
+        Errors(Consumer<ImportError> handler) {
+            this.handler = handler;
+        }
+
+        synchronized void add(ImportError error) {
+            if (reported.size() < REPORTED_ERRORS) {
+                reported.add(error);
+            }
+            if (handler != null) {
+                handler.accept(error);
+            }
+        }
+
+        synchronized List<ImportError> reported() {
+            return new ArrayList<>(reported);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.rental.transfer;
+
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.validator.ErrorCode;
+import com.rental.validator.RentalValidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// parses one record at a time; a malformed record is rejected on its own and reading goes on
+final class CsvRecordReader implements RecordReader {
+
+    private static final int BUFFER_CHARS = 64 * 1024;
+    private static final int CUSTOMER_FIELDS = 6;
+    private static final int RESERVATION_FIELDS = 7;
+
+    private final Reader in;
+    private final Kind kind;
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private long lineNumber = 1;
+    private boolean firstRecord = true;
+
+    CsvRecordReader(ReadableByteChannel channel, Kind kind) {
+        this.in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_CHARS), BUFFER_CHARS);
+        this.kind = kind;
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        while (true) {
+            long recordLine = lineNumber;
+            if (!readRecord()) {
+                return null;
+            }
+            if (fields.size() == 1 && fields.get(0).trim().isEmpty()) {
+                continue;
+            }
+            //an optional header: a first row that does not start with an id
+            if (firstRecord) {
+                firstRecord = false;
+                if (!RentalValidator.isIntegerNumber(fields.get(0).trim())) {
+                    continue;
+                }
+            }
+            return kind == Kind.CUSTOMER ? customer(recordLine) : reservation(recordLine);
+        }
+    }
+
+    private ImportRecord customer(long recordLine) {
+        if (fields.size() != CUSTOMER_FIELDS) {
+            return fieldCount(recordLine, CUSTOMER_FIELDS);
+        }
+        Long customerId = number(0);
+        if (customerId == null) {
+            return invalid(recordLine, "CustomerId");
+        }
+        Long phoneNo = null;
+        if (!fields.get(4).trim().isEmpty() && (phoneNo = number(4)) == null) {
+            return invalid(recordLine, "PhoneNo");
+        }
+        Long age = number(5);
+        if (age == null || age > Integer.MAX_VALUE) {
+            return invalid(recordLine, "Age");
+        }
+        return ImportRecord.of(recordLine, Customer.builder().customerId(customerId).email(fields.get(1))
+                .firstName(fields.get(2)).lastName(fields.get(3)).phoneNo(phoneNo).age(age.intValue()).build());
+    }
+
+    private ImportRecord reservation(long recordLine) {
+        if (fields.size() != RESERVATION_FIELDS) {
+            return fieldCount(recordLine, RESERVATION_FIELDS);
+        }
+        Long reservationId = number(0);
+        if (reservationId == null) {
+            return invalid(recordLine, "ReservationId");
+        }
+        Long custId = number(1);
+        if (custId == null) {
+            return invalid(recordLine, "CustomerId");
+        }
+        VehicleType vehicleType;
+        try {
+            vehicleType = VehicleType.valueOf(fields.get(2).trim());
+        } catch (IllegalArgumentException e) {
+            return invalid(recordLine, "VehicleType");
+        }
+        Long zipCode = number(3);
+        if (zipCode == null || zipCode > Integer.MAX_VALUE) {
+            return invalid(recordLine, "PickupZipCode");
+        }
+        LocalDateTime start = dateTime(4);
+        if (start == null) {
+            return invalid(recordLine, "StartDateTime");
+        }
+        LocalDateTime end = dateTime(5);
+        if (end == null) {
+            return invalid(recordLine, "EndDateTime");
+        }
+        String reserved = fields.get(6).trim();
+        if (!reserved.equals("true") && !reserved.equals("false")) {
+            return invalid(recordLine, "Reserved");
+        }
+        return ImportRecord.of(recordLine, new Reservation(reservationId, custId, vehicleType, zipCode.intValue(),
+                new ReservationPeriod(start, end), reserved.equals("true")));
+    }
+
+    private Long number(int index) {
+        String value = fields.get(index).trim();
+        if (!RentalValidator.isIntegerNumber(value)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private LocalDateTime dateTime(int index) {
+        try {
+            return LocalDateTime.parse(fields.get(index).trim());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private ImportRecord fieldCount(long recordLine, int expected) {
+        return ImportRecord.rejected(recordLine, ErrorCode.ERR06, ErrorCode.ERR06.getValue() + ": expected " + expected + " fields, found " + fields.size());
+    }
+
+    private static ImportRecord invalid(long recordLine, String fieldName) {
+        return ImportRecord.rejected(recordLine, ErrorCode.ERR06, ErrorCode.ERR06.getValue() + " " + fieldName);
+    }
+
+    // reads the fields of the next record, which may span lines inside quotes; false at the end of the input
+    private boolean readRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        int c = in.read();
+        if (c < 0) {
+            return false;
+        }
+        boolean quoted = false;
+        while (true) {
+            if (c < 0) {
+                fields.add(field.toString());
+                return true;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    c = in.read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                } else if (c == '\n') {
+                    lineNumber++;
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                lineNumber++;
+                fields.add(field.toString());
+                return true;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = in.read();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.rental.transfer;
+
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+final class CsvRecordWriter implements RecordWriter {
+
+    static final String CUSTOMER_HEADER = "CustomerId,Email,FirstName,LastName,PhoneNo,Age";
+    static final String RESERVATION_HEADER = "ReservationId,CustomerId,VehicleType,PickupZipCode,StartDateTime,EndDateTime,Reserved";
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private final Writer out;
+    private boolean headerWritten;
+
+    CsvRecordWriter(WritableByteChannel channel) {
+        out = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_BYTES);
+    }
+
+    @Override
+    public void customer(Customer customer) throws IOException {
+        header(CUSTOMER_HEADER);
+        out.write(String.valueOf(customer.getCustomerId()));
+        out.write(',');
+        field(customer.getEmail());
+        out.write(',');
+        field(customer.getFirstName());
+        out.write(',');
+        field(customer.getLastName());
+        out.write(',');
+        if (customer.getPhoneNo() != null) {
+            out.write(String.valueOf(customer.getPhoneNo()));
+        }
+        out.write(',');
+        out.write(String.valueOf(customer.getAge()));
+        out.write('\n');
+    }
+
+    @Override
+    public void reservation(Reservation reservation) throws IOException {
+        header(RESERVATION_HEADER);
+        out.write(String.valueOf(reservation.getReservationId()));
+        out.write(',');
+        out.write(String.valueOf(reservation.getCustId()));
+        out.write(',');
+        out.write(reservation.getVehicleType().getValue());
+        out.write(',');
+        out.write(String.valueOf(reservation.getZipcode()));
+        out.write(',');
+        out.write(reservation.getReservationPeriod().getStartDateTime().toString());
+        out.write(',');
+        out.write(reservation.getReservationPeriod().getEndDateTime().toString());
+        out.write(',');
+        out.write(reservation.isReserved() ? "true" : "false");
+        out.write('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void header(String header) throws IOException {
+        if (!headerWritten) {
+            out.write(header);
+            out.write('\n');
+            headerWritten = true;
+        }
+    }
+
+    // quoted only when it has to be, null and empty are both written as an empty field
+    private void field(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
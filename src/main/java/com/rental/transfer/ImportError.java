@@ -0,0 +1,17 @@
+package com.rental.transfer;
+
+import com.rental.validator.ErrorCode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A record BulkTransfer did not import. recordNumber is the line a CSV record starts on, or the
+ * position of a binary record counting from 1.
+ */
+@Data
+@AllArgsConstructor
+public class ImportError {
+    private long recordNumber;
+    private ErrorCode errorCode;
+    private String message;
+}
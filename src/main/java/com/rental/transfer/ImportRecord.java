@@ -0,0 +1,35 @@
+package com.rental.transfer;
+
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.validator.ErrorCode;
+
+// one parsed record on its way to the import threads, or the reason it could not be parsed
+final class ImportRecord {
+
+    final long recordNumber;
+    final Customer customer;
+    final Reservation reservation;
+    final ErrorCode errorCode;
+    final String message;
+
+    private ImportRecord(long recordNumber, Customer customer, Reservation reservation, ErrorCode errorCode, String message) {
+        this.recordNumber = recordNumber;
+        this.customer = customer;
+        this.reservation = reservation;
+        this.errorCode = errorCode;
+        this.message = message;
+    }
+
+    static ImportRecord of(long recordNumber, Customer customer) {
+        return new ImportRecord(recordNumber, customer, null, null, null);
+    }
+
+    static ImportRecord of(long recordNumber, Reservation reservation) {
+        return new ImportRecord(recordNumber, null, reservation, null, null);
+    }
+
+    static ImportRecord rejected(long recordNumber, ErrorCode errorCode, String message) {
+        return new ImportRecord(recordNumber, null, null, errorCode, message);
+    }
+}
@@ -0,0 +1,42 @@
+package com.rental.transfer;
+
+import java.util.List;
+
+/**
+ * Outcome of a BulkTransfer import. Only the first errors are kept here; every error goes to the
+ * error handler passed to the import.
+ */
+public class ImportReport {
+
+    private final long records;
+    private final long imported;
+    private final List<ImportError> errors;
+
+    ImportReport(long records, long imported, List<ImportError> errors) {
+        this.records = records;
+        this.imported = imported;
+        this.errors = errors;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return records - imported;
+    }
+
+    // the first BulkTransfer.REPORTED_ERRORS errors in the order they were found
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport(records=" + records + ", imported=" + imported + ", rejected=" + getRejected() + ")";
+    }
+}
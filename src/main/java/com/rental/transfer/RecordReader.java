@@ -0,0 +1,14 @@
+package com.rental.transfer;
+
+import java.io.IOException;
+
+interface RecordReader {
+
+    enum Kind {
+        CUSTOMER,
+        RESERVATION
+    }
+
+    // the next record, a rejected record when it cannot be parsed, or null at the end of the input
+    ImportRecord next() throws IOException;
+}
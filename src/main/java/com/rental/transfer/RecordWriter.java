@@ -0,0 +1,16 @@
+package com.rental.transfer;
+
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+
+import java.io.IOException;
+
+interface RecordWriter {
+
+    void customer(Customer customer) throws IOException;
+
+    void reservation(Reservation reservation) throws IOException;
+
+    // writes out whatever is buffered, the channel stays open
+    void finish() throws IOException;
+}
@@ -0,0 +1,34 @@
+package com.rental.transfer;
+
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * File formats of BulkTransfer.
+ *
+ * CSV has an optional header row and quotes fields containing commas, quotes or line breaks:
+ * <pre>
+ * CustomerId,Email,FirstName,LastName,PhoneNo,Age
+ * ReservationId,CustomerId,VehicleType,PickupZipCode,StartDateTime,EndDateTime,Reserved
+ * </pre>
+ * BINARY is an int magic and an int version followed by one JournalCodec frame per record
+ * (CUSTOMER frames for customers, CREATE frames for reservations), each with its own CRC32.
+ */
+public enum TransferFormat {
+    CSV,
+    BINARY;
+
+    // .csv files are CSV, anything else BINARY
+    public static TransferFormat forFile(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : BINARY;
+    }
+
+    RecordWriter writer(WritableByteChannel channel) {
+        return this == CSV ? new CsvRecordWriter(channel) : new BinaryRecordWriter(channel);
+    }
+
+    RecordReader reader(ReadableByteChannel channel, RecordReader.Kind kind) {
+        return this == CSV ? new CsvRecordReader(channel, kind) : new BinaryRecordReader(channel, kind);
+    }
+}
@@ -0,0 +1,29 @@
+package com.rental.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Encodes a LocalDateTime as a single ordered long (nanoseconds since epoch, UTC wall clock)
+ * so indexes can compare reservation periods without touching LocalDateTime objects. Only
+ * MIN_DATE_TIME (1677) to MAX_DATE_TIME (2262) fit; validation rejects periods outside it.
+ */
+public class TimeKeyUtil {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    public static final LocalDateTime MIN_DATE_TIME = fromKey(Long.MIN_VALUE);
+    public static final LocalDateTime MAX_DATE_TIME = fromKey(Long.MAX_VALUE);
+
+    // throws ArithmeticException outside MIN_DATE_TIME to MAX_DATE_TIME instead of wrapping around
+    public static long toKey(LocalDateTime dateTime) {
+        return Math.addExact(Math.multiplyExact(dateTime.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND), dateTime.getNano());
+    }
+
+    public static boolean isEncodable(LocalDateTime dateTime) {
+        return !dateTime.isBefore(MIN_DATE_TIME) && !dateTime.isAfter(MAX_DATE_TIME);
+    }
+
+    public static LocalDateTime fromKey(long key) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(key, NANOS_PER_SECOND), (int) Math.floorMod(key, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+}
@@ -1,14 +1,29 @@
 package com.rental.util;
 
 import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
 import com.rental.validator.GenericValidation;
 import com.rental.validator.Validation;
 
+import java.util.regex.Pattern;
+
 public class ValidatorUtil {
+	private static final Pattern INTEGER_NUMBER = Pattern.compile("\\d+");
 	public static final Validation<String> notNullString = GenericValidation.from(s -> s != null);
     public static final Validation<Customer> notNullCustomer = GenericValidation.from(s -> s != null);
     public static final Validation<String> notEmptyString = GenericValidation.from(s -> !s.isEmpty());
-    public static final Validation<String> matchesIntegerNumberPattern = GenericValidation.from(s -> s.matches("\\d+"));
+    public static final Validation<String> matchesIntegerNumberPattern = GenericValidation.from(s -> INTEGER_NUMBER.matcher(s).matches());
+    //composed once instead of on every validation
+    public static final Validation<String> integerNumberString = notEmptyString.and(matchesIntegerNumberPattern);
+    public static final Validation<ReservationPeriod> orderedPeriod = GenericValidation.from(p -> p != null && p.getStartDateTime() != null
+            && p.getEndDateTime() != null && p.getEndDateTime().isAfter(p.getStartDateTime())
+            && TimeKeyUtil.isEncodable(p.getStartDateTime()) && TimeKeyUtil.isEncodable(p.getEndDateTime()));
+    //records of a bulk import carry their own ids
+    public static final Validation<Customer> importableCustomer = notNullCustomer.and(GenericValidation.from(c -> c.getCustomerId() != null
+            && c.getEmail() != null && !c.getEmail().isEmpty() && c.getFirstName() != null && c.getLastName() != null && c.getAge() >= 0));
+    public static final Validation<Reservation> importableReservation = GenericValidation.from(r -> r != null && r.getReservationId() != null
+            && r.getCustId() != null && r.getVehicleType() != null);
 
 
 }
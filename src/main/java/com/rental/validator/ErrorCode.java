@@ -2,7 +2,13 @@ package com.rental.validator;
 
 public enum ErrorCode {
 	ERR02("Error Input item doesn't exists in the inventory.Please create item"),
-	ERR06("Invalid Input");
+	ERR06("Invalid Input"),
+	ERR07("Invalid reservation Period"),
+	ERR08("Rental car is not available"),
+	ERR09("Reservation already expired"),
+	ERR10("Record already exists"),
+	ERR11("Too many requests, please retry later"),
+	ERR12("Replica is behind the primary, please retry");
 	
 	private String value;
 	
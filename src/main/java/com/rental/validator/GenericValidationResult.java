@@ -3,18 +3,21 @@ package com.rental.validator;
 import java.util.Optional;
 
 public class GenericValidationResult {
-    private boolean valid;
+    // results carry no state besides valid, so every validation shares these two
+    private static final GenericValidationResult OK = new GenericValidationResult(true);
+    private static final GenericValidationResult FAIL = new GenericValidationResult(false);
+    private final boolean valid;
     public boolean isValid() {
         return valid;
     }
     public static GenericValidationResult ok() {
-        return new GenericValidationResult(true);
+        return OK;
     }
     private GenericValidationResult(boolean valid) {
         this.valid = valid;
     }
     public static GenericValidationResult fail() {
-        return new GenericValidationResult(false);
+        return FAIL;
     }
     public Optional <String> getFieldNameIfInvalid(String field) {
         return this.valid ? Optional.empty() : Optional.of(field);
@@ -6,12 +6,12 @@ public class RentalValidator {
 
 
 	public static void validateStringIsIntegerNumber(String type) throws InvalidRequestException {
-		StringBuilder errorFields = new StringBuilder();
-		errorFields.append(ValidatorUtil.notEmptyString.and(ValidatorUtil.matchesIntegerNumberPattern).test(type)
-				.getFieldNameIfInvalid(type).orElse(""));
-		String errors = errorFields.toString();
-		if (!errors.isEmpty()) {
-			throw new InvalidRequestException(ErrorCode.ERR06.getValue() + " " + errors);
+		if (!isIntegerNumber(type)) {
+			throw new InvalidRequestException(ErrorCode.ERR06.getValue() + " " + type);
 		}
 	}
+
+	public static boolean isIntegerNumber(String type) {
+		return ValidatorUtil.integerNumberString.test(type).isValid();
+	}
 }
@@ -0,0 +1,114 @@
+package com.rental.admission;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.model.Customer;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationRequest;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+import com.rental.service.AdmissionControlledRentalService;
+import com.rental.service.RentalService;
+import com.rental.validator.ErrorCode;
+import com.rental.validator.InvalidRequestException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AdmissionControllerTest {
+
+    @Test
+    public void limitAdaptsToLatency() {
+        long target = TimeUnit.MILLISECONDS.toNanos(10);
+        AimdLimit limit = new AimdLimit(4, 1, 8, target, 0.5);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        assertFalse(limit.tryAcquire());
+
+        //fast calls with the limit in use raise it one at a time
+        limit.release(1_000L);
+        assertEquals(5, limit.getLimit());
+        limit.release(1_000L);
+        assertEquals(6, limit.getLimit());
+        //idle calls do not
+        limit.release(1_000L);
+        limit.release(1_000L);
+        assertEquals(6, limit.getLimit());
+
+        //one slow burst halves it once
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        limit.release(target * 2);
+        limit.release(target * 2);
+        assertEquals(3, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void fullBucketIsRejectedWithoutAffectingOthers() throws Exception {
+        try (ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus())) {
+            reservationSystem.setInventory(Inventory.builder().add(VehicleType.VANS, 19901, 5).add(VehicleType.VANS, 19902, 5).build());
+            AdmissionController admissionController = new AdmissionController(AdmissionConfig.builder().bucketInitialLimit(1).build());
+            AdmissionControlledRentalService rentalService = new AdmissionControlledRentalService(new RentalService(reservationSystem), admissionController);
+            Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).age(35).email("admission@gmail.com").build();
+            LocalDateTime start = LocalDateTime.now().plusDays(20);
+
+            //a call in flight on the hot bucket
+            AimdLimit hot = admissionController.bucketLimit(VehicleType.VANS, 19901);
+            assertTrue(admissionController.tryAcquire(hot));
+
+            ReservationResult rejected = rentalService.tryCreateReservation(customer, VehicleType.VANS, 19901, new ReservationPeriod(start, start.plusDays(2)));
+            assertEquals(ErrorCode.ERR11, rejected.getErrorCode());
+            try {
+                rentalService.createReservation(customer, VehicleType.VANS, 19901, new ReservationPeriod(start, start.plusDays(2)));
+                fail();
+            } catch (InvalidRequestException e) {
+                assertEquals(ErrorCode.ERR11.getValue(), e.getMessage());
+            }
+            assertTrue(rentalService.tryCreateReservation(customer, VehicleType.VANS, 19902, new ReservationPeriod(start, start.plusDays(2))).isReserved());
+
+            List<ReservationResult> batch = rentalService.createReservations(Arrays.asList(
+                    new ReservationRequest(customer, VehicleType.VANS, 19901, new ReservationPeriod(start.plusDays(5), start.plusDays(7))),
+                    new ReservationRequest(customer, VehicleType.VANS, 19902, new ReservationPeriod(start.plusDays(10), start.plusDays(12)))));
+            assertEquals(ErrorCode.ERR11, batch.get(0).getErrorCode());
+            assertTrue(batch.get(1).isReserved());
+            assertEquals(3, admissionController.getBucketRejections());
+
+            admissionController.release(hot, System.nanoTime());
+            assertTrue(rentalService.tryCreateReservation(customer, VehicleType.VANS, 19901, new ReservationPeriod(start.plusDays(20), start.plusDays(22))).isReserved());
+            assertEquals(0, admissionController.getGlobalLimit().getInFlight());
+        }
+    }
+
+    @Test
+    public void bucketLimitsAreBounded() {
+        AdmissionController admissionController = new AdmissionController(AdmissionConfig.builder().maxBuckets(4).build());
+        AimdLimit busy = admissionController.bucketLimit(VehicleType.VANS, 19901);
+        assertTrue(admissionController.tryAcquire(busy));
+        for (int zipCode = 1; zipCode <= 1000; zipCode++) {
+            admissionController.bucketLimit(VehicleType.SUVS, zipCode);
+            assertTrue(admissionController.getBucketCount() <= 4);
+        }
+        //the busy limit survives eviction
+        assertSame(busy, admissionController.bucketLimit(VehicleType.VANS, 19901));
+
+        //every kept limit busy: new buckets share one limit
+        for (int zipCode = 2001; zipCode <= 2003; zipCode++) {
+            assertTrue(admissionController.tryAcquire(admissionController.bucketLimit(VehicleType.SUVS, zipCode)));
+        }
+        AimdLimit overflow = admissionController.bucketLimit(VehicleType.SUVS, 3001);
+        assertSame(overflow, admissionController.bucketLimit(VehicleType.SEDANS, 3002));
+        assertEquals(4, admissionController.getBucketCount());
+    }
+}
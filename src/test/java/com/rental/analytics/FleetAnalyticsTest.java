@@ -0,0 +1,113 @@
+package com.rental.analytics;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+import com.rental.service.RentalService;
+import com.rental.service.ShardedRentalService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class FleetAnalyticsTest {
+
+    @Test
+    public void reportsUtilizationDemandAndCancellations() throws Exception {
+        try (ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus())) {
+            reservationSystem.setInventory(Inventory.builder().add(VehicleType.VANS, 19901, 2).add(VehicleType.SUVS, 19902, 1).build());
+            RentalService rentalService = new RentalService(reservationSystem);
+            Customer first = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).age(35).email("fleet.first@gmail.com").build();
+            Customer second = Customer.builder().firstName("Jane").lastName("Doe").phoneNo(6106794403L).age(30).email("fleet.second@gmail.com").build();
+            LocalDate day = LocalDate.now().plusDays(40);
+            LocalDateTime start = day.atTime(10, 0);
+
+            ReservationResult kept = rentalService.tryCreateReservation(first, VehicleType.VANS, 19901, new ReservationPeriod(start, start.plusHours(30)));
+            ReservationResult cancelled = rentalService.tryCreateReservation(second, VehicleType.VANS, 19901, new ReservationPeriod(start.plusHours(2), start.plusHours(50)));
+            assertTrue(kept.isReserved() && cancelled.isReserved());
+            assertTrue(rentalService.tryCancelReservation(cancelled.getReservationId()).isOk());
+            //moved to 18:00 the next day until the end of the day after
+            assertTrue(rentalService.tryUpdateReservation(kept.getReservationId(), "Vivek", "Arora", 6106794402L, VehicleType.VANS, 19901,
+                    new ReservationPeriod(start.plusHours(32), start.plusHours(62))).isOk());
+
+            FleetReport report = rentalService.getFleetReport(day, 3);
+            assertEquals(2, report.getBuckets().size());
+            BucketReport vans = report.getBuckets().get(0);
+            assertEquals(VehicleType.VANS, vans.getVehicleType());
+            assertArrayEquals(new long[]{0, 6, 24}, vans.getBookedHours());
+            assertArrayEquals(new int[]{0, 1, 1}, vans.getPeakCars());
+            assertEquals(6 / 48.0, vans.getUtilization(1), 1e-9);
+            assertEquals(2, vans.getHourlyDemand()[18]);
+            assertEquals(1, vans.getHourlyDemand()[0]);
+            assertEquals(18, vans.getPeakHour());
+            assertEquals(2, vans.getBookings());
+            assertEquals(0.5, vans.getCancellationRate(), 1e-9);
+            BucketReport idle = report.getBuckets().get(1);
+            assertEquals(0.0, idle.getUtilization(), 1e-9);
+            assertEquals(30, report.getBookedHours());
+            assertEquals(3 * 24 * 3, report.getCapacityHours());
+
+            //a range starting mid rental carries the cars still out into its first day
+            BucketReport nextDay = rentalService.getFleetReport(day.plusDays(2), 1).getBuckets().get(0);
+            assertArrayEquals(new long[]{24}, nextDay.getBookedHours());
+            assertEquals(0, nextDay.getBookings());
+        }
+    }
+
+    @Test
+    public void reportsAcrossChunksInParallel() {
+        FleetAnalytics analytics = new FleetAnalytics();
+        Inventory.Builder inventory = Inventory.builder();
+        LocalDateTime origin = LocalDate.of(2026, 1, 1).atStartOfDay();
+        for (int zip = 0; zip < 200; zip++) {
+            inventory.add(VehicleType.SEDANS, 10000 + zip, 1);
+            for (int day = 0; day < 100; day += 2) {
+                analytics.add(new Reservation((long) zip * 1000 + day, 1L, VehicleType.SEDANS, 10000 + zip,
+                        new ReservationPeriod(origin.plusDays(day), origin.plusDays(day + 1)), true));
+            }
+        }
+        FleetReport report = new FleetReportBuilder().add(analytics, inventory.build()).build(origin.toLocalDate(), 100);
+        assertEquals(200, report.getBuckets().size());
+        assertEquals(0.5, report.getUtilization(), 1e-9);
+        assertEquals(200 * 50, report.getBookings());
+        for (BucketReport bucket : report.getBuckets()) {
+            assertEquals(24, bucket.getBookedHours()[98]);
+            assertEquals(0, bucket.getBookedHours()[99]);
+        }
+    }
+
+    @Test
+    public void shardedReportCountsEachBucketOnce() throws Exception {
+        LocalDate day = LocalDate.now().plusDays(30);
+        FleetReport[] reports = new FleetReport[2];
+        int[] shardCounts = {1, 4};
+        for (int i = 0; i < shardCounts.length; i++) {
+            try (ShardedRentalService rentalService = new ShardedRentalService(shardCounts[i])) {
+                Inventory inventory = Inventory.builder().add(VehicleType.SEDANS, 19701, 2).add(VehicleType.SEDANS, 19702, 1)
+                        .add(VehicleType.VANS, 19703, 3).add(VehicleType.SUVS, 19704, 1).build();
+                for (int shard = 0; shard < rentalService.getShardCount(); shard++) {
+                    rentalService.getShard(shard).setInventory(inventory);
+                }
+                Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).email("sharded.report" + i + "@gmail.com").age(35).build();
+                assertNotNull(rentalService.createReservation(customer, VehicleType.VANS, 19703, new ReservationPeriod(day.atStartOfDay(), day.plusDays(2).atStartOfDay())));
+                reports[i] = rentalService.getFleetReport(day, 2);
+            }
+        }
+        assertEquals(4, reports[1].getBuckets().size());
+        assertEquals(7 * 48, reports[1].getCapacityHours());
+        assertEquals(reports[0].getCapacityHours(), reports[1].getCapacityHours());
+        assertEquals(48, reports[1].getBookedHours());
+        assertEquals(reports[0].getUtilization(), reports[1].getUtilization(), 1e-9);
+    }
+}
@@ -0,0 +1,88 @@
+package com.rental.domain;
+
+import com.rental.util.TimeKeyUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ExpiryEngineTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2030, 1, 1, 12, 0);
+    // current end key of each active reservation, as the ReservationSystem expirer checks it
+    private final Map<Long, Long> activeEnds = new HashMap<>();
+    private final List<Long> expired = new ArrayList<>();
+
+    private final ExpiryEngine.Expirer expirer = (reservationId, endKey) -> {
+        Long activeEnd = activeEnds.get(reservationId);
+        if (activeEnd == null || activeEnd != endKey) {
+            return false;
+        }
+        activeEnds.remove(reservationId);
+        expired.add(reservationId);
+        return true;
+    };
+
+    @Test
+    public void drainsOnlyDueEntriesInEndOrder() {
+        ExpiryEngine engine = new ExpiryEngine();
+        schedule(engine, 1L, now.minusHours(1));
+        schedule(engine, 2L, now.minusHours(3));
+        schedule(engine, 3L, now.plusHours(1));
+        schedule(engine, 4L, now.minusMinutes(1));
+
+        assertEquals(3, engine.drainDue(now, expirer));
+        assertEquals(Arrays.asList(2L, 1L, 4L), expired);
+        assertEquals(1, engine.getPending());
+        assertEquals(180, engine.getMaxLagMillis() / 60_000);
+        assertEquals(1, engine.getLastLagMillis() / 60_000);
+
+        assertEquals(0, engine.drainDue(now, expirer));
+        assertEquals(1, engine.drainDue(now.plusHours(2), expirer));
+        assertEquals(3L, (long) expired.get(3));
+        assertEquals(0, engine.getPending());
+
+        assertEquals(3, engine.getTicks());
+        assertEquals(1, engine.getLastTickDrained());
+        assertEquals(4, engine.getTotalDrained());
+    }
+
+    @Test
+    public void staleEntriesAreSkipped() {
+        ExpiryEngine engine = new ExpiryEngine();
+        schedule(engine, 1L, now.minusHours(2));
+        // rescheduled to end later: the old entry is left in the heap
+        schedule(engine, 1L, now.plusHours(2));
+        schedule(engine, 2L, now.minusHours(1));
+        // cancelled: still in the heap, no longer active
+        activeEnds.remove(2L);
+        assertEquals(3, engine.getPending());
+
+        assertEquals(0, engine.drainDue(now, expirer));
+        assertTrue(expired.isEmpty());
+        assertEquals(1, engine.getPending());
+        assertEquals(0, engine.getTotalDrained());
+
+        assertEquals(1, engine.drainDue(now.plusHours(3), expirer));
+        assertEquals(1L, (long) expired.get(0));
+        assertEquals(2, engine.getTicks());
+        assertEquals(1, engine.getTotalDrained());
+
+        engine.clear();
+        assertEquals(0, engine.getPending());
+    }
+
+    private void schedule(ExpiryEngine engine, Long reservationId, LocalDateTime end) {
+        activeEnds.put(reservationId, TimeKeyUtil.toKey(end));
+        engine.schedule(reservationId, end);
+    }
+}
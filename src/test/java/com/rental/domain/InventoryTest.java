@@ -0,0 +1,77 @@
+package com.rental.domain;
+
+import com.rental.model.VehicleType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class InventoryTest {
+
+    @Test
+    public void loadDefaultInventory() throws IOException {
+        try (InputStream inventoryStream = Inventory.class.getResourceAsStream("/inventory.csv")) {
+            Inventory inventory = Inventory.load(inventoryStream);
+            assertEquals(4, inventory.size());
+            assertEquals(3, inventory.getVehicleCount(VehicleType.SEDANS, 19701));
+            assertEquals(40, inventory.getVehicleCount(VehicleType.VANS, 19701));
+            assertEquals(0, inventory.getVehicleCount(VehicleType.VANS, 19702));
+        }
+    }
+
+    @Test
+    public void duplicateRowsAreSummed() throws IOException {
+        Inventory inventory = load("# depots\nSUVS, 2, 10001\r\n\nSUVS,3,10001\n");
+        assertEquals(5, inventory.getVehicleCount(VehicleType.SUVS, 10001));
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidRowIsRejected() throws IOException {
+        load("SEDANS,3,19701\nBIKES,1,19701\n");
+    }
+
+    @Test
+    public void malformedNumbersAreRejected() {
+        for (String row : new String[]{"SEDANS,3,1 9701", "SEDANS,3,4294987997", "SEDANS,99999999999999999999,19701", "SEDANS, ,19701"}) {
+            try {
+                load(row + "\n");
+                fail(row);
+            } catch (IOException e) {
+                assertTrue(e.getMessage().endsWith("line 1"));
+            }
+        }
+    }
+
+    @Test
+    public void loadLargeInventoryFile() throws IOException {
+        Path inventoryFile = Files.createTempFile("inventory", ".csv");
+        try {
+            int rows = 100_000;
+            try (BufferedWriter writer = Files.newBufferedWriter(inventoryFile, StandardCharsets.US_ASCII)) {
+                writer.write("VehicleType,VehicleCount,PickupZipCode\n");
+                for (int row = 0; row < rows; row++) {
+                    writer.write(VehicleType.values()[row % 4].getValue() + "," + (row % 50 + 1) + "," + (10000 + row / 4) + "\n");
+                }
+            }
+            Inventory inventory = Inventory.load(inventoryFile);
+            assertEquals(rows, inventory.size());
+            assertEquals(5, inventory.getVehicleCount(VehicleType.SEDANS, 10001));
+        } finally {
+            Files.delete(inventoryFile);
+        }
+    }
+
+    private Inventory load(String csv) throws IOException {
+        return Inventory.load(new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
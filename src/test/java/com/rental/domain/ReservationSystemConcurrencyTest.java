@@ -0,0 +1,112 @@
+package com.rental.domain;
+
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ReservationSystemConcurrencyTest {
+
+    private static final AtomicLong emailGen = new AtomicLong();
+    private final LocalDateTime localDateTime = LocalDateTime.now();
+    private ReservationSystem reservationSystem;
+
+    @Before
+    public void setup() {
+        reservationSystem = ReservationSystem.getInstance();
+        reservationSystem.setReservationMap(new ConcurrentHashMap<>());
+    }
+
+    @Test
+    public void noOverbookingUnderContention() throws Exception {
+        ReservationPeriod period = new ReservationPeriod(localDateTime.plusDays(300), localDateTime.plusDays(302));
+        assertEquals(3, bookConcurrently(32, 50, period, VehicleType.SEDANS));
+        assertEquals(40, bookConcurrently(32, 50, period, VehicleType.VANS));
+    }
+
+    @Test
+    public void noOverbookingAsThreadsAreAdded() throws Exception {
+        int attemptsPerThread = 2000;
+        for (int threads = 1; threads <= Math.min(8, Runtime.getRuntime().availableProcessors()); threads *= 2) {
+            ReservationPeriod period = new ReservationPeriod(localDateTime.plusDays(400 + threads * 10), localDateTime.plusDays(402 + threads * 10));
+            assertEquals(3 + 10 + 30 + 40, bookConcurrently(threads, attemptsPerThread, period, VehicleType.values()));
+        }
+    }
+
+    @Test
+    public void readersSeeWholeVersionsWhileUpdating() throws Exception {
+        Long custId = reservationSystem.returnCustomerId("Mvcc", "Reader", 6106794402L, "mvcc" + emailGen.incrementAndGet() + "@gmail.com", 30);
+        LocalDateTime start = localDateTime.plusDays(500);
+        Long reservationId = reservationSystem.reserveIfAvailable(custId, VehicleType.TRUCKS, 19701, new ReservationPeriod(start, start.plusDays(2)));
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        CountDownLatch stop = new CountDownLatch(1);
+        //every version the writer publishes is exactly two days long and keeps one truck busy; the update counts the
+        //reservation's own period as taken, so each new period is disjoint from the previous one
+        Future<Long> reads = reader.submit(() -> {
+            long count = 0;
+            while (stop.getCount() > 0) {
+                Reservation reservation = reservationSystem.findExistingReservation(reservationId);
+                ReservationPeriod period = reservation.getReservationPeriod();
+                assertEquals(period.getStartDateTime().plusDays(2), period.getEndDateTime());
+                assertTrue(reservation.isReserved());
+                assertTrue(reservationSystem.getIntervalReservationsByVehicleTypeZipCode(VehicleType.TRUCKS, 19701, new ReservationPeriod(start, start.plusDays(7000))) <= 1);
+                count++;
+            }
+            return count;
+        });
+        for (int i = 1; i <= 2000; i++) {
+            LocalDateTime newStart = start.plusDays(3L * i);
+            reservationSystem.updateReservation(reservationId, "Mvcc", "Reader", 6106794402L, VehicleType.TRUCKS, 19701, new ReservationPeriod(newStart, newStart.plusDays(2)));
+        }
+        stop.countDown();
+        assertTrue(reads.get() > 0);
+        reader.shutdown();
+    }
+
+    private long bookConcurrently(int threads, int attemptsPerThread, ReservationPeriod period, VehicleType... vehicleTypes) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                startLatch.await();
+                long booked = 0;
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    Long custId = reservationSystem.returnCustomerId("Load", "Test", 6106794402L, "load" + emailGen.incrementAndGet() + "@gmail.com", 30);
+                    if (reservationSystem.reserveIfAvailable(custId, vehicleTypes[i % vehicleTypes.length], 19701, period) != null) {
+                        booked++;
+                    }
+                }
+                return booked;
+            }));
+        }
+        startLatch.countDown();
+        long booked = 0;
+        for (Future<Long> result : results) {
+            booked += result.get();
+        }
+        executor.shutdown();
+        long indexed = 0;
+        for (VehicleType vehicleType : vehicleTypes) {
+            indexed += reservationSystem.getIntervalReservationsByVehicleTypeZipCode(vehicleType, 19701, period);
+        }
+        assertEquals(booked, indexed);
+        return booked;
+    }
+}
@@ -0,0 +1,56 @@
+package com.rental.domain.index;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AvailabilityCacheTest {
+
+    @Test
+    public void bookingRetiresCachedCountsOfItsBucket() throws Exception {
+        try (ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus())) {
+            reservationSystem.setInventory(Inventory.builder().add(VehicleType.VANS, 19801, 2).build());
+            AvailabilityCache cache = reservationSystem.getAvailabilityCache();
+            LocalDateTime start = LocalDateTime.now().plusDays(20);
+            ReservationPeriod search = new ReservationPeriod(start, start.plusDays(3));
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals(0, reservationSystem.getIntervalReservationsByVehicleTypeZipCode(VehicleType.VANS, 19801, search));
+            }
+            assertEquals(9, cache.getHits());
+            assertEquals(1, cache.getMisses());
+
+            Long custId = reservationSystem.returnCustomerId("Vivek", "Arora", 6106794402L, "cache.customer@gmail.com", 35);
+            assertNotNull(reservationSystem.reserveIfAvailable(custId, VehicleType.VANS, 19801, new ReservationPeriod(start.plusDays(1), start.plusDays(2))));
+            assertEquals(1, reservationSystem.getIntervalReservationsByVehicleTypeZipCode(VehicleType.VANS, 19801, search));
+            assertEquals(1, cache.getStale());
+            assertEquals(1, reservationSystem.getIntervalReservationsByVehicleTypeZipCode(VehicleType.VANS, 19801, new ReservationPeriod(start, start.plusDays(3))));
+            assertEquals(10, cache.getHits());
+        }
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        AvailabilityCache cache = new AvailabilityCache(64, 8);
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(VehicleType.SUVS, 19701, new ReservationPeriod(start.plusHours(i), start.plusHours(i + 25)), 0L, i);
+        }
+        assertTrue(cache.size() <= 64);
+        assertEquals(1000 - cache.size(), cache.getEvictions());
+        //the most recent entries survive
+        assertEquals(999, cache.get(VehicleType.SUVS, 19701, new ReservationPeriod(start.plusHours(999), start.plusHours(1024)), 0L));
+        assertEquals(-1, cache.get(VehicleType.SUVS, 19701, new ReservationPeriod(start, start.plusHours(25)), 0L));
+    }
+}
@@ -0,0 +1,74 @@
+package com.rental.domain.index;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AvailabilityCalendarTest {
+
+    @Test
+    public void bookingsFarAheadAreCountedExactly() throws Exception {
+        try (ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus())) {
+            reservationSystem.setInventory(Inventory.builder().add(VehicleType.SUVS, 19811, 1).build());
+            LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusDays(400);
+            ReservationPeriod farAhead = new ReservationPeriod(start, start.plusDays(2));
+            Long custId = reservationSystem.returnCustomerId("Far", "Ahead", 6106794402L, "far.ahead@gmail.com", 40);
+            Long reservationId = reservationSystem.reserveIfAvailable(custId, VehicleType.SUVS, 19811, farAhead);
+
+            assertEquals(1, reservationSystem.getPeakReservations(VehicleType.SUVS, 19811, farAhead));
+            // a year earlier or later is free, not folded onto the booking
+            assertEquals(0, reservationSystem.getPeakReservations(VehicleType.SUVS, 19811, new ReservationPeriod(start.minusDays(365), start.minusDays(363))));
+            assertEquals(0, reservationSystem.getPeakReservations(VehicleType.SUVS, 19811, new ReservationPeriod(start.plusDays(365), start.plusDays(367))));
+
+            long[] daily = reservationSystem.getDailyAvailability(19811, start.toLocalDate().minusDays(1), 5).get(VehicleType.SUVS);
+            assertArrayEquals(new long[]{1, 0, 0, 0, 1}, daily);
+            ReservationPeriod earliest = reservationSystem.findEarliestAvailablePeriod(VehicleType.SUVS, 19811, start.minusDays(1), Duration.ofDays(2));
+            assertEquals(start.plusDays(2), earliest.getStartDateTime());
+
+            // chunks are dropped once the last reservation in them is gone
+            assertTrue(reservationSystem.getAvailabilityCalendar().getChunkCount() > 0);
+            reservationSystem.cancelReservation(reservationId);
+            assertEquals(0, reservationSystem.getAvailabilityCalendar().getChunkCount());
+            assertEquals(start.minusDays(1), reservationSystem.findEarliestAvailablePeriod(VehicleType.SUVS, 19811, start.minusDays(1), Duration.ofDays(2)).getStartDateTime());
+        }
+    }
+
+    @Test
+    public void timelineSpansChunks() {
+        AvailabilityCalendar calendar = new AvailabilityCalendar();
+        LocalDateTime start = LocalDate.of(2031, 3, 1).atTime(7, 30);
+        ReservationPeriod longRental = new ReservationPeriod(start, start.plusDays(AvailabilityCalendar.CHUNK_DAYS * 2));
+        calendar.add(VehicleType.VANS, 19812, longRental);
+        calendar.add(VehicleType.VANS, 19812, new ReservationPeriod(start.plusDays(40), start.plusDays(41)));
+        assertEquals(3, calendar.getChunkCount());
+        assertEquals(2, calendar.getPeak(VehicleType.VANS, 19812, longRental));
+
+        int[] peaks = calendar.getDailyPeaks(VehicleType.VANS, 19812, start.toLocalDate().plusDays(39), 4);
+        assertArrayEquals(new int[]{1, 2, 2, 1}, peaks);
+        assertEquals(start.plusDays(41).plusMinutes(30), calendar.findEarliestStart(VehicleType.VANS, 19812, start.plusDays(40), Duration.ofHours(5), 2));
+        assertEquals(start.plusDays(64).plusMinutes(30), calendar.findEarliestStart(VehicleType.VANS, 19812, start, Duration.ofHours(5), 1));
+
+        calendar.remove(VehicleType.VANS, 19812, longRental);
+        assertEquals(1, calendar.getChunkCount());
+        assertEquals(0, calendar.getPeak(VehicleType.VANS, 19812, new ReservationPeriod(start, start.plusDays(2))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void datesOutsideTheCalendarAreRejected() {
+        new AvailabilityCalendar().getPeak(VehicleType.VANS, 19812, new ReservationPeriod(LocalDateTime.MAX.minusDays(2), LocalDateTime.MAX));
+    }
+}
@@ -0,0 +1,58 @@
+package com.rental.domain.index;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class IntervalTreeTest {
+
+    @Test
+    public void touchingIntervalsDoNotOverlap() {
+        IntervalTree tree = new IntervalTree();
+        tree.add(1L, 10L, 20L);
+        assertEquals(0, tree.countOverlapping(20L, 30L));
+        assertEquals(0, tree.countOverlapping(0L, 10L));
+        assertEquals(1, tree.countOverlapping(19L, 30L));
+    }
+
+    @Test
+    public void countAndEnumerationMatchBruteForce() {
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        List<long[]> intervals = new ArrayList<>();
+        for (long id = 0; id < 2000; id++) {
+            long start = random.nextInt(10000);
+            long[] interval = {id, start, start + 1 + random.nextInt(200)};
+            intervals.add(interval);
+            tree.add(interval[0], interval[1], interval[2]);
+        }
+        for (int i = 0; i < 500; i++) {
+            long[] removed = intervals.remove(random.nextInt(intervals.size()));
+            tree.remove(removed[0], removed[1], removed[2]);
+        }
+        assertEquals(intervals.size(), tree.size());
+        for (int i = 0; i < 200; i++) {
+            long start = random.nextInt(10000);
+            long end = start + 1 + random.nextInt(500);
+            Set<Long> expected = new HashSet<>();
+            for (long[] interval : intervals) {
+                if (interval[1] < end && start < interval[2]) {
+                    expected.add(interval[0]);
+                }
+            }
+            Set<Long> actual = new HashSet<>();
+            tree.forEachOverlapping(start, end, actual::add);
+            assertEquals(expected.size(), tree.countOverlapping(start, end));
+            assertEquals(expected, actual);
+        }
+    }
+}
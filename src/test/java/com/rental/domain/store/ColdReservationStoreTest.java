@@ -0,0 +1,149 @@
+package com.rental.domain.store;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+import com.rental.service.RentalService;
+import com.rental.validator.ErrorCode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ColdReservationStoreTest {
+
+    private Path coldDir;
+
+    @Before
+    public void setup() throws IOException {
+        coldDir = Files.createTempDirectory("cold");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(coldDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void reopensAndDropsTornTail() throws IOException {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        List<Reservation> reservations = new ArrayList<>();
+        for (long id = 0; id < 1000; id++) {
+            reservations.add(new Reservation(910000000000L + id, 70000000000L + id % 13, VehicleType.values()[(int) (id % 4)], 19701 + (int) (id % 50),
+                    new ReservationPeriod(now.minusDays(id % 30 + 2), now.minusDays(id % 30)), false));
+        }
+        try (ColdReservationStore store = new ColdReservationStore(coldDir)) {
+            store.append(reservations.subList(0, 600));
+            store.append(reservations.subList(600, 1000));
+            assertEquals(1000, store.size());
+            assertEquals(reservations.get(17), store.get(910000000017L));
+            assertEquals(reservations.get(999), store.get(910000000999L));
+            assertNull(store.get(1L));
+            //deflated blocks of similar records are a fraction of the raw frames
+            assertTrue(store.getFileBytes() < 1000 * 40);
+        }
+        Files.write(coldDir.resolve(ColdReservationStore.FILE_NAME), new byte[]{0, 0, 0, 5, 0, 0}, StandardOpenOption.APPEND);
+
+        try (ColdReservationStore store = new ColdReservationStore(coldDir)) {
+            assertEquals(1000, store.size());
+            assertEquals(2, store.getBlocks());
+            assertEquals(910000000999L, store.getMaxReservationId());
+            assertEquals(reservations.get(600), store.get(910000000600L));
+            assertEquals(reservations.get(3), store.get(910000000003L));
+            Reservation updated = new Reservation(910000000003L, 70000000003L, VehicleType.SUVS, 19799, reservations.get(3).getReservationPeriod(), false);
+            store.append(Collections.singletonList(updated));
+            assertEquals(updated, store.get(910000000003L));
+            assertEquals(1000, store.size());
+
+            List<Reservation> visited = new ArrayList<>();
+            store.forEach(visited::add);
+            assertEquals(1000, visited.size());
+            assertEquals(updated, visited.get(999));
+            assertEquals(reservations.get(4), visited.get(3));
+        }
+    }
+
+    @Test
+    public void archivesInactiveReservationsAndReadsThrough() throws Exception {
+        try (ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus(), coldDir)) {
+            reservationSystem.setInventory(Inventory.builder().add(VehicleType.VANS, 19901, 2).build());
+            RentalService rentalService = new RentalService(reservationSystem);
+            Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).age(35).email("cold.tier@gmail.com").build();
+            LocalDateTime start = LocalDateTime.now().plusDays(10);
+            ReservationResult cancelled = rentalService.tryCreateReservation(customer, VehicleType.VANS, 19901, new ReservationPeriod(start, start.plusDays(2)));
+            ReservationResult active = rentalService.tryCreateReservation(customer, VehicleType.VANS, 19901, new ReservationPeriod(start.plusDays(5), start.plusDays(7)));
+            assertTrue(rentalService.tryCancelReservation(cancelled.getReservationId()).isOk());
+
+            //the expiry tick may get there first
+            reservationSystem.archiveInactiveReservations();
+            assertTrue(reservationSystem.isArchived(cancelled.getReservationId()));
+            assertFalse(reservationSystem.getReservationMap().containsKey(cancelled.getReservationId()));
+            assertEquals(1, reservationSystem.getReservationMap().size());
+            assertEquals(1, reservationSystem.getColdStore().size());
+
+            Reservation archived = rentalService.getReservationById(cancelled.getReservationId());
+            assertFalse(archived.isReserved());
+            assertEquals(start, archived.getReservationPeriod().getStartDateTime());
+            assertTrue(rentalService.getReservationById(active.getReservationId()).isReserved());
+            assertEquals(Arrays.asList(active.getReservationId()),
+                    rentalService.getReservationsForCustomer(archived.getCustId()).stream().map(Reservation::getReservationId).collect(Collectors.toList()));
+            assertEquals(ErrorCode.ERR09, rentalService.tryCancelReservation(cancelled.getReservationId()).getErrorCode());
+            assertEquals(ErrorCode.ERR02, rentalService.tryUpdateReservation(cancelled.getReservationId(), "Vivek", "Arora", 6106794402L,
+                    VehicleType.VANS, 19901, archived.getReservationPeriod()).getErrorCode());
+            reservationSystem.getColdStore().close();
+        }
+    }
+
+    @Test
+    public void restartWithoutJournalDoesNotReissueArchivedIds() throws Exception {
+        Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).age(35).email("cold.restart@gmail.com").build();
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+        long archivedId;
+        try (ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus())) {
+            reservationSystem.setInventory(Inventory.builder().add(VehicleType.VANS, 19901, 2).build());
+            //an id issued by an earlier run, ahead of this process's counter
+            archivedId = new RentalService(reservationSystem).tryCreateReservation(customer, VehicleType.VANS, 19901,
+                    new ReservationPeriod(start, start.plusDays(2))).getReservationId() + 1000;
+        }
+        try (ColdReservationStore store = new ColdReservationStore(coldDir)) {
+            store.append(Collections.singletonList(new Reservation(archivedId, 70000000001L, VehicleType.VANS, 19901,
+                    new ReservationPeriod(start, start.plusDays(2)), false)));
+        }
+
+        try (ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus(), coldDir)) {
+            reservationSystem.setInventory(Inventory.builder().add(VehicleType.VANS, 19901, 2).build());
+            assertTrue(reservationSystem.isArchived(archivedId));
+            ReservationResult created = new RentalService(reservationSystem).tryCreateReservation(customer, VehicleType.VANS, 19901,
+                    new ReservationPeriod(start, start.plusDays(2)));
+            assertTrue(created.getReservationId() > archivedId);
+        }
+    }
+}
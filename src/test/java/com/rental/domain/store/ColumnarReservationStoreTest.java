@@ -0,0 +1,128 @@
+package com.rental.domain.store;
+
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ColumnarReservationStoreTest {
+
+    @Test
+    public void readsAreDetachedCopies() {
+        LocalDateTime now = LocalDateTime.now();
+        ReservationPeriod reservationPeriod = new ReservationPeriod(now.plusDays(1), now.plusDays(3));
+        Reservation reservation = new Reservation(910000000001L, 70000000001L, VehicleType.TRUCKS, 19701, reservationPeriod, true);
+        ColumnarReservationStore store = new ColumnarReservationStore();
+        assertNull(store.putIfAbsent(910000000001L, reservation));
+
+        Reservation stored = store.get(910000000001L);
+        assertEquals(reservation, stored);
+        try {
+            stored.setReserved(false);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertTrue(store.get(910000000001L).isReserved());
+        }
+        assertEquals(reservation, store.put(910000000001L, new Reservation(910000000001L, 70000000001L, VehicleType.TRUCKS, 19702, reservationPeriod, false)));
+        assertTrue(stored.isReserved());
+        assertEquals(19702, store.get(910000000001L).getZipcode());
+
+        Reservation removed = store.remove(910000000001L);
+        assertEquals(19702, removed.getZipcode());
+        assertNull(store.get(910000000001L));
+        assertTrue(store.isEmpty());
+        //a reader keeps the version it already holds
+        assertEquals(19701, stored.getZipcode());
+        assertEquals(reservationPeriod, stored.getReservationPeriod());
+    }
+
+    @Test
+    public void iterationSurvivesConcurrentRemoval() {
+        ColumnarReservationStore store = new ColumnarReservationStore(1);
+        for (long id = 0; id < 100; id++) {
+            store.put(id, reservation(id));
+        }
+        Iterator<Reservation> iterator = store.values().iterator();
+        assertTrue(iterator.hasNext());
+        //archived or moved away after the iterator reached the segment
+        for (long id = 0; id < 100; id++) {
+            store.remove(id);
+            store.put(id + 1000, reservation(id + 1000));
+        }
+        int seen = 0;
+        while (iterator.hasNext()) {
+            Reservation reservation = iterator.next();
+            assertEquals(reservation(reservation.getReservationId()), reservation);
+            seen++;
+        }
+        assertEquals(100, seen);
+    }
+
+    @Test
+    public void iteratesEveryReservation() {
+        LocalDateTime now = LocalDateTime.now();
+        ColumnarReservationStore store = new ColumnarReservationStore(4);
+        for (long id = 0; id < 1000; id++) {
+            store.put(id, new Reservation(id, id % 7, VehicleType.VANS, 19701, new ReservationPeriod(now, now.plusHours(id)), id % 2 == 0));
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Reservation reservation : store.values()) {
+            ids.add(reservation.getReservationId());
+            assertEquals(reservation.getReservationId() % 2 == 0, reservation.isReserved());
+        }
+        assertEquals(1000, ids.size());
+        assertEquals(1000, store.size());
+    }
+
+    @Test
+    public void footprintPerReservation() {
+        ColumnarReservationStore store = new ColumnarReservationStore();
+        int reservations = 200_000;
+        for (long id = 0; id < reservations; id++) {
+            store.put(910000000000L + id, reservation(910000000000L + id));
+        }
+        assertEquals(reservations, store.size());
+        //38 bytes of columns plus the id table, with room to grow; a ConcurrentHashMap entry with its objects takes about 280
+        assertTrue(store.getFootprintBytes() / reservations < 100);
+    }
+
+    @Test
+    public void removedSlotsAreReused() {
+        ColumnarReservationStore store = new ColumnarReservationStore(4);
+        int live = 10_000;
+        for (long id = 0; id < live; id++) {
+            store.put(id, reservation(id));
+        }
+        long filled = store.getFootprintBytes();
+        //moves and archives remove ids that never come back
+        for (long id = live; id < 50 * live; id++) {
+            assertNotNull(store.remove(id - live));
+            store.put(id, reservation(id));
+        }
+        assertEquals(live, store.size());
+        assertTrue(store.getFootprintBytes() <= 2 * filled);
+        assertNull(store.get(0L));
+        assertEquals(Long.valueOf(50L * live - 1), store.get(50L * live - 1).getReservationId());
+        long reserved = 0;
+        for (Reservation reservation : store.values()) {
+            assertTrue(reservation.getReservationId() >= 49L * live);
+            reserved++;
+        }
+        assertEquals(live, reserved);
+    }
+
+    private static Reservation reservation(long id) {
+        LocalDateTime pickup = LocalDateTime.of(2030, 1, 1, 0, 0).plusMinutes(id % 1_000_000);
+        return new Reservation(id, 70000000000L + id, VehicleType.SEDANS, 19701, new ReservationPeriod(pickup, pickup.plusDays(2)), true);
+    }
+}
@@ -0,0 +1,139 @@
+package com.rental.events;
+
+import com.rental.domain.ReservationSystem;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ReservationEventBusTest {
+
+    @Test
+    public void everySubscriptionSeesEveryEventInOrder() throws Exception {
+        ReservationEventBus eventBus = new ReservationEventBus(256, ReservationEventBus.OverflowPolicy.BLOCK);
+        int producers = 4;
+        int eventsPerProducer = 20_000;
+        int total = producers * eventsPerProducer;
+        CountDownLatch consumed = new CountDownLatch(2 * total);
+        AtomicLong outOfOrder = new AtomicLong();
+        List<ReservationEventBus.Subscription> subscriptions = new ArrayList<>();
+        for (String name : new String[]{"billing", "dispatch"}) {
+            long[] last = {-1L};
+            subscriptions.add(eventBus.subscribe(name, (event, endOfBatch) -> {
+                if (event.getSequence() != last[0] + 1) {
+                    outOfOrder.incrementAndGet();
+                }
+                last[0] = event.getSequence();
+                consumed.countDown();
+            }));
+        }
+        Reservation reservation = new Reservation(1L, 2L, VehicleType.SUVS, 19701, null, true);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    eventBus.publish(ReservationEvent.Type.CREATED, reservation);
+                }
+            });
+            threads.add(producer);
+            producer.start();
+        }
+        for (Thread producer : threads) {
+            producer.join();
+        }
+        assertTrue(consumed.await(30, TimeUnit.SECONDS));
+        assertEquals(0, outOfOrder.get());
+        assertEquals(0, eventBus.getDroppedCount());
+        //the sequence is published after the handler saw the last event of the batch
+        for (ReservationEventBus.Subscription subscription : subscriptions) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (subscription.getSequence() < total - 1 && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            assertEquals(total - 1, subscription.getSequence());
+            subscription.close();
+        }
+    }
+
+    @Test
+    public void dropPolicyNeverWaitsForSlowSubscription() throws Exception {
+        ReservationEventBus eventBus = new ReservationEventBus(8, ReservationEventBus.OverflowPolicy.DROP);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong consumed = new AtomicLong();
+        ReservationEventBus.Subscription subscription = eventBus.subscribe("slow", (event, endOfBatch) -> {
+            release.await();
+            consumed.incrementAndGet();
+        });
+        for (int i = 0; i < 100; i++) {
+            eventBus.publish(ReservationEvent.Type.UPDATED, null);
+        }
+        long dropped = eventBus.getDroppedCount();
+        assertTrue(dropped >= 100 - 8 - 1);
+        release.countDown();
+        while (subscription.getSequence() < eventBus.getCursor()) {
+            Thread.sleep(1);
+        }
+        subscription.close();
+        assertEquals(100 - dropped, consumed.get());
+    }
+
+    @Test
+    public void failingHandlerIsCountedAndSkipped() throws Exception {
+        ReservationEventBus eventBus = new ReservationEventBus(8, ReservationEventBus.OverflowPolicy.BLOCK);
+        AtomicLong consumed = new AtomicLong();
+        ReservationEventBus.Subscription subscription = eventBus.subscribe("failing", (event, endOfBatch) -> {
+            if (consumed.incrementAndGet() % 2 == 0) {
+                throw new IllegalStateException("handler failed");
+            }
+        });
+        for (int i = 0; i < 20; i++) {
+            eventBus.publish(ReservationEvent.Type.CREATED, null);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (subscription.getSequence() < eventBus.getCursor() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        subscription.close();
+        assertEquals(20, consumed.get());
+        assertEquals(10, eventBus.getHandlerErrorCount());
+    }
+
+    @Test
+    public void reservationSystemPublishesItsMutations() throws Exception {
+        ReservationSystem reservationSystem = ReservationSystem.getInstance();
+        List<ReservationEvent.Type> types = new CopyOnWriteArrayList<>();
+        AtomicLong reservationId = new AtomicLong();
+        CountDownLatch cancelled = new CountDownLatch(1);
+        ReservationEventBus.Subscription subscription = reservationSystem.getEventBus().subscribe("test", (event, endOfBatch) -> {
+            if (event.getReservation().getReservationId() == reservationId.get()) {
+                types.add(event.getType());
+                if (event.getType() == ReservationEvent.Type.CANCELLED) {
+                    assertFalse(event.getReservation().isReserved());
+                    cancelled.countDown();
+                }
+            }
+        });
+        Long custId = reservationSystem.returnCustomerId("Event", "Feed", 6106794402L, "event.feed@gmail.com", 30);
+        LocalDateTime start = LocalDateTime.now().plusDays(90);
+        reservationId.set(reservationSystem.reserveIfAvailable(custId, VehicleType.VANS, 19701, new ReservationPeriod(start, start.plusDays(2))));
+        reservationSystem.updateReservation(reservationId.get(), "Event", "Feed", 6106794402L, VehicleType.VANS, 19701, new ReservationPeriod(start.plusDays(5), start.plusDays(7)));
+        reservationSystem.cancelReservation(reservationId.get());
+        assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        subscription.close();
+        assertTrue(types.contains(ReservationEvent.Type.UPDATED));
+        assertEquals(ReservationEvent.Type.CANCELLED, types.get(types.size() - 1));
+    }
+}
@@ -0,0 +1,78 @@
+package com.rental.loadgen;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.service.RentalService;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class LoadGeneratorTest {
+
+    private final List<ReservationSystem> systems = new ArrayList<>();
+
+    @After
+    public void cleanup() throws IOException {
+        for (ReservationSystem reservationSystem : systems) {
+            reservationSystem.close();
+        }
+    }
+
+    @Test
+    public void zipfFavoursLowRanks() {
+        ZipfDistribution zipf = new ZipfDistribution(100, 1.0);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] counts = new int[100];
+        for (int i = 0; i < 100_000; i++) {
+            counts[zipf.sample(random)]++;
+        }
+        //rank 0 is drawn about 1/H(100) = 19% of the time, rank 99 about 0.2%
+        assertTrue(counts[0] > 15_000 && counts[0] < 23_000);
+        assertTrue(counts[0] > 10 * counts[50]);
+    }
+
+    @Test
+    public void recordedRunReplaysTheSameRequests() throws Exception {
+        WorkloadConfig config = WorkloadConfig.builder().requests(3000).customers(500).mix("create=40,update=20,cancel=10,get=20,availability=10").build();
+        Writer recordLog = new StringWriter();
+        LoadReport report = new LoadGenerator(isolatedService()).run(new SyntheticWorkload(config), 4, 60, recordLog);
+        assertEquals(3000, report.getRequests());
+        assertTrue(report.getThroughput() > 0);
+        assertEquals(0, report.getMetrics().getCounter("loadgen.create.errors"));
+        assertTrue(report.getMetrics().getTimer("loadgen.create").getCount() > 1000);
+
+        Path logFile = Files.createTempFile("requests", ".log");
+        try {
+            Files.write(logFile, recordLog.toString().getBytes(StandardCharsets.UTF_8));
+            try (RequestLogReplay replay = new RequestLogReplay(logFile, 0)) {
+                LoadReport replayed = new LoadGenerator(isolatedService()).run(replay, 2, 60, null);
+                assertEquals(3000, replayed.getRequests());
+                assertEquals(report.getMetrics().getTimer("loadgen.cancel").getCount(), replayed.getMetrics().getTimer("loadgen.cancel").getCount());
+            }
+        } finally {
+            Files.delete(logFile);
+        }
+    }
+
+    // keeps the generated bookings out of the ReservationSystem singleton other tests use
+    private RentalService isolatedService() {
+        ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus());
+        systems.add(reservationSystem);
+        return new RentalService(reservationSystem);
+    }
+}
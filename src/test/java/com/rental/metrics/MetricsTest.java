@@ -0,0 +1,103 @@
+package com.rental.metrics;
+
+import com.rental.model.Customer;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.service.MeteredRentalService;
+import com.rental.service.RentalService;
+import com.rental.validator.InvalidRequestException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class MetricsTest {
+
+    @Test
+    public void histogramPercentilesWithinBucketPrecision() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    for (long micros = 1; micros <= 10_000; micros++) {
+                        histogram.record(micros * 1000);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(40_000, snapshot.getCount());
+        assertEquals(10_000_000L, snapshot.getMaxNanos());
+        assertEquals(5_000_500.0, snapshot.getMeanNanos(), 1.0);
+        assertEquals(5_000_000.0, snapshot.getPercentileNanos(50), 5_000_000.0 / 16);
+        assertEquals(9_900_000.0, snapshot.getPercentileNanos(99), 9_900_000.0 / 16);
+    }
+
+    @Test
+    public void meteredServiceCountsRejectionsByReason() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        MeteredRentalService rentalService = new MeteredRentalService(new RentalService(), registry);
+        Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).email("metrics.customer@gmail.com").age(35).build();
+        LocalDateTime start = LocalDateTime.now().plusDays(60);
+        try {
+            rentalService.createReservation(customer, VehicleType.SUVS, 19701, new ReservationPeriod(start, start.plusHours(2)));
+            fail();
+        } catch (InvalidRequestException e) {
+            assertEquals("Invalid reservation Period", e.getMessage());
+        }
+        assertNotNull(rentalService.createReservation(customer, VehicleType.SUVS, 19701, new ReservationPeriod(start, start.plusDays(2))));
+
+        MetricsRegistry.Snapshot snapshot = rentalService.getMetrics();
+        assertEquals(2, snapshot.getTimer("rental.createReservation").getCount());
+        assertEquals(1, snapshot.getCounter("rental.createReservation.rejected.ERR07"));
+        assertEquals(0, snapshot.getCounter("rental.createReservation.errors"));
+        assertTrue(snapshot.toText().contains("rental.createReservation count=2"));
+        assertTrue(snapshot.toJson().contains("\"rental.createReservation.rejected.ERR07\":1"));
+
+        Path metricsFile = Files.createTempFile("metrics", ".json");
+        try {
+            registry.writeTo(metricsFile);
+            assertTrue(new String(Files.readAllBytes(metricsFile), "UTF-8").startsWith("{\"timestampMillis\":"));
+        } finally {
+            Files.delete(metricsFile);
+        }
+    }
+
+    @Test
+    public void failedExportsAreCountedAndKept() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        Path directory = Files.createTempDirectory("metrics");
+        Path metricsFile = directory.resolve("metrics.txt");
+        try {
+            registry.export(directory.resolve("missing").resolve("metrics.txt"));
+            registry.export(directory.resolve("missing").resolve("metrics.txt"));
+            assertEquals(2, registry.snapshot().getCounter("metrics.exportErrors"));
+            assertNotNull(registry.getExportFailure());
+
+            registry.export(metricsFile);
+            assertNull(registry.getExportFailure());
+            assertTrue(new String(Files.readAllBytes(metricsFile), "UTF-8").contains("metrics.exportErrors"));
+        } finally {
+            Files.deleteIfExists(metricsFile);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.rental.persistence;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.service.ShardedRentalService;
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ReservationJournalTest {
+
+    private Path journalDir;
+    private Path journalFile;
+
+    @Before
+    public void setup() throws IOException {
+        journalDir = Files.createTempDirectory("journal");
+        journalFile = ReservationJournal.segmentPath(journalDir, 1L);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(journalDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void replayReturnsAppendedRecords() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Customer customer = Customer.builder().customerId(70000000001L).firstName("Vivek").lastName("Arora").phoneNo(6106794402L).email("vivek.arora@gmail.com").age(35).build();
+        Reservation reservation = new Reservation(910000000001L, 70000000001L, VehicleType.SUVS, 19701, new ReservationPeriod(now.plusDays(2), now.plusDays(4)), true);
+        try (ReservationJournal journal = ReservationJournal.open(journalDir, 1L, record -> fail())) {
+            journal.append(JournalRecord.ofCustomer(customer));
+            journal.append(JournalRecord.ofReservation(JournalRecord.Type.CREATE, reservation));
+            journal.append(JournalRecord.ofCancel(910000000001L));
+            journal.sync();
+        }
+        List<JournalRecord> replayed = new ArrayList<>();
+        ReservationJournal.open(journalDir, 1L, replayed::add).close();
+        assertEquals(3, replayed.size());
+        assertEquals(JournalRecord.ofCustomer(customer), replayed.get(0));
+        assertEquals(JournalRecord.ofReservation(JournalRecord.Type.CREATE, reservation), replayed.get(1));
+        assertEquals(JournalRecord.ofCancel(910000000001L), replayed.get(2));
+    }
+
+    @Test
+    public void tornTailIsDropped() throws Exception {
+        try (ReservationJournal journal = ReservationJournal.open(journalDir, 1L, record -> fail())) {
+            journal.append(JournalRecord.ofExpire(1L));
+            journal.sync();
+        }
+        long validLength = Files.size(journalFile);
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 20, 3, 1, 2}));
+        }
+        List<JournalRecord> replayed = new ArrayList<>();
+        ReservationJournal.open(journalDir, 1L, replayed::add).close();
+        assertEquals(validLength, Files.size(journalFile));
+        assertEquals(1, replayed.size());
+    }
+
+    @Test
+    public void rollStartsNewSegment() throws Exception {
+        try (ReservationJournal journal = ReservationJournal.open(journalDir, 1L, record -> fail())) {
+            journal.append(JournalRecord.ofCancel(1L));
+            assertEquals(2L, journal.roll());
+            journal.append(JournalRecord.ofCancel(2L));
+            journal.sync();
+            journal.deleteSegmentsBefore(2L);
+        }
+        assertEquals(Collections.singletonList(2L), ReservationJournal.listSegments(journalDir));
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (ReservationJournal journal = ReservationJournal.open(journalDir, 2L, replayed::add)) {
+            assertEquals(2L, journal.getSegment());
+        }
+        assertEquals(Collections.singletonList(JournalRecord.ofCancel(2L)), replayed);
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Customer customer = Customer.builder().customerId(70000000001L).firstName("Vivek").lastName("Arora").email("vivek.arora@gmail.com").age(35).build();
+        Reservation reservation = new Reservation(910000000001L, 70000000001L, VehicleType.SUVS, 19701, new ReservationPeriod(now.plusDays(2), now.plusDays(4)), true);
+        try (SnapshotFile.Writer writer = SnapshotFile.writer(journalDir, 7L, 910000000002L, 70000000002L)) {
+            writer.inventory(VehicleType.SUVS, 19701, 10L);
+            writer.customer(customer);
+            writer.reservation(reservation);
+            writer.commit();
+        }
+        assertEquals(Collections.singletonList(7L), SnapshotFile.list(journalDir));
+        List<Object> restored = new ArrayList<>();
+        SnapshotFile.read(SnapshotFile.path(journalDir, 7L), new SnapshotFile.Handler() {
+            @Override
+            public void header(long segment, long nextReservationId, long nextCustomerId) {
+                restored.add(Arrays.asList(segment, nextReservationId, nextCustomerId));
+            }
+
+            @Override
+            public void inventory(VehicleType vehicleType, int zipCode, long vehicleCount) {
+                restored.add(Arrays.asList(vehicleType, zipCode, vehicleCount));
+            }
+
+            @Override
+            public void customer(Customer restoredCustomer) {
+                restored.add(restoredCustomer);
+            }
+
+            @Override
+            public void reservation(Reservation restoredReservation) {
+                restored.add(restoredReservation);
+            }
+        });
+        assertEquals(Arrays.asList(Arrays.asList(7L, 910000000002L, 70000000002L), Arrays.asList(VehicleType.SUVS, 19701, 10L), customer, reservation), restored);
+        assertNull(((Customer) restored.get(2)).getPhoneNo());
+        assertEquals("Arora", ((Customer) restored.get(2)).getLastName());
+    }
+
+    @Test
+    public void concurrentAppendsShareForces() throws Exception {
+        int threads = 16;
+        int appendsPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (ReservationJournal journal = ReservationJournal.open(journalDir, 1L, record -> fail())) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = t * 1_000_000L;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        journal.append(JournalRecord.ofCancel(base + i));
+                        journal.sync();
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            assertEquals(threads * appendsPerThread, journal.getRecordsWritten());
+            assertTrue(journal.getForces() <= journal.getRecordsWritten());
+        } finally {
+            executor.shutdown();
+        }
+        List<JournalRecord> replayed = new ArrayList<>();
+        ReservationJournal.open(journalDir, 1L, replayed::add).close();
+        assertEquals(threads * appendsPerThread, replayed.size());
+    }
+
+    @Test
+    public void reservationSystemRestartsFromSnapshotAndJournal() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(60);
+        ReservationPeriod kept = new ReservationPeriod(start, start.plusDays(2));
+        ReservationPeriod beforeUpdate = new ReservationPeriod(start.plusDays(5), start.plusDays(7));
+        ReservationPeriod afterUpdate = new ReservationPeriod(start.plusDays(20), start.plusDays(22));
+        ReservationPeriod cancelled = new ReservationPeriod(start.plusDays(10), start.plusDays(12));
+        Long custId;
+        Long keptId;
+        Long updatedId;
+        Long cancelledId;
+        try (ReservationSystem before = new ReservationSystem(new CustomerDirectory(), 0, journalDir, new ReservationEventBus())) {
+            custId = before.returnCustomerId("Vivek", "Arora", 6106794402L, "restart@gmail.com", 35);
+            keptId = before.reserveIfAvailable(custId, VehicleType.SEDANS, 19701, kept);
+            updatedId = before.reserveIfAvailable(custId, VehicleType.SEDANS, 19701, beforeUpdate);
+            before.writeSnapshot();
+            // only in the journal segment after the snapshot
+            cancelledId = before.reserveIfAvailable(custId, VehicleType.VANS, 19701, cancelled);
+            before.updateReservation(updatedId, "Vivek", "Arora", 6106794402L, VehicleType.SUVS, 19701, afterUpdate);
+            before.cancelReservation(cancelledId);
+        }
+
+        long[] snapshotCounters = new long[2];
+        SnapshotFile.read(SnapshotFile.path(journalDir, SnapshotFile.list(journalDir).get(0)), new SnapshotFile.Handler() {
+            @Override
+            public void header(long segment, long nextReservationId, long nextCustomerId) {
+                snapshotCounters[0] = nextReservationId;
+                snapshotCounters[1] = nextCustomerId;
+            }
+
+            @Override
+            public void inventory(VehicleType vehicleType, int zipCode, long vehicleCount) {
+            }
+
+            @Override
+            public void customer(Customer customer) {
+            }
+
+            @Override
+            public void reservation(Reservation reservation) {
+            }
+        });
+        assertTrue(snapshotCounters[0] > updatedId);
+        assertTrue(snapshotCounters[1] > custId);
+
+        try (ReservationSystem after = new ReservationSystem(new CustomerDirectory(), 0, journalDir, new ReservationEventBus())) {
+            // create, the update with its customer record, and cancel
+            assertEquals(4, after.getReplayedRecords());
+            assertEquals(3, after.getReservationMap().size());
+            assertEquals(kept, after.getReservationMap().get(keptId).getReservationPeriod());
+            assertEquals(VehicleType.SUVS, after.getReservationMap().get(updatedId).getVehicleType());
+            assertEquals(afterUpdate, after.getReservationMap().get(updatedId).getReservationPeriod());
+            assertFalse(after.getReservationMap().get(cancelledId).isReserved());
+
+            assertEquals(1, after.getIntervalReservationsByVehicleTypeZipCode(VehicleType.SEDANS, 19701, kept));
+            assertEquals(0, after.getIntervalReservationsByVehicleTypeZipCode(VehicleType.SEDANS, 19701, beforeUpdate));
+            assertEquals(1, after.getIntervalReservationsByVehicleTypeZipCode(VehicleType.SUVS, 19701, afterUpdate));
+            assertEquals(0, after.getIntervalReservationsByVehicleTypeZipCode(VehicleType.VANS, 19701, cancelled));
+            assertFalse(after.isRentalAvailable(custId, VehicleType.SEDANS, 19701, kept));
+            assertTrue(after.isRentalAvailable(custId, VehicleType.VANS, 19701, cancelled));
+            assertEquals(2, after.getReservationsForCustomer(custId).size());
+
+            assertEquals("restart@gmail.com", after.getCustomerMap().get(custId).getEmail());
+            assertEquals(custId, after.returnCustomerId("Vivek", "Arora", 6106794402L, "restart@gmail.com", 35));
+            assertTrue(after.returnCustomerId("Other", "Customer", 6106794402L, "restart.other@gmail.com", 35) > custId);
+            assertTrue(after.reserveIfAvailable(custId, VehicleType.VANS, 19701, cancelled) > cancelledId);
+        }
+    }
+
+    @Test
+    public void moveCutOffBetweenShardsIsReplayedOnce() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(60);
+        ReservationPeriod period = new ReservationPeriod(start, start.plusDays(2));
+        int zipA = 19701;
+        int zipB = zipA + 1;
+        Long reservationId;
+        Path sourceSegment;
+        long sourceBytes;
+        try (ShardedRentalService before = new ShardedRentalService(2, journalDir, null)) {
+            while (before.shardFor(zipB) == before.shardFor(zipA)) {
+                zipB++;
+            }
+            setInventory(before, zipA, zipB);
+            Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).email("moved@gmail.com").age(35).build();
+            reservationId = before.createReservation(customer, VehicleType.SEDANS, zipA, period);
+            sourceSegment = ReservationJournal.segmentPath(journalDir.resolve("shard-" + before.shardFor(zipA)), 1L);
+            sourceBytes = Files.size(sourceSegment);
+            before.updateReservation(reservationId, "Vivek", "Arora", 6106794402L, VehicleType.SEDANS, zipB, period);
+        }
+        // a crash after the target's MOVE was forced loses the source's REMOVE
+        assertTrue(Files.size(sourceSegment) > sourceBytes);
+        try (FileChannel channel = FileChannel.open(sourceSegment, StandardOpenOption.WRITE)) {
+            channel.truncate(sourceBytes);
+        }
+
+        for (int restart = 0; restart < 2; restart++) {
+            try (ShardedRentalService after = new ShardedRentalService(2, journalDir, null)) {
+                setInventory(after, zipA, zipB);
+                assertFalse(after.getShard(after.shardFor(zipA)).getReservationMap().containsKey(reservationId));
+                Reservation moved = after.getReservationById(reservationId);
+                assertEquals(zipB, moved.getZipcode());
+                assertEquals(0, after.getPeakReservations(VehicleType.SEDANS, zipA, period));
+                assertEquals(1, after.getPeakReservations(VehicleType.SEDANS, zipB, period));
+                assertEquals(Collections.singletonList(moved), after.getReservationsForCustomer(moved.getCustId()));
+            }
+        }
+    }
+
+    private static void setInventory(ShardedRentalService rentalService, int zipA, int zipB) {
+        Inventory inventory = Inventory.builder().add(VehicleType.SEDANS, zipA, 1).add(VehicleType.SEDANS, zipB, 1).build();
+        for (int shard = 0; shard < rentalService.getShardCount(); shard++) {
+            rentalService.getShard(shard).setInventory(inventory);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.rental.replication;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.model.Customer;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationResult;
+import com.rental.model.VehicleType;
+import com.rental.persistence.JournalRecord;
+import com.rental.service.RentalService;
+import com.rental.validator.ErrorCode;
+import com.rental.validator.InvalidRequestException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ReplicationTest {
+
+    @Test
+    public void replicaFollowsSnapshotAndStream() throws Exception {
+        try (ReservationSystem primarySystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus())) {
+            primarySystem.setInventory(Inventory.builder().add(VehicleType.TRUCKS, 19911, 1).add(VehicleType.TRUCKS, 19912, 1).build());
+            RentalService rentalService = new RentalService(primarySystem);
+            Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).age(35).email("replication@gmail.com").build();
+            LocalDateTime start = LocalDateTime.now().plusDays(30);
+            ReservationPeriod period = new ReservationPeriod(start, start.plusDays(2));
+
+            try (ReplicationPrimary primary = new ReplicationPrimary(primarySystem, 0, 1024, 20L)) {
+                ReservationResult beforeReplica = rentalService.tryCreateReservation(customer, VehicleType.TRUCKS, 19911, period);
+                try (ReadReplica replica = new ReadReplica("localhost", primary.getPort(), 5000L)) {
+                    //in the snapshot
+                    assertEquals(VehicleType.TRUCKS, replica.getReservationById(beforeReplica.getReservationId()).getVehicleType());
+                    Long custId = replica.getReservationById(beforeReplica.getReservationId()).getCustId();
+                    assertFalse(replica.isRentalAvailable(custId + 1, VehicleType.TRUCKS, 19911, period));
+
+                    //streamed, read with the primary's token
+                    ReservationResult afterReplica = rentalService.tryCreateReservation(customer, VehicleType.TRUCKS, 19912, new ReservationPeriod(start.plusDays(5), start.plusDays(7)));
+                    assertTrue(rentalService.tryCancelReservation(beforeReplica.getReservationId()).isOk());
+                    long token = primary.getLsn();
+                    assertTrue(replica.isRentalAvailable(custId + 1, VehicleType.TRUCKS, 19911, period, token));
+                    assertTrue(replica.getReservationById(afterReplica.getReservationId(), token).isReserved());
+                    assertFalse(replica.getReservationById(beforeReplica.getReservationId(), token).isReserved());
+                    assertTrue(replica.getAppliedLsn() >= token);
+
+                    long deadline = System.currentTimeMillis() + 5000L;
+                    while (replica.getLagRecords() > 0 && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(10L);
+                    }
+                    assertEquals(0, replica.getLagRecords());
+                    assertTrue(replica.getStalenessMillis() < 5000L);
+                    assertEquals(1, replica.getSnapshots());
+                    assertEquals(1, primary.getReplicaCount());
+                    assertTrue(primary.getRecordsSent() >= 2);
+
+                    //a token the primary never issued cannot be met
+                    try (ReadReplica impatient = new ReadReplica("localhost", primary.getPort(), 50L)) {
+                        impatient.getReservationById(afterReplica.getReservationId(), Long.MAX_VALUE);
+                        fail();
+                    } catch (InvalidRequestException e) {
+                        assertEquals(ErrorCode.ERR12.getValue(), e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void logReportsRecordsThatLeftTheRing() throws Exception {
+        ReplicationLog log = new ReplicationLog(4);
+        for (long id = 1; id <= 6; id++) {
+            log.append(JournalRecord.ofCancel(id));
+        }
+        ByteBuffer[] frames = new ByteBuffer[8];
+        assertEquals(6, log.getLastLsn());
+        assertEquals(-1, log.read(1, frames, 0));
+        assertEquals(4, log.read(2, frames, 0));
+        assertEquals(0, log.read(6, frames, 1));
+    }
+}
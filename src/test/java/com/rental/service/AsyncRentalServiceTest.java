@@ -0,0 +1,58 @@
+package com.rental.service;
+
+import com.rental.model.Customer;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.validator.InvalidRequestException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AsyncRentalServiceTest {
+
+    @Test
+    public void futuresKeepSynchronousResultsAndErrors() throws Exception {
+        try (AsyncRentalService rentalService = new AsyncRentalService(new RentalService())) {
+            Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).email("async.customer@gmail.com").age(35).build();
+            LocalDateTime start = LocalDateTime.now().plusDays(70);
+            Long reservationId = rentalService.createReservation(customer, VehicleType.TRUCKS, 19701, new ReservationPeriod(start, start.plusDays(2))).get();
+            assertNotNull(reservationId);
+            assertEquals(VehicleType.TRUCKS, rentalService.getReservationById(reservationId).get().getVehicleType());
+            try {
+                rentalService.createReservation(customer, VehicleType.TRUCKS, 19701, new ReservationPeriod(start, start.plusHours(1))).get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof InvalidRequestException);
+                assertEquals("Invalid reservation Period", e.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void manyCallsInFlightOnBoundedPool() throws Exception {
+        int calls = 10_000;
+        try (AsyncRentalService rentalService = new AsyncRentalService(new RentalService(), AsyncRentalService.newBoundedPool(32, calls))) {
+            List<CompletableFuture<Long>> custIds = new ArrayList<>(calls);
+            for (int i = 0; i < calls; i++) {
+                custIds.add(rentalService.returnCustomerId("Async", "Customer", 6106794402L, "async" + i + "@gmail.com", 30));
+            }
+            CompletableFuture.allOf(custIds.toArray(new CompletableFuture[0])).join();
+            Set<Long> distinct = new HashSet<>();
+            for (CompletableFuture<Long> custId : custIds) {
+                distinct.add(custId.join());
+            }
+            assertEquals(calls, distinct.size());
+        }
+    }
+}
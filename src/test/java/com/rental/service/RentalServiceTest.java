@@ -1,10 +1,18 @@
 package com.rental.service;
 
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
 import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
 import com.rental.model.Customer;
+import com.rental.model.OperationResult;
 import com.rental.model.Reservation;
 import com.rental.model.ReservationPeriod;
+import com.rental.model.ReservationRequest;
+import com.rental.model.ReservationResult;
 import com.rental.model.VehicleType;
+import com.rental.util.TimeKeyUtil;
+import com.rental.validator.ErrorCode;
 import com.rental.validator.InvalidRequestException;
 import org.junit.Before;
 import org.junit.Rule;
@@ -13,9 +21,17 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.*;
@@ -159,6 +175,22 @@ public class RentalServiceTest {
 
     }
 
+    @Test
+    public void periodEndingPastTimeKeyRangeIsRejected() {
+        customer.setEmail("far.future@gmail.com");
+        LocalDateTime start = localDateTime.plusDays(2);
+        ReservationPeriod farFuture = new ReservationPeriod(start, LocalDateTime.of(2300, 1, 1, 0, 0));
+        assertEquals(ErrorCode.ERR07, service.tryCreateReservation(customer, VehicleType.SUVS, 19701, farFuture).getErrorCode());
+        assertFalse(service.checkReservationPeriodWithSysDateTime(farFuture));
+        assertTrue(service.checkReservationPeriodWithSysDateTime(new ReservationPeriod(start, TimeKeyUtil.MAX_DATE_TIME)));
+        try {
+            TimeKeyUtil.toKey(farFuture.getEndDateTime());
+            fail();
+        } catch (ArithmeticException e) {
+            assertEquals(TimeKeyUtil.MAX_DATE_TIME, TimeKeyUtil.fromKey(TimeKeyUtil.toKey(TimeKeyUtil.MAX_DATE_TIME)));
+        }
+    }
+
     @Test
     public void cancelReservation() throws InvalidRequestException{
         customer.setEmail("rstu@gmail.com");
@@ -184,6 +216,21 @@ public class RentalServiceTest {
         assertEquals(service.getReservationById(reservationId1).getCustId(), returnedCustId);
     }
 
+    @Test
+    public void returnCustomerIdConcurrentlyForNewEmail() throws Exception{
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Long>> custIds = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            custIds.add(executor.submit(() -> service.returnCustomerId("Megha", "Arora", 6106794401L, "concurrent@gmail.com", 37)));
+        }
+        Set<Long> distinctCustIds = new HashSet<>();
+        for (Future<Long> custId : custIds) {
+            distinctCustIds.add(custId.get());
+        }
+        executor.shutdown();
+        assertEquals(1, distinctCustIds.size());
+    }
+
     @Test
     public void isRentalAvailableInOverlappingPeriodForSameCustomer() throws InvalidRequestException{
         customer.setEmail("wxyz@gmail.com");
@@ -229,6 +276,64 @@ public class RentalServiceTest {
         assertEquals(isAvailable,false);
     }
 
+    @Test
+    public void getReservationsForCustomerOrderedByStart() throws InvalidRequestException{
+        customer.setEmail("list@gmail.com");
+        ReservationPeriod laterPeriod = new ReservationPeriod(localDateTime.plusDays(6), localDateTime.plusDays(8));
+        Long reservationId1 = service.createReservation(customer, VehicleType.TRUCKS, 19701, laterPeriod);
+        Long reservationId2 = service.createReservation(customer, VehicleType.TRUCKS, 19701, reservationPeriod);
+        Long custId = service.getReservationById(reservationId1).getCustId();
+        List<Reservation> reservations = service.getReservationsForCustomer(custId);
+        assertEquals(2, reservations.size());
+        assertEquals(reservationId2, reservations.get(0).getReservationId());
+        assertEquals(reservationId1, reservations.get(1).getReservationId());
+        service.cancelReservation(reservationId2);
+        assertEquals(1, service.getReservationsForCustomer(custId).size());
+    }
+
+    @Test
+    public void createReservationsInBatch() throws InvalidRequestException{
+        ReservationPeriod batchPeriod = new ReservationPeriod(localDateTime.plusDays(20), localDateTime.plusDays(22));
+        List<ReservationRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Customer batchCustomer = generateCustomer();
+            batchCustomer.setEmail("batch" + i + "@gmail.com");
+            requests.add(new ReservationRequest(batchCustomer, VehicleType.SEDANS, 19701, batchPeriod));
+        }
+        requests.add(new ReservationRequest(customer, VehicleType.VANS, 19701, new ReservationPeriod(localDateTime.minusDays(2), localDateTime.minusDays(1))));
+        requests.add(new ReservationRequest(null, VehicleType.VANS, 19701, batchPeriod));
+
+        List<ReservationResult> results = service.createReservations(requests);
+
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(results.get(i).isReserved());
+            assertEquals(VehicleType.SEDANS, service.getReservationById(results.get(i).getReservationId()).getVehicleType());
+        }
+        assertEquals(ErrorCode.ERR08, results.get(3).getErrorCode());
+        assertEquals(ErrorCode.ERR08, results.get(4).getErrorCode());
+        assertEquals(ErrorCode.ERR07, results.get(5).getErrorCode());
+        assertEquals(ErrorCode.ERR06, results.get(6).getErrorCode());
+    }
+
+    @Test
+    public void availabilityCalendarForSoldOutPeriod() throws InvalidRequestException{
+        ReservationPeriod soldOutPeriod = new ReservationPeriod(localDateTime.plusDays(30), localDateTime.plusDays(32));
+        for (String email : new String[]{"cal1@gmail.com", "cal2@gmail.com", "cal3@gmail.com"}) {
+            customer.setEmail(email);
+            assertNotNull(service.createReservation(customer, VehicleType.SEDANS, 19701, soldOutPeriod));
+        }
+        assertEquals(3, service.getPeakReservations(VehicleType.SEDANS, 19701, soldOutPeriod));
+
+        ReservationPeriod earliest = service.findEarliestAvailablePeriod(VehicleType.SEDANS, 19701, localDateTime.plusDays(30), Duration.ofDays(1));
+        assertFalse(earliest.getStartDateTime().isBefore(soldOutPeriod.getEndDateTime()));
+        assertTrue(earliest.getStartDateTime().isBefore(soldOutPeriod.getEndDateTime().plusHours(1)));
+
+        Map<VehicleType, long[]> dailyAvailability = service.getDailyAvailability(19701, localDateTime.toLocalDate().plusDays(31), 1);
+        assertEquals(0, dailyAvailability.get(VehicleType.SEDANS)[0]);
+        assertEquals(10, dailyAvailability.get(VehicleType.SUVS)[0]);
+    }
+
     @Test
     public void markReservationsExpired() throws InvalidRequestException{
 
@@ -256,4 +361,39 @@ public class RentalServiceTest {
         assertEquals(service.getReservationById(7000L).isReserved(),true);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void tryApiReportsRejectionsWithoutThrowing() throws Exception {
+        try (ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus())) {
+            reservationSystem.setInventory(Inventory.builder().add(VehicleType.SUVS, 19801, 1).build());
+            RentalService rentalService = new RentalService(reservationSystem);
+            LocalDateTime start = localDateTime.plusDays(30);
+            ReservationPeriod period = new ReservationPeriod(start, start.plusDays(2));
+
+            ReservationResult booked = rentalService.tryCreateReservation(customer, VehicleType.SUVS, 19801, period);
+            assertTrue(booked.isReserved());
+            Customer other = Customer.builder().firstName("Jane").lastName("Doe").phoneNo(6106794403L).age(30).email("jane.doe@gmail.com").build();
+            //rejections are shared instances, not new objects or exceptions
+            ReservationResult soldOut = rentalService.tryCreateReservation(other, VehicleType.SUVS, 19801, period);
+            assertEquals(ErrorCode.ERR08, soldOut.getErrorCode());
+            assertSame(soldOut, rentalService.tryCreateReservation(other, VehicleType.SUVS, 19801, period));
+            assertEquals(ErrorCode.ERR07, rentalService.tryCreateReservation(other, VehicleType.SUVS, 19801, new ReservationPeriod(start, start.plusHours(2))).getErrorCode());
+            assertEquals(ErrorCode.ERR06, rentalService.tryCreateReservation(null, VehicleType.SUVS, 19801, period).getErrorCode());
+
+            assertEquals(ErrorCode.ERR02, rentalService.tryUpdateReservation(-1L, "Vivek", "Arora", 6106794402L, VehicleType.SUVS, 19801, period).getErrorCode());
+            OperationResult<Reservation> updated = rentalService.tryUpdateReservation(booked.getReservationId(), "Vivek", "Arora", 6106794402L, VehicleType.SUVS, 19801, new ReservationPeriod(start.plusDays(5), start.plusDays(7)));
+            assertTrue(updated.isOk());
+            assertEquals(start.plusDays(5), updated.getValue().getReservationPeriod().getStartDateTime());
+
+            assertTrue(rentalService.tryCancelReservation(booked.getReservationId()).isOk());
+            OperationResult<Reservation> cancelledAgain = rentalService.tryCancelReservation(booked.getReservationId());
+            assertEquals(ErrorCode.ERR09, cancelledAgain.getErrorCode());
+            try {
+                rentalService.cancelReservation(booked.getReservationId());
+                fail();
+            } catch (InvalidRequestException e) {
+                assertEquals("Reservation already expired", e.getMessage());
+            }
+        }
+    }
+
+}
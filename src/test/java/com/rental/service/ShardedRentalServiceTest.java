@@ -0,0 +1,102 @@
+package com.rental.service;
+
+import com.rental.domain.Inventory;
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.validator.ErrorCode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ShardedRentalServiceTest {
+
+    @Test
+    public void customersSpanShards() throws Exception {
+        try (ShardedRentalService rentalService = new ShardedRentalService(2)) {
+            int zipA = 19701;
+            int zipB = zipA + 1;
+            while (rentalService.shardFor(zipB) == rentalService.shardFor(zipA)) {
+                zipB++;
+            }
+            Inventory inventory = Inventory.builder().add(VehicleType.SEDANS, zipA, 3).add(VehicleType.SEDANS, zipB, 3).build();
+            for (int shard = 0; shard < rentalService.getShardCount(); shard++) {
+                rentalService.getShard(shard).setInventory(inventory);
+            }
+
+            Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).email("sharded.customer@gmail.com").age(35).build();
+            LocalDateTime start = LocalDateTime.now().plusDays(80);
+            Long first = rentalService.createReservation(customer, VehicleType.SEDANS, zipA, new ReservationPeriod(start, start.plusDays(2)));
+            assertNotNull(first);
+            //the customer already has a car for this time in the other shard
+            assertNull(rentalService.createReservation(customer, VehicleType.SEDANS, zipB, new ReservationPeriod(start.plusDays(1), start.plusDays(3))));
+            Long second = rentalService.createReservation(customer, VehicleType.SEDANS, zipB, new ReservationPeriod(start.plusDays(5), start.plusDays(7)));
+            assertNotNull(second);
+
+            List<Reservation> reservations = rentalService.getReservationsForCustomer(rentalService.getReservationById(first).getCustId());
+            assertEquals(2, reservations.size());
+            assertEquals(first, reservations.get(0).getReservationId());
+            assertEquals(second, reservations.get(1).getReservationId());
+
+            //moving the first reservation to zipB keeps its id and frees its car in zipA
+            ReservationPeriod moved = new ReservationPeriod(start.plusDays(10), start.plusDays(12));
+            Reservation updated = rentalService.updateReservation(first, "Vivek", "Arora", 6106794402L, VehicleType.SEDANS, zipB, moved);
+            assertEquals(zipB, updated.getZipcode());
+            assertFalse(rentalService.getShard(rentalService.shardFor(zipA)).getReservationMap().containsKey(first));
+            assertEquals(zipB, rentalService.getReservationById(first).getZipcode());
+            assertEquals(0, rentalService.getPeakReservations(VehicleType.SEDANS, zipA, new ReservationPeriod(start, start.plusDays(2))));
+            assertEquals(1, rentalService.getPeakReservations(VehicleType.SEDANS, zipB, moved));
+
+            reservations = rentalService.getReservationsForCustomer(updated.getCustId());
+            assertEquals(2, reservations.size());
+            assertEquals(second, reservations.get(0).getReservationId());
+            assertEquals(first, reservations.get(1).getReservationId());
+            assertNotNull(rentalService.createReservation(customer, VehicleType.SEDANS, zipA, new ReservationPeriod(start, start.plusDays(2))));
+        }
+    }
+
+    @Test
+    public void movesAndUpdatesCheckTheNewBucket() throws Exception {
+        try (ShardedRentalService rentalService = new ShardedRentalService(2)) {
+            int zipA = 19701;
+            int zipB = zipA + 1;
+            while (rentalService.shardFor(zipB) == rentalService.shardFor(zipA)) {
+                zipB++;
+            }
+            Inventory inventory = Inventory.builder().add(VehicleType.SEDANS, zipA, 1).add(VehicleType.SEDANS, zipB, 1).add(VehicleType.SUVS, zipA, 1).add(VehicleType.SUVS, zipB, 1).build();
+            for (int shard = 0; shard < rentalService.getShardCount(); shard++) {
+                rentalService.getShard(shard).setInventory(inventory);
+            }
+            LocalDateTime start = LocalDateTime.now().plusDays(90);
+            ReservationPeriod period = new ReservationPeriod(start, start.plusDays(2));
+            Customer first = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).email("bucket.first@gmail.com").age(35).build();
+            Customer second = Customer.builder().firstName("Jane").lastName("Doe").phoneNo(6106794403L).email("bucket.second@gmail.com").age(35).build();
+            Long moving = rentalService.createReservation(first, VehicleType.SEDANS, zipA, period);
+            assertNotNull(rentalService.createReservation(second, VehicleType.SEDANS, zipB, period));
+            Customer third = Customer.builder().firstName("John").lastName("Doe").phoneNo(6106794404L).email("bucket.third@gmail.com").age(35).build();
+            assertNotNull(rentalService.createReservation(third, VehicleType.SUVS, zipA, new ReservationPeriod(start.plusDays(1), start.plusDays(3))));
+
+            //same period instance, full bucket in the other shard
+            assertEquals(ErrorCode.ERR08, rentalService.tryUpdateReservation(moving, "Vivek", "Arora", 6106794402L, VehicleType.SEDANS, zipB, period).getErrorCode());
+            //same period instance, full bucket in the same shard
+            assertEquals(ErrorCode.ERR08, rentalService.tryUpdateReservation(moving, "Vivek", "Arora", 6106794402L, VehicleType.SUVS, zipA, period).getErrorCode());
+            assertEquals(1, rentalService.getPeakReservations(VehicleType.SEDANS, zipB, period));
+            assertEquals(1, rentalService.getPeakReservations(VehicleType.SUVS, zipA, period));
+            assertEquals(zipA, rentalService.getReservationById(moving).getZipcode());
+
+            //an equal period is no change, so the customer's own booking does not block it
+            Reservation moved = rentalService.updateReservation(moving, "Vivek", "Arora", 6106794402L, VehicleType.SUVS, zipB,
+                    new ReservationPeriod(period.getStartDateTime(), period.getEndDateTime()));
+            assertEquals(zipB, moved.getZipcode());
+            assertEquals(1, rentalService.getPeakReservations(VehicleType.SUVS, zipB, period));
+            assertEquals(0, rentalService.getPeakReservations(VehicleType.SEDANS, zipA, period));
+        }
+    }
+}
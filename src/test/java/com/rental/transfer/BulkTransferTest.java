@@ -0,0 +1,243 @@
+package com.rental.transfer;
+
+import com.rental.domain.CustomerDirectory;
+import com.rental.domain.Inventory;
+import com.rental.domain.ReservationSystem;
+import com.rental.events.ReservationEventBus;
+import com.rental.model.Customer;
+import com.rental.model.Reservation;
+import com.rental.model.ReservationPeriod;
+import com.rental.model.VehicleType;
+import com.rental.service.RentalService;
+import com.rental.service.ShardedRentalService;
+import com.rental.validator.ErrorCode;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class BulkTransferTest {
+
+    private final List<ReservationSystem> systems = new ArrayList<>();
+
+    @After
+    public void cleanup() throws IOException {
+        for (ReservationSystem reservationSystem : systems) {
+            reservationSystem.close();
+        }
+    }
+
+    @Test
+    public void exportThenImportKeepsIds() throws Exception {
+        for (TransferFormat format : TransferFormat.values()) {
+            ReservationSystem source = isolatedSystem();
+            RentalService rentalService = new RentalService(source);
+            LocalDateTime start = LocalDateTime.now().plusDays(10);
+            for (int i = 0; i < 600; i++) {
+                Customer customer = Customer.builder().firstName("Arora, \"Vivek\"").lastName("Arora").phoneNo(6106794402L + i)
+                        .email("transfer" + i + "@gmail.com").age(35).build();
+                assertNotNull(rentalService.createReservation(customer, VehicleType.SEDANS, 19701, new ReservationPeriod(start.plusDays(i), start.plusDays(i + 2))));
+            }
+            rentalService.cancelReservation(source.getReservationMap().keySet().iterator().next());
+
+            Path customers = Files.createTempFile("customers", format == TransferFormat.CSV ? ".csv" : ".bin");
+            Path reservations = Files.createTempFile("reservations", format == TransferFormat.CSV ? ".csv" : ".bin");
+            try {
+                BulkTransfer export = new BulkTransfer(source);
+                try (FileChannel channel = FileChannel.open(customers, StandardOpenOption.WRITE)) {
+                    assertEquals(600, export.exportCustomers(channel, format));
+                }
+                try (FileChannel channel = FileChannel.open(reservations, StandardOpenOption.WRITE)) {
+                    assertEquals(600, export.exportReservations(channel, format));
+                }
+
+                ReservationSystem target = isolatedSystem();
+                BulkTransfer transfer = new BulkTransfer(target);
+                try (FileChannel channel = FileChannel.open(customers, StandardOpenOption.READ)) {
+                    assertEquals(600, transfer.importCustomers(channel, format, null).getImported());
+                }
+                try (FileChannel channel = FileChannel.open(reservations, StandardOpenOption.READ)) {
+                    ImportReport report = transfer.importReservations(channel, format, null);
+                    assertEquals(600, report.getImported());
+                    assertTrue(report.getErrors().isEmpty());
+                }
+                assertEquals(source.getReservationMap(), target.getReservationMap());
+                for (Customer customer : source.getCustomerMap().values()) {
+                    Customer imported = target.getCustomerMap().get(customer.getCustomerId());
+                    assertEquals(customer.getEmail(), imported.getEmail());
+                    assertEquals(customer.getFirstName(), imported.getFirstName());
+                    assertEquals(customer.getPhoneNo(), imported.getPhoneNo());
+                }
+                //imported reservations take their cars
+                ReservationPeriod week = new ReservationPeriod(start.plusDays(50), start.plusDays(57));
+                assertEquals(source.getPeakReservations(VehicleType.SEDANS, 19701, week), target.getPeakReservations(VehicleType.SEDANS, 19701, week));
+                assertTrue(target.getPeakReservations(VehicleType.SEDANS, 19701, week) > 0);
+            } finally {
+                Files.delete(customers);
+                Files.delete(reservations);
+            }
+        }
+    }
+
+    @Test
+    public void rejectedRecordsAreReportedOneByOne() throws Exception {
+        ReservationSystem target = isolatedSystem();
+        BulkTransfer transfer = new BulkTransfer(target);
+        Path customers = Files.createTempFile("customers", ".csv");
+        Path reservations = Files.createTempFile("reservations", ".csv");
+        try {
+            Files.write(customers, ("CustomerId,Email,FirstName,LastName,PhoneNo,Age\n"
+                    + "81000000001,one@gmail.com,Jane,Doe,,30\n"
+                    + "81000000002,one@gmail.com,John,Doe,,30\n").getBytes(StandardCharsets.UTF_8));
+            LocalDateTime start = LocalDateTime.now().plusDays(10).withNano(0);
+            Files.write(reservations, ("ReservationId,CustomerId,VehicleType,PickupZipCode,StartDateTime,EndDateTime,Reserved\n"
+                    + "920000000001,81000000001,SEDANS,19701," + start + "," + start.plusDays(2) + ",true\n"
+                    + "920000000001,81000000001,SEDANS,19701," + start.plusDays(5) + "," + start.plusDays(6) + ",true\n"
+                    + "920000000002,81000000009,SEDANS,19701," + start + "," + start.plusDays(2) + ",true\n"
+                    + "920000000003,81000000001,BIKES,19701," + start + "," + start.plusDays(2) + ",true\n"
+                    + "920000000004,81000000001,SEDANS,19701," + start.plusDays(2) + "," + start + ",true\n"
+                    + "920000000005,81000000001,SEDANS\n").getBytes(StandardCharsets.UTF_8));
+
+            ImportReport customerReport;
+            try (FileChannel channel = FileChannel.open(customers, StandardOpenOption.READ)) {
+                customerReport = transfer.importCustomers(channel, TransferFormat.CSV, null);
+            }
+            assertEquals(1, customerReport.getImported());
+            assertEquals(new ImportError(3, ErrorCode.ERR10, ErrorCode.ERR10.getValue()), customerReport.getErrors().get(0));
+
+            List<ImportError> errors = new ArrayList<>();
+            ImportReport report;
+            try (FileChannel channel = FileChannel.open(reservations, StandardOpenOption.READ)) {
+                report = transfer.importReservations(channel, TransferFormat.CSV, errors::add);
+            }
+            assertEquals(6, report.getRecords());
+            assertEquals(1, report.getImported());
+            assertEquals(5, errors.size());
+            errors.sort((a, b) -> Long.compare(a.getRecordNumber(), b.getRecordNumber()));
+            assertEquals(ErrorCode.ERR10, errors.get(0).getErrorCode());
+            assertEquals(ErrorCode.ERR02, errors.get(1).getErrorCode());
+            assertEquals("Invalid Input VehicleType", errors.get(2).getMessage());
+            assertEquals(ErrorCode.ERR07, errors.get(3).getErrorCode());
+            assertEquals(7, errors.get(4).getRecordNumber());
+            assertTrue(target.getReservationMap().containsKey(920000000001L));
+        } finally {
+            Files.delete(customers);
+            Files.delete(reservations);
+        }
+    }
+
+    @Test
+    public void archivedReservationsAreExported() throws Exception {
+        Path coldDir = Files.createTempDirectory("cold");
+        Path reservations = Files.createTempFile("reservations", ".bin");
+        try {
+            ReservationSystem source = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus(), coldDir);
+            source.setInventory(Inventory.builder().add(VehicleType.SEDANS, 19701, 5).build());
+            systems.add(source);
+            RentalService rentalService = new RentalService(source);
+            LocalDateTime start = LocalDateTime.now().plusDays(10);
+            List<Long> reservationIds = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L)
+                        .email("archived" + i + "@gmail.com").age(35).build();
+                reservationIds.add(rentalService.createReservation(customer, VehicleType.SEDANS, 19701, new ReservationPeriod(start.plusDays(i), start.plusDays(i + 2))));
+            }
+            for (int i = 0; i < 4; i++) {
+                rentalService.cancelReservation(reservationIds.get(i));
+            }
+            source.archiveInactiveReservations();
+            assertEquals(6, source.getReservationMap().size());
+            assertEquals(4, source.getColdStore().size());
+
+            try (FileChannel channel = FileChannel.open(reservations, StandardOpenOption.WRITE)) {
+                assertEquals(10, new BulkTransfer(source).exportReservations(channel, TransferFormat.BINARY));
+            }
+            ReservationSystem target = isolatedSystem();
+            for (Customer customer : source.getCustomerMap().values()) {
+                target.getCustomerMap().put(customer.getCustomerId(), customer);
+            }
+            try (FileChannel channel = FileChannel.open(reservations, StandardOpenOption.READ)) {
+                assertEquals(10, new BulkTransfer(target).importReservations(channel, TransferFormat.BINARY, null).getImported());
+            }
+            for (Long reservationId : reservationIds) {
+                assertEquals(rentalService.getReservationById(reservationId), target.getReservationMap().get(reservationId));
+            }
+            //importing the export back into the source finds every id taken, archived ones included
+            try (FileChannel channel = FileChannel.open(reservations, StandardOpenOption.READ)) {
+                List<ImportError> errors = new ArrayList<>();
+                assertEquals(0, new BulkTransfer(source).importReservations(channel, TransferFormat.BINARY, errors::add).getImported());
+                assertEquals(10, errors.size());
+                for (ImportError error : errors) {
+                    assertEquals(ErrorCode.ERR10, error.getErrorCode());
+                }
+            }
+        } finally {
+            Files.delete(reservations);
+            try (Stream<Path> files = Files.walk(coldDir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void idsHeldByAnyShardAreRejected() throws Exception {
+        Path reservations = Files.createTempFile("reservations", ".csv");
+        try (ShardedRentalService rentalService = new ShardedRentalService(2)) {
+            int zipA = 19701;
+            int zipB = zipA + 1;
+            while (rentalService.shardFor(zipB) == rentalService.shardFor(zipA)) {
+                zipB++;
+            }
+            Inventory inventory = Inventory.builder().add(VehicleType.SEDANS, zipA, 3).add(VehicleType.SEDANS, zipB, 3).build();
+            for (int shard = 0; shard < rentalService.getShardCount(); shard++) {
+                rentalService.getShard(shard).setInventory(inventory);
+            }
+            Customer customer = Customer.builder().firstName("Vivek").lastName("Arora").phoneNo(6106794402L).email("sharded.import@gmail.com").age(35).build();
+            LocalDateTime start = LocalDateTime.now().plusDays(10).withNano(0);
+            Long reservationId = rentalService.createReservation(customer, VehicleType.SEDANS, zipA, new ReservationPeriod(start, start.plusDays(2)));
+            Long custId = rentalService.getReservationById(reservationId).getCustId();
+            //the same id booked in zipB would land in the other shard
+            Files.write(reservations, ("ReservationId,CustomerId,VehicleType,PickupZipCode,StartDateTime,EndDateTime,Reserved\n"
+                    + reservationId + "," + custId + ",SEDANS," + zipB + "," + start.plusDays(5) + "," + start.plusDays(7) + ",true\n"
+                    + "930000000001," + custId + ",SEDANS," + zipB + "," + start.plusDays(10) + "," + start.plusDays(12) + ",true\n").getBytes(StandardCharsets.UTF_8));
+
+            List<ImportError> errors = new ArrayList<>();
+            ImportReport report;
+            try (FileChannel channel = FileChannel.open(reservations, StandardOpenOption.READ)) {
+                report = new BulkTransfer(rentalService).importReservations(channel, TransferFormat.CSV, errors::add);
+            }
+            assertEquals(1, report.getImported());
+            assertEquals(1, errors.size());
+            assertEquals(new ImportError(2, ErrorCode.ERR10, ErrorCode.ERR10.getValue()), errors.get(0));
+            assertEquals(zipA, rentalService.getReservationById(reservationId).getZipcode());
+            assertFalse(rentalService.getShard(rentalService.shardFor(zipB)).getReservationMap().containsKey(reservationId));
+        } finally {
+            Files.delete(reservations);
+        }
+    }
+
+    private ReservationSystem isolatedSystem() {
+        ReservationSystem reservationSystem = new ReservationSystem(new CustomerDirectory(), 0, null, new ReservationEventBus());
+        reservationSystem.setInventory(Inventory.builder().add(VehicleType.SEDANS, 19701, 5).build());
+        systems.add(reservationSystem);
+        return reservationSystem;
+    }
+}